@@ -2,49 +2,49 @@ package org.dnd5spellbook;
 
 import android.test.InstrumentationTestCase;
 
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Multimap;
-
-import org.dnd5spellbook.domain.ClassLevelConstraint;
+import org.dnd5spellbook.core.SpellArchive;
+import org.dnd5spellbook.core.SpellLoader;
 import org.dnd5spellbook.domain.Spell;
 
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
+/**
+ * Checks that spells are readable from the application assets, where spell html files
+ * are packed into the spell archive. The bundle content itself is checked by the JVM
+ * tests of spellbook-core.
+ */
 public class SpellLoaderTest extends InstrumentationTestCase {
 
+    private SpellLoader createSpellLoader() {
+        return new SpellLoader(new AndroidAssetSource(getInstrumentation().getTargetContext().getAssets()),
+                Constants.DND_SPELLS_ASSETS_PATH);
+    }
+
     public void testMoreThanZeroSpellsAvailable() throws Exception {
-        SpellLoader spellLoader = new SpellLoader();
-        List<Spell> spells = spellLoader.readSpellListFromAssets(getInstrumentation().getTargetContext());
+        List<Spell> spells = createSpellLoader().readSpellList();
         assertTrue(spells.size() > 0);
     }
 
-    public void testConstraintsReferenceExistingSpellsOnly() throws Exception {
-        SpellLoader spellLoader = new SpellLoader();
-        List<Spell> spells = spellLoader.readSpellListFromAssets(getInstrumentation().getTargetContext());
-        Multimap<String, ClassLevelConstraint> constraints = spellLoader.readSpellClassLevelConstraints(getInstrumentation().getTargetContext());
-
-        List<String> failures = new ArrayList<>();
-        for (final String name: constraints.keys()) {
-            if (!Iterables.any(spells, new Predicate<Spell>() {
-                @Override
-                public boolean apply(Spell input) {
-                    return input.getName().equals(name);
-                }
-            }))
-                failures.add(name);
+    public void testIndexMatchesMetadata() throws Exception {
+        SpellLoader spellLoader = createSpellLoader();
+        List<Spell> indexed = spellLoader.readSpellListFromIndex();
+        List<Spell> parsed = spellLoader.readSpellListFromMetadata();
+
+        assertTrue(parsed.size() > 0);
+        assertEquals(parsed.size(), indexed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            assertEquals(parsed.get(i).getName(), indexed.get(i).getName());
+            assertEquals(parsed.get(i).getId(), indexed.get(i).getId());
+            assertEquals(new HashSet<>(parsed.get(i).getClassLevelConstraints()),
+                    new HashSet<>(indexed.get(i).getClassLevelConstraints()));
         }
-        assertTrue("Constraints exist for unknown spells: " + failures.toString(), failures.size() == 0);
     }
 
-    public void testEverySpellHasConstraints() {
-        SpellLoader spellLoader = new SpellLoader();
-        List<Spell> spells = spellLoader.readSpellListFromAssets(getInstrumentation().getTargetContext());
-        List<String> failures = new ArrayList<>();
-        for (Spell spell: spells)
-            if (spell.getClassLevelConstraints().size() == 0)
-                failures.add(spell.getName());
-        assertTrue("Spells with no constraints: " + failures.toString(), failures.size() == 0);
+    public void testSpellHtmlIsArchived() throws Exception {
+        SpellLoader spellLoader = createSpellLoader();
+        SpellArchive archive = spellLoader.readSpellArchive();
+        for (Spell spell : spellLoader.readSpellListFromIndex())
+            assertTrue(spell.getName(), archive.read(spell.getId()).contains("<article>"));
     }
-}
\ No newline at end of file
+}
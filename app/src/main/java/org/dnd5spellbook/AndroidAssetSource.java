@@ -0,0 +1,62 @@
+package org.dnd5spellbook;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import org.dnd5spellbook.core.AssetSource;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link AssetSource} that reads application assets
+ */
+public class AndroidAssetSource implements AssetSource {
+
+    private final AssetManager assetManager;
+
+    public AndroidAssetSource(AssetManager assetManager) {
+        this.assetManager = assetManager;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream open(String path) throws IOException {
+        return assetManager.open(path);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] list(String path) throws IOException {
+        return assetManager.list(path);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Only assets stored uncompressed in the apk can be mapped, see {@code aaptOptions.noCompress}
+     * in the build script.
+     */
+    @Override
+    public ByteBuffer map(String path) throws IOException {
+        AssetFileDescriptor descriptor = assetManager.openFd(path);
+        try {
+            FileInputStream stream = new FileInputStream(descriptor.getFileDescriptor());
+            try {
+                return stream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                        descriptor.getStartOffset(), descriptor.getLength());
+            } finally {
+                stream.close();
+            }
+        } finally {
+            descriptor.close();
+        }
+    }
+}
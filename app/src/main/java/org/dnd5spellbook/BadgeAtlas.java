@@ -0,0 +1,132 @@
+package org.dnd5spellbook;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.ConstraintMask;
+
+/**
+ * Bitmap with a pre-rendered badge for every class and level: a rounded square in the
+ * class color with the level inside. Badges are rendered once for a badge size, so
+ * list item backgrounds are drawn by copying bitmap regions, without text layout or
+ * allocation.
+ * <p/>
+ * The badge of a constraint is in the row of its class and the column of its level,
+ * so it is found by the constraint's {@link ConstraintMask#bitIndex bit index}.
+ * <p/>
+ * Drawing is not thread safe and is meant for the UI thread.
+ */
+public class BadgeAtlas {
+
+    private static final int ALPHA = 204;
+    private static final float CORNER_RADIUS_DP = 3;
+    private static final float STROKE_WIDTH_DP = 1;
+
+    private final Bitmap bitmap;
+    private final int badgeSize;
+    private final int margin;
+    private final int cellSize;
+    private final Rect source = new Rect();
+    private final Rect destination = new Rect();
+
+    /**
+     * Renders the badges
+     *
+     * @param resources resources to get the colors and the display density from
+     * @param badgeSize side of a badge in pixels
+     * @param padding   distance between badges in pixels, used to place the level text
+     *                  like the badges drawn directly on list items did
+     */
+    public BadgeAtlas(Resources resources, int badgeSize, float padding) {
+        if (badgeSize < 1)
+            throw new IllegalArgumentException("Invalid badge size " + badgeSize);
+        float density = resources.getDisplayMetrics().density;
+        float strokeWidth = STROKE_WIDTH_DP * density;
+        this.badgeSize = badgeSize;
+        // the outline is centered on the badge border, so half of it is outside the badge
+        this.margin = (int) Math.ceil(strokeWidth / 2);
+        this.cellSize = badgeSize + 2 * margin;
+
+        ClassName[] classNames = ClassName.values();
+        bitmap = Bitmap.createBitmap(cellSize * ConstraintMask.LEVEL_COUNT, cellSize * classNames.length,
+                Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        Paint fillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        fillPaint.setStyle(Paint.Style.FILL);
+        Paint strokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        strokePaint.setStyle(Paint.Style.STROKE);
+        strokePaint.setColor(resources.getColor(R.color.level_square_outline));
+        strokePaint.setStrokeWidth(strokeWidth);
+        strokePaint.setAlpha(ALPHA);
+        Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setStyle(Paint.Style.FILL);
+        textPaint.setColor(resources.getColor(R.color.level_text));
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setTextSize(badgeSize * 0.75f);
+        textPaint.setAlpha(ALPHA);
+
+        float cornerRadius = CORNER_RADIUS_DP * density;
+        float textBaseline = Math.min(badgeSize * 0.75f + padding, badgeSize);
+        RectF badge = new RectF();
+        for (ClassName className : classNames) {
+            fillPaint.setColor(resources.getColor(SpellBackgroundFactory.getColorId(className)));
+            fillPaint.setAlpha(ALPHA);
+            for (int level = 0; level < ConstraintMask.LEVEL_COUNT; level++) {
+                cellBounds(ConstraintMask.bitIndex(className, level), source);
+                badge.set(source.left + margin, source.top + margin,
+                        source.left + margin + badgeSize, source.top + margin + badgeSize);
+                canvas.drawRoundRect(badge, cornerRadius, cornerRadius, fillPaint);
+                canvas.drawRoundRect(badge, cornerRadius, cornerRadius, strokePaint);
+                canvas.drawText(String.valueOf(level), badge.centerX(), badge.top + textBaseline, textPaint);
+            }
+        }
+    }
+
+    /**
+     * @return side of a badge in pixels
+     */
+    public int getBadgeSize() {
+        return badgeSize;
+    }
+
+    /**
+     * @return size of the atlas bitmap in bytes
+     */
+    public int getByteCount() {
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    /**
+     * Draws the badge of a constraint
+     *
+     * @param canvas   canvas to draw on
+     * @param bitIndex bit index of the constraint, see {@link ConstraintMask#bitIndex}
+     * @param left     left side of the badge on the canvas
+     * @param top      top side of the badge on the canvas
+     */
+    public void draw(Canvas canvas, int bitIndex, int left, int top) {
+        cellBounds(bitIndex, source);
+        destination.set(left - margin, top - margin, left - margin + cellSize, top - margin + cellSize);
+        canvas.drawBitmap(bitmap, source, destination, null);
+    }
+
+    private void cellBounds(int bitIndex, Rect bounds) {
+        int left = (bitIndex % ConstraintMask.LEVEL_COUNT) * cellSize;
+        int top = (bitIndex / ConstraintMask.LEVEL_COUNT) * cellSize;
+        bounds.set(left, top, left + cellSize, top + cellSize);
+    }
+
+    @Override
+    public String toString() {
+        return "BadgeAtlas{" +
+                "badgeSize=" + badgeSize +
+                ", byteCount=" + getByteCount() +
+                '}';
+    }
+}
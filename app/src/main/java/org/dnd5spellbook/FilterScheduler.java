@@ -0,0 +1,74 @@
+package org.dnd5spellbook;
+
+import android.os.Handler;
+
+/**
+ * Coalesces bursts of filter requests made on the UI thread. A scheduled request runs
+ * on the UI thread once no other request is scheduled within a delay, so typing a word
+ * filters the list once per pause rather than once per keystroke. Every request replaces
+ * the pending one.
+ */
+public class FilterScheduler {
+
+    /**
+     * Default delay between the last request of a burst and its run, in milliseconds
+     */
+    public static final long DEFAULT_DELAY_MILLIS = 150;
+
+    private final Handler handler = new Handler();
+    private final long delayMillis;
+    private Runnable pendingRequest;
+
+    private final Runnable runPending = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * Creates a scheduler with {@link #DEFAULT_DELAY_MILLIS}. Must be created on the UI thread.
+     */
+    public FilterScheduler() {
+        this(DEFAULT_DELAY_MILLIS);
+    }
+
+    /**
+     * Creates a scheduler. Must be created on the UI thread.
+     *
+     * @param delayMillis delay between the last request of a burst and its run, in milliseconds
+     */
+    public FilterScheduler(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    /**
+     * Schedules a filter request, dropping the pending one if any
+     *
+     * @param request request to run on the UI thread after the delay
+     */
+    public void schedule(Runnable request) {
+        handler.removeCallbacks(runPending);
+        pendingRequest = request;
+        handler.postDelayed(runPending, delayMillis);
+    }
+
+    /**
+     * Runs the pending request right away, if any
+     */
+    public void flush() {
+        handler.removeCallbacks(runPending);
+        Runnable request = pendingRequest;
+        pendingRequest = null;
+        if (request != null)
+            request.run();
+    }
+
+    /**
+     * Drops the pending request, if any
+     */
+    public void cancel() {
+        handler.removeCallbacks(runPending);
+        pendingRequest = null;
+    }
+}
@@ -1,8 +1,11 @@
 package org.dnd5spellbook;
 
+import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
 import android.support.v7.app.ActionBarActivity;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -10,6 +13,12 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.webkit.WebView;
 
+import org.dnd5spellbook.core.SpellPack;
+import org.dnd5spellbook.core.SpellRepository;
+import org.dnd5spellbook.domain.Spell;
+
+import java.io.IOException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -18,6 +27,7 @@ import java.util.logging.Logger;
 public class SpellActivity extends ActionBarActivity {
 
     public final static String SPELL_NAME = "org.dnd5spellbook.SPELL_NAME";
+    public final static String SPELL_ID = "org.dnd5spellbook.SPELL_ID";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -34,8 +44,9 @@ public class SpellActivity extends ActionBarActivity {
             spellFragment = (SpellFragment)getSupportFragmentManager().findFragmentById(R.id.container);
 
         String spellName = getIntent().getStringExtra(SPELL_NAME);
+        int spellId = getIntent().getIntExtra(SPELL_ID, Spell.NO_ID);
 
-        spellFragment.setSpellName(spellName);
+        spellFragment.setSpell(spellId, spellName);
         setTitle(spellName);
     }
 
@@ -66,29 +77,82 @@ public class SpellActivity extends ActionBarActivity {
 
         private static final Logger logger = Logger.getLogger(SpellFragment.class.getName());
 
+        // spell files refer to the bundle style sheet by a relative url
+        private static final String BUNDLE_URL = "file:///android_asset/" + Constants.DND_SPELLS_ASSETS_PATH + "/";
+
+        private int spellId = Spell.NO_ID;
         private String spellName;
         private WebView webview;
+        private HtmlTask htmlTask;
 
         public SpellFragment() {
         }
 
         private void loadData() {
-            String fullPath = "file:///android_asset/" + Constants.DND_SPELLS_ASSETS_PATH + "/" +
-                    spellName + ".html";
-            logger.info("loading data from " + fullPath);
-            webview.loadUrl(fullPath);
+            if (htmlTask != null)
+                htmlTask.cancel(false);
+            htmlTask = new HtmlTask(SpellbookApplication.getRepository(getActivity()), spellId, spellName);
+            htmlTask.execute();
         }
 
         /**
-         * Sets the spell name that corresponds to the file name of a file in assets/dndbundle
-         * containing spells details information. If this method is invoked after view creation
-         * it will force loading the information in the view; otherwise, the information will be
-         * loaded as soon as view is created.
+         * Finds the pack of the spell and reads its html on a background thread, since a
+         * homebrew spell may need the catalogue loaded, e.g. after the process was killed
+         * while this activity was in background, which discovers and maybe compiles packs
+         */
+        private class HtmlTask extends AsyncTask<Void, Void, String> {
+            private final SpellRepository repository;
+            private final int spellId;
+            private final String spellName;
+            // written on the background thread
+            private String baseUrl = BUNDLE_URL;
+
+            private HtmlTask(SpellRepository repository, int spellId, String spellName) {
+                this.repository = repository;
+                this.spellId = spellId;
+                this.spellName = spellName;
+            }
+
+            @Override
+            protected String doInBackground(Void... params) {
+                SpellPack pack = repository.getPack(spellId);
+                // homebrew spell files refer to the style sheet of their pack
+                if (pack != null && pack.getDirectory() != null)
+                    baseUrl = Uri.fromFile(pack.getDirectory()).toString() + "/";
+                try {
+                    // the spell archive is memory mapped once and shared by all spell fragments
+                    return repository.readSpellHtml(spellId, spellName);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Spell html is not available", e);
+                    return null;
+                }
+            }
+
+            @Override
+            protected void onPostExecute(String html) {
+                htmlTask = null;
+                if (webview == null)
+                    return;
+                // spell html files of the shipped bundle are in the archive only, so there
+                // is no file to fall back to
+                if (html == null)
+                    html = "<p>" + TextUtils.htmlEncode(getString(R.string.spell_not_available, spellName)) + "</p>";
+                webview.loadDataWithBaseURL(baseUrl, html, "text/html", "UTF-8", null);
+            }
+        }
+
+        /**
+         * Sets the spell which details are shown. If this method is invoked after view
+         * creation it will force loading the information in the view; otherwise, the
+         * information will be loaded as soon as view is created.
          *
-         * @param spellName pell name that corresponds to the file name of a file in
-         *                  assets/dndbundle
+         * @param spellId   catalogue id of the spell, which tells its pack and the key of its
+         *                  html in the spell archive of the pack
+         * @param spellName spell name that corresponds to the file name of a file in a
+         *                  homebrew pack, used if the spell is not in the archive
          */
-        public void setSpellName(String spellName) {
+        public void setSpell(int spellId, String spellName) {
+            this.spellId = spellId;
             this.spellName = spellName;
             if (webview != null)
                 loadData();
@@ -104,5 +168,14 @@ public class SpellActivity extends ActionBarActivity {
 
             return rootView;
         }
+
+        @Override
+        public void onDestroyView() {
+            if (htmlTask != null)
+                htmlTask.cancel(false);
+            htmlTask = null;
+            webview = null;
+            super.onDestroyView();
+        }
     }
 }
@@ -7,47 +7,93 @@ import android.widget.BaseAdapter;
 import android.widget.Filter;
 import android.widget.Filterable;
 import android.widget.ImageView;
+import android.widget.ListView;
 import android.widget.TextView;
 
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
-
-import org.dnd5spellbook.domain.ClassLevelConstraint;
+import org.dnd5spellbook.core.FacetFilter;
+import org.dnd5spellbook.core.FavoriteSet;
+import org.dnd5spellbook.core.FilterSpec;
+import org.dnd5spellbook.core.FullTextIndex;
+import org.dnd5spellbook.core.IdListDiff;
+import org.dnd5spellbook.core.LatencyHistogram;
+import org.dnd5spellbook.core.MetricsRegistry;
+import org.dnd5spellbook.core.SpellAttributes;
+import org.dnd5spellbook.core.SpellRepository;
+import org.dnd5spellbook.core.SpellSearch;
 import org.dnd5spellbook.domain.ClassName;
 import org.dnd5spellbook.domain.Spell;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.EnumSet;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Adapter to use spells in a list view
+ * Adapter to use spells in a list view. Items have stable ids, and rows are updated
+ * granularly: filtering results are diffed against the shown list and published without
+ * invalidating the list if the same spells are shown, rows that already show their spell
+ * are not bound again, and a favorite change rebinds only the row of the spell, see
+ * {@link #rebindRow}. When spells are inserted or removed, the first visible spell of the
+ * list view is kept in place, see {@link #setListView}.
  */
 public class SpellAdapter extends BaseAdapter implements Filterable, Iterable<Spell> {
     private Activity context;
     private List<Spell> originalValues;
     private List<Spell> filteredValues;
     private SpellFilter spellFilter;
-    private Set<ClassName> classNamesFilter = EnumSet.allOf(ClassName.class);
-    private Set<Integer> levelFilter = new HashSet<>(10);
+    private final SpellSearch search;
+
+    // filters and favorites, changed on the UI thread and passed to filtering as snapshots
+    private FilterSpec filterSpec = FilterSpec.DEFAULT;
+    private FavoriteSet favorites = FavoriteSet.EMPTY;
+    // favorites by stable spell id, including spells that are not loaded yet
+    private FavoriteSet favoriteIds = FavoriteSet.EMPTY;
+
+    // number of the latest filtering request, results of earlier requests are dropped
+    private int filterGeneration;
+    // number of changes of the shown list, to tell whether a diff computed against it is stale
+    private int shownVersion;
+    private volatile FilterRequest filterRequest;
+    // list view showing the adapter, which first visible spell is kept in place
+    private ListView listView;
 
-    {
-        for (int i = 0; i < 10; i++)
-            levelFilter.add(i);
-    }
+    private static final SpellBackgroundFactory spellBackgroundFactory = new SpellBackgroundFactory();
 
-    private boolean showFavOnly;
+    private static final LatencyHistogram publishHistogram = MetricsRegistry.getDefault().histogram(MetricsRegistry.PUBLISH);
+    private static final LatencyHistogram rowBindHistogram = MetricsRegistry.getDefault().histogram(MetricsRegistry.ROW_BIND);
+    private static final AtomicLong rowsBound = MetricsRegistry.getDefault().counter(MetricsRegistry.ROWS_BOUND);
+    private static final AtomicLong rowsUnchanged = MetricsRegistry.getDefault().counter(MetricsRegistry.ROWS_UNCHANGED);
+    private static final AtomicLong rowsInserted = MetricsRegistry.getDefault().counter(MetricsRegistry.ROWS_INSERTED);
+    private static final AtomicLong rowsRemoved = MetricsRegistry.getDefault().counter(MetricsRegistry.ROWS_REMOVED);
 
-    private static final SpellBackgroundFactory spellBackgroundFactory = new SpellBackgroundFactory();
+    /**
+     * Releases cached row backgrounds according to the memory pressure. Intended to be
+     * called from {@code onTrimMemory} of activities.
+     *
+     * @param level memory trim level
+     */
+    public static void trimMemory(int level) {
+        spellBackgroundFactory.trimMemory(level);
+    }
 
     public SpellAdapter(Activity context, List<Spell> values) {
+        this(context, values, null);
+    }
+
+    /**
+     * Creates an adapter which search takes its indexes from a repository once all spells
+     * of the repository are appended, see {@link SpellSearch#SpellSearch(List, SpellRepository)}
+     *
+     * @param context    activity to inflate rows with
+     * @param values     list of spells, which is filled by {@link #appendSpells}
+     * @param repository repository to share the search indexes of, or null
+     */
+    public SpellAdapter(Activity context, List<Spell> values, SpellRepository repository) {
         this.filteredValues = new ArrayList<>(values);
         this.originalValues = values;
+        this.search = new SpellSearch(values, repository);
         this.context = context;
     }
 
@@ -55,7 +101,7 @@ public class SpellAdapter extends BaseAdapter implements Filterable, Iterable<Sp
      * @return true if list is showing only favorite spells
      */
     public boolean isShowFavOnly() {
-        return showFavOnly;
+        return filterSpec.isShowFavOnly();
     }
 
     /**
@@ -65,7 +111,38 @@ public class SpellAdapter extends BaseAdapter implements Filterable, Iterable<Sp
      * @param showFavOnly whether only favorite spells should be shown
      */
     public void setShowFavOnly(boolean showFavOnly) {
-        this.showFavOnly = showFavOnly;
+        filterSpec = filterSpec.withShowFavOnly(showFavOnly);
+    }
+
+    /**
+     * Sets the full text index of spell descriptions. Intended to be set once all spells
+     * are loaded, since the index documents are all spells in alphabetical order.
+     *
+     * @param fullTextIndex full text index of spell descriptions
+     */
+    public void setFullTextIndex(FullTextIndex fullTextIndex) {
+        search.setFullTextIndex(fullTextIndex);
+    }
+
+    /**
+     * Sets the attributes of spells parsed from their headers. Intended to be set once all
+     * spells are loaded, since the attributes are indexed by spell position.
+     *
+     * @param attributes attributes of the spells
+     */
+    public void setAttributes(SpellAttributes attributes) {
+        search.setAttributes(attributes);
+    }
+
+    /**
+     * Sets whether the filter string is searched in spell descriptions rather than names.
+     * Takes effect only on the next filtering. You can trigger filtering by calling
+     * {@code getFilter().filter()}
+     *
+     * @param fullTextSearch whether the filter string should be searched in spell descriptions
+     */
+    public void setFullTextSearch(boolean fullTextSearch) {
+        filterSpec = filterSpec.withFullTextSearch(fullTextSearch);
     }
 
     /**
@@ -76,7 +153,7 @@ public class SpellAdapter extends BaseAdapter implements Filterable, Iterable<Sp
      * @param classNamesFilter set of class names that will limit shown spells
      */
     public void setClassNamesFilter(Set<ClassName> classNamesFilter) {
-        this.classNamesFilter = EnumSet.copyOf(classNamesFilter);
+        filterSpec = filterSpec.withClassNames(classNamesFilter);
     }
 
     /**
@@ -85,7 +162,7 @@ public class SpellAdapter extends BaseAdapter implements Filterable, Iterable<Sp
      * @return current set of classes that limits shown spells
      */
     public Set<ClassName> getClassNamesFilter() {
-        return classNamesFilter;
+        return filterSpec.getClassNames();
     }
 
     /**
@@ -96,7 +173,7 @@ public class SpellAdapter extends BaseAdapter implements Filterable, Iterable<Sp
      * @param levelFilter set of levels that will limit shown spells
      */
     public void setLevelFilter(Set<Integer> levelFilter) {
-        this.levelFilter = new HashSet<>(levelFilter);
+        filterSpec = filterSpec.withLevels(levelFilter);
     }
 
     /**
@@ -105,7 +182,25 @@ public class SpellAdapter extends BaseAdapter implements Filterable, Iterable<Sp
      * @return current set of levels that limits shown spells
      */
     public Set<Integer> getLevelFilter() {
-        return levelFilter;
+        return filterSpec.getLevels();
+    }
+
+    /**
+     * Sets the filter by spell properties, such as schools and components. Takes effect
+     * only on the next filtering. You can trigger filtering by calling
+     * {@code getFilter().filter()}
+     *
+     * @param facetFilter filter by spell properties that will limit shown spells
+     */
+    public void setFacetFilter(FacetFilter facetFilter) {
+        filterSpec = filterSpec.withFacetFilter(facetFilter);
+    }
+
+    /**
+     * @return current filter by spell properties that limits shown spells
+     */
+    public FacetFilter getFacetFilter() {
+        return filterSpec.getFacetFilter();
     }
 
     /**
@@ -129,12 +224,41 @@ public class SpellAdapter extends BaseAdapter implements Filterable, Iterable<Sp
      */
     @Override
     public long getItemId(int position) {
-        return position;
+        return itemId(getItem(position));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    /**
+     * @param spell spell in the list
+     * @return stable id of the spell, or a negative id made of its position among all
+     * spells if it has no stable id
+     */
+    private int itemId(Spell spell) {
+        if (spell.getId() != Spell.NO_ID)
+            return spell.getId();
+        return -2 - Collections.binarySearch(originalValues, spell, Spell.NAME_COMPARATOR);
+    }
+
+    private int[] itemIds(List<Spell> spells) {
+        int[] ids = new int[spells.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = itemId(spells.get(i));
+        return ids;
     }
 
     private static class ViewHolder {
         public TextView label;
         public ImageView image;
+        // spell and favorite status the row is bound to
+        public Spell spell;
+        public boolean favorite;
 
         private ViewHolder(TextView label, ImageView image) {
             this.label = label;
@@ -151,13 +275,89 @@ public class SpellAdapter extends BaseAdapter implements Filterable, Iterable<Sp
     }
 
     /**
-     * Marks the spell at a given position as favorite or clears the favorite mark
+     * Appends spells to the end of the list. Intended for filling the adapter while
+     * spells are being loaded, so appended spells are shown regardless of the filters
+     * until the next filtering. Appended spells are marked favorite according to
+     * {@link #setFavoriteIds}.
+     *
+     * @param spells spells to append
+     */
+    public void appendSpells(List<Spell> spells) {
+        for (Spell spell : spells)
+            spell.setFavorite(favoriteIds.contains(spell.getId()));
+        originalValues.addAll(spells);
+        filteredValues.addAll(spells);
+        favorites = FavoriteSet.of(originalValues);
+        shownVersion++;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Marks the spell at a given position as favorite or clears the favorite mark. The
+     * list is not invalidated; the row of the spell has to be rebound with
+     * {@link #rebindRow} if it is shown.
      *
      * @param position position of the spell to change the favorite status
      * @param favorite whether spell should be favorite or not
      */
     public void setFavorite(int position, boolean favorite) {
-        getItem(position).setFavorite(favorite);
+        Spell spell = getItem(position);
+        spell.setFavorite(favorite);
+        favorites = favorites.with(Collections.binarySearch(originalValues, spell, Spell.NAME_COMPARATOR), favorite);
+        if (spell.getId() != Spell.NO_ID)
+            favoriteIds = favoriteIds.with(spell.getId(), favorite);
+    }
+
+    /**
+     * Sets the list view showing the adapter. When published filtering results insert or
+     * remove spells, the first visible spell is kept at the same offset from the top of the
+     * list view, or, if it is removed, the spell that takes its place; a list scrolled to the
+     * top stays at the top.
+     *
+     * @param listView list view showing the adapter, or null
+     */
+    public void setListView(ListView listView) {
+        this.listView = listView;
+    }
+
+    /**
+     * @return position of the first visible spell to keep in place, or -1 if the list is
+     * scrolled to the top or there is no list view
+     */
+    private int anchorPosition() {
+        if (listView == null || listView.getChildCount() == 0)
+            return -1;
+        int position = listView.getFirstVisiblePosition();
+        if (position == 0 && listView.getChildAt(0).getTop() >= listView.getPaddingTop())
+            return -1;
+        return position;
+    }
+
+    /**
+     * Binds the spell at a given position again to its row if the row is shown, without
+     * touching other rows
+     *
+     * @param listView list view showing the adapter
+     * @param position position of the spell
+     */
+    public void rebindRow(ListView listView, int position) {
+        int index = position - listView.getFirstVisiblePosition();
+        if (index >= 0 && index < listView.getChildCount())
+            getView(position, listView.getChildAt(index), listView);
+    }
+
+    /**
+     * Makes spells which stable ids are in favoriteIds favorite and makes all other
+     * spells unfavorite, including spells appended later. Takes effect on the favorite
+     * filter only on the next filtering.
+     *
+     * @param favoriteIds set of stable ids of spells which should be favorite
+     */
+    public void setFavoriteIds(FavoriteSet favoriteIds) {
+        this.favoriteIds = favoriteIds;
+        for (Spell spell : originalValues)
+            spell.setFavorite(favoriteIds.contains(spell.getId()));
+        favorites = FavoriteSet.of(originalValues);
         notifyDataSetChanged();
     }
 
@@ -166,6 +366,7 @@ public class SpellAdapter extends BaseAdapter implements Filterable, Iterable<Sp
      */
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
+        long start = LatencyHistogram.start();
         ViewHolder viewHolder;
         View rowView = convertView;
         if (rowView == null) {
@@ -176,21 +377,51 @@ public class SpellAdapter extends BaseAdapter implements Filterable, Iterable<Sp
             viewHolder = (ViewHolder) rowView.getTag();
 
         Spell spell = getItem(position);
-        viewHolder.label.setText(spell.getName());
-        if (spell.isFavorite())
+        boolean favorite = spell.isFavorite();
+        if (viewHolder.spell == spell && viewHolder.favorite == favorite) {
+            // the row is handed back for the spell it shows, e.g. after publishing a filtering
+            rowsUnchanged.incrementAndGet();
+            return rowView;
+        }
+        if (favorite)
             viewHolder.image.setImageResource(android.R.drawable.btn_star_big_on);
         else
             viewHolder.image.setImageResource(android.R.color.transparent);
-
-        try {
-            rowView.setBackground(spellBackgroundFactory.getBackground(context.getApplication(), spell.getClassLevelConstraints()));
-        } catch (Exception e) {
-            throw new RuntimeException("Error with spell " + spell, e);
+        viewHolder.favorite = favorite;
+
+        if (viewHolder.spell != spell) {
+            viewHolder.label.setText(spell.getName());
+            try {
+                rowView.setBackground(spellBackgroundFactory.getBackground(context, spell));
+            } catch (Exception e) {
+                throw new RuntimeException("Error with spell " + spell, e);
+            }
+            viewHolder.spell = spell;
         }
 
+        rowsBound.incrementAndGet();
+        rowBindHistogram.stop(start);
         return rowView;
     }
 
+    /**
+     * Filters the list with the current filters. Must be called on the UI thread. Every
+     * call takes a snapshot of the filters and favorites for the filtering thread and is
+     * tagged with a new generation number; results of earlier calls that have not been
+     * published yet are dropped, so only the latest result is shown. The result is diffed
+     * against the ids of the shown spells on the filtering thread, and the list is
+     * invalidated only if spells are inserted or removed; the diff tells where the first
+     * visible spell moved, see {@link #setListView}.
+     *
+     * @param filterString string constraining the spell list
+     */
+    public void filter(CharSequence filterString) {
+        filterGeneration++;
+        filterRequest = new FilterRequest(filterGeneration, filterSpec.withQuery(filterString).withFavorites(favorites),
+                shownVersion, itemIds(filteredValues), anchorPosition());
+        getFilter().filter(filterString);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -202,67 +433,101 @@ public class SpellAdapter extends BaseAdapter implements Filterable, Iterable<Sp
         return spellFilter;
     }
 
-    private class SpellFilter extends Filter {
+    /**
+     * Filtering request published to the filtering thread
+     */
+    private static class FilterRequest {
+        private final int generation;
+        private final FilterSpec spec;
+        private final int shownVersion;
+        private final int[] shownIds;
+        // first visible position when the request was made, or -1
+        private final int anchorPosition;
+
+        private FilterRequest(int generation, FilterSpec spec, int shownVersion, int[] shownIds, int anchorPosition) {
+            this.generation = generation;
+            this.spec = spec;
+            this.shownVersion = shownVersion;
+            this.shownIds = shownIds;
+            this.anchorPosition = anchorPosition;
+        }
+    }
 
-        private boolean matchLevelFilter(Spell spell) {
-            return Iterables.any(spell.getClassLevelConstraints(), new Predicate<ClassLevelConstraint>() {
-                @Override
-                public boolean apply(ClassLevelConstraint x) {
-                    return levelFilter.contains(x.getLevel());
-                }
-            });
+    /**
+     * Spells matched by a filtering request and their difference from the spells shown
+     * when the request was made: the numbers of inserted and removed spells and the new
+     * position of the first visible spell
+     */
+    private static class FilterResult implements IdListDiff.Callback {
+        private final int generation;
+        private final List<Spell> spells;
+        private final int shownVersion;
+        private final int anchorPosition;
+        private final IdListDiff.Anchor anchor;
+        private int inserted;
+        private int removed;
+
+        private FilterResult(int generation, List<Spell> spells, int shownVersion, int anchorPosition) {
+            this.generation = generation;
+            this.spells = spells;
+            this.shownVersion = shownVersion;
+            this.anchorPosition = anchorPosition;
+            this.anchor = anchorPosition < 0 ? null : new IdListDiff.Anchor(anchorPosition);
         }
 
-        private boolean matchClassNameFilter(Spell spell) {
-            return Iterables.any(spell.getClassLevelConstraints(), new Predicate<ClassLevelConstraint>() {
-                @Override
-                public boolean apply(ClassLevelConstraint x) {
-                    return classNamesFilter.contains(x.getClassName());
-                }
-            });
+        @Override
+        public void onInserted(int position, int count) {
+            inserted += count;
+            if (anchor != null)
+                anchor.onInserted(position, count);
         }
 
-        private boolean matchFavOnlyFilter(Spell spell) {
-            if (!showFavOnly)
-                return true;
-            return  spell.isFavorite();
+        @Override
+        public void onRemoved(int position, int count) {
+            removed += count;
+            if (anchor != null)
+                anchor.onRemoved(position, count);
         }
+    }
+
+    private class SpellFilter extends Filter {
 
         @Override
         protected FilterResults performFiltering(CharSequence constraint) {
+            // the latest request; the constraint is part of its spec
+            FilterRequest request = filterRequest;
             FilterResults results = new FilterResults();
-            List<Spell> newValues = new ArrayList<>();
-            if (constraint == null)
-                constraint = "";
-            final String lowerFilterString = constraint.toString().toLowerCase();
-            for (Spell spell : originalValues) {
-                if (spell.getName().toLowerCase().contains(lowerFilterString)) {
-                    if (matchFavOnlyFilter(spell) && matchClassNameFilter(spell) && matchLevelFilter(spell))
-                        newValues.add(spell);
-                }
-            }
-
-            Collections.sort(newValues, new Comparator<Spell>() {
-                @Override
-                public int compare(Spell lhs, Spell rhs) {
-                    int leftBestFit = lhs.getName().toLowerCase().startsWith(lowerFilterString) ? 0 : 1;
-                    int rightBestFit = rhs.getName().toLowerCase().startsWith(lowerFilterString) ? 0 : 1;
-                    int result = leftBestFit - rightBestFit;
-                    if (result != 0)
-                        return result;
-                    return lhs.getName().compareTo(rhs.getName());
-                }
-            });
-            results.values = newValues;
+            List<Spell> newValues = search.search(request.spec);
+            FilterResult result = new FilterResult(request.generation, newValues, request.shownVersion,
+                    request.anchorPosition);
+            IdListDiff.diff(request.shownIds, itemIds(newValues), result);
+            results.values = result;
             results.count = newValues.size();
             return results;
         }
 
         @Override
         protected void publishResults(CharSequence constraint, FilterResults results) {
-            //noinspection unchecked
-            filteredValues = (List<Spell>) results.values;
-            notifyDataSetChanged();
+            FilterResult result = (FilterResult) results.values;
+            if (result.generation != filterGeneration)
+                return;
+            long start = LatencyHistogram.start();
+            filteredValues = result.spells;
+            if (result.shownVersion != shownVersion || result.inserted > 0 || result.removed > 0) {
+                rowsInserted.addAndGet(result.inserted);
+                rowsRemoved.addAndGet(result.removed);
+                // the anchor is valid if the diff is against the shown list and the list
+                // is not scrolled since the request
+                boolean anchored = result.anchor != null && result.shownVersion == shownVersion
+                        && listView != null && listView.getChildCount() > 0
+                        && listView.getFirstVisiblePosition() == result.anchorPosition;
+                int top = anchored ? listView.getChildAt(0).getTop() : 0;
+                shownVersion++;
+                notifyDataSetChanged();
+                if (anchored && !filteredValues.isEmpty())
+                    listView.setSelectionFromTop(Math.min(result.anchor.getPosition(), filteredValues.size() - 1), top);
+            }
+            publishHistogram.stop(start);
         }
     }
 
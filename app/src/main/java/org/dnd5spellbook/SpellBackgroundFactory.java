@@ -1,132 +1,157 @@
 package org.dnd5spellbook;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.graphics.Canvas;
-import android.graphics.Paint;
 import android.graphics.Rect;
-import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.PaintDrawable;
 
+import org.dnd5spellbook.core.ConstraintMaskCache;
+import org.dnd5spellbook.core.MetricsRegistry;
 import org.dnd5spellbook.domain.ClassLevelConstraint;
 import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.ConstraintMask;
+import org.dnd5spellbook.domain.Spell;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 /**
- * Generates background drawables for list items by given {@link org.dnd5spellbook.domain.ClassLevelConstraint}'s
+ * Generates background drawables for list items by given {@link org.dnd5spellbook.domain.ClassLevelConstraint}'s.
+ * Backgrounds are cached by the constraint masks of spells; the cache is bounded and
+ * evicts the least recently used backgrounds, also when the system is low on memory.
+ * Backgrounds draw their badges from a shared {@link BadgeAtlas}.
+ * <p/>
+ * Cache hits and misses are counted by the {@link MetricsRegistry#BACKGROUND_CACHE_HITS}
+ * and {@link MetricsRegistry#BACKGROUND_CACHE_MISSES} counters of the default registry.
  */
 public class SpellBackgroundFactory {
 
-    private final Map<Set<ClassLevelConstraint>, Drawable> cashe = new HashMap<>();
+    /**
+     * Maximal number of cached backgrounds, several screens of rows with distinct constraints
+     */
+    public static final int MAX_CACHED_BACKGROUNDS = ConstraintMaskCache.ROW_BACKGROUNDS_SIZE;
+
+    private final ConstraintMaskCache<Drawable> cache = new ConstraintMaskCache<>(MAX_CACHED_BACKGROUNDS);
+    private Context applicationContext;
+    private BadgeAtlas atlas;
+
+    private final ConstraintMaskCache.Factory<Drawable> drawableFactory = new ConstraintMaskCache.Factory<Drawable>() {
+        @Override
+        public Drawable create(ConstraintMask constraints) {
+            return new ClassInfoDrawable(applicationContext, constraints.toList());
+        }
+    };
 
     private static final Logger logger = Logger.getLogger(SpellBackgroundFactory.class.getName());
+    private static final AtomicLong cacheHits = MetricsRegistry.getDefault().counter(MetricsRegistry.BACKGROUND_CACHE_HITS);
+    private static final AtomicLong cacheMisses = MetricsRegistry.getDefault().counter(MetricsRegistry.BACKGROUND_CACHE_MISSES);
 
     /**
-     * Gets the background for a list item by looking at the constraints
+     * Gets the background for a list item by looking at the constraints of a spell.
+     * Doesn't allocate if the background is cached.
      *
-     * @param constraints the constraints that define the background
-     * @param context application context to get resources from
+     * @param context context to get resources from; only its application context is kept
+     * @param spell   the spell which constraints define the background
      * @return Drawable to be used as a background for a list item
      */
-    public Drawable getBackground(final Context context, Collection<ClassLevelConstraint> constraints) {
-        SortedSet<ClassLevelConstraint> constraintSet = new TreeSet<>(new Comparator<ClassLevelConstraint>() {
-            @Override
-            public int compare(ClassLevelConstraint lhs, ClassLevelConstraint rhs) {
-                int r = Integer.compare(lhs.getClassName().ordinal(), rhs.getClassName().ordinal());
-                if (r != 0)
-                    return r;
-                return Integer.compare(lhs.getLevel(), rhs.getLevel());
-            }
-        });
-        constraintSet.addAll(constraints);
+    public Drawable getBackground(Context context, Spell spell) {
+        if (applicationContext == null)
+            applicationContext = context.getApplicationContext();
+        long misses = cache.getMissCount();
+        Drawable background = cache.get(spell.getConstraintMaskLow(), spell.getConstraintMaskHigh(), drawableFactory);
+        if (cache.getMissCount() == misses)
+            cacheHits.incrementAndGet();
+        else
+            cacheMisses.incrementAndGet();
+        return background;
+    }
 
-        if (cashe.containsKey(constraintSet)) {
-            return cashe.get(constraintSet);
+    /**
+     * Releases cached backgrounds according to the memory pressure, see
+     * {@link ComponentCallbacks2#onTrimMemory}
+     *
+     * @param level memory trim level
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.clear();
+            atlas = null;
         }
+        else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+            cache.trimToSize(cache.getMaxSize() / 2);
+        logger.info("Trimmed backgrounds at level " + level + ": " + cache);
+    }
 
-        Drawable result = new ClassInfoDrawable(context, constraintSet);
-        cashe.put(constraintSet, result);
-        return result;
+    /**
+     * Gets the id of the color resource that represents a class
+     *
+     * @param className class to get the color for
+     * @return color resource id
+     */
+    public static int getColorId(ClassName className) {
+        switch (className) {
+            case BARD:
+                return R.color.bard;
+            case CLERIC:
+                return R.color.cleric;
+            case DRUID:
+                return R.color.druid;
+            case PALADIN:
+                return R.color.paladin;
+            case RANGER:
+                return R.color.ranger;
+            case SORCERER:
+                return R.color.sorcerer;
+            case WARLOCK:
+                return R.color.warlock;
+            case WIZARD:
+                return R.color.wizard;
+            default:
+                throw new IllegalArgumentException("No color for " + className);
+        }
     }
 
-    private final static Map<ClassName, Paint> classNamePaintMap = new HashMap<>();
-    private static Paint getPaintByClassName(ClassName className, Context context) {
-        if (classNamePaintMap.containsKey(className))
-            return classNamePaintMap.get(className);
-        Paint paint = new Paint();
-        paint.setColor(context.getResources().getColor(className.getColorId()));
-        paint.setStyle(Paint.Style.FILL);
-        paint.setAlpha(204);
-        classNamePaintMap.put(className, paint);
-        return paint;
+    /**
+     * Gets the badge atlas for a badge size, rendering it if the size changed
+     */
+    private BadgeAtlas getAtlas(int badgeSize, float padding) {
+        if (atlas == null || atlas.getBadgeSize() != badgeSize) {
+            atlas = new BadgeAtlas(applicationContext.getResources(), badgeSize, padding);
+            logger.info("Rendered " + atlas);
+        }
+        return atlas;
     }
 
     private class ClassInfoDrawable extends PaintDrawable {
-        private final float density;
-        private Collection<ClassLevelConstraint> constraints;
-        private List<Paint> paintList = new ArrayList<>();
-        private final Paint textPaint = new Paint();
-        private final Paint paintStroke = new Paint();
-        private float padding;
-        private int dpPadding;
-
-        private ClassInfoDrawable(Context context, Collection<ClassLevelConstraint> constraints) {
-            this.constraints = constraints;
-            this.density = context.getResources().getDisplayMetrics().density;
-            setDpPadding(3);
-            for (ClassLevelConstraint c: constraints) {
-                paintList.add(getPaintByClassName(c.getClassName(), context));
-            }
-            textPaint.setStyle(Paint.Style.FILL);
-            textPaint.setColor(context.getResources().getColor(R.color.level_text));
-            textPaint.setTextAlign(Paint.Align.CENTER);
-            textPaint.setAlpha(204);
-            paintStroke.setStyle(Paint.Style.STROKE);
-            paintStroke.setColor(context.getResources().getColor(R.color.level_square_outline));
-            paintStroke.setStrokeWidth(1 * density);
-            paintStroke.setTextAlign(Paint.Align.CENTER);
-            paintStroke.setAlpha(204);
-        }
+        private static final int DP_PADDING = 3;
 
-        public int getDpPadding() {
-            return dpPadding;
-        }
+        // bit indexes of the constraints, in the order of the badges from right to left
+        private final int[] bitIndexes;
+        private final int padding;
 
-        public void setDpPadding(int dpPadding) {
-            this.dpPadding = dpPadding;
-            this.padding = dpPadding * density;
+        private ClassInfoDrawable(Context context, List<ClassLevelConstraint> constraints) {
+            bitIndexes = new int[constraints.size()];
+            for (int i = 0; i < bitIndexes.length; i++) {
+                ClassLevelConstraint c = constraints.get(i);
+                bitIndexes[i] = ConstraintMask.bitIndex(c.getClassName(), c.getLevel());
+            }
+            padding = Math.round(DP_PADDING * context.getResources().getDisplayMetrics().density);
         }
 
         @Override
         public void draw(Canvas canvas) {
             final Rect boundsRect = getBounds();
-            float squareSize = boundsRect.height() - 2 * padding;
-            float left = boundsRect.width() - padding - squareSize;
-
-            Iterator<Paint> paintIterator = paintList.iterator();
-            Iterator<ClassLevelConstraint> constraintIterator = constraints.iterator();
-            textPaint.setTextSize((float) (squareSize * 0.75));
-            paintStroke.setTextSize((float) (squareSize * 0.75));
-            float textBaseline = (float) (boundsRect.bottom - squareSize * 0.25);
-            float roundRadius = density * 3;
-            while (paintIterator.hasNext() && constraintIterator.hasNext()) {
-                final RectF r = new RectF(left, padding, left + squareSize, padding + squareSize);
-                canvas.drawRoundRect(r, roundRadius, roundRadius, paintIterator.next());
-                canvas.drawRoundRect(r, roundRadius, roundRadius, paintStroke);
-
-                String text = String.valueOf(constraintIterator.next().getLevel());
-                canvas.drawText(text, r.centerX(), textBaseline, textPaint);
+            int squareSize = boundsRect.height() - 2 * padding;
+            if (squareSize < 1 || bitIndexes.length == 0)
+                return;
+            BadgeAtlas badges = getAtlas(squareSize, padding);
+            int left = boundsRect.right - padding - squareSize;
+            int top = boundsRect.top + padding;
+            for (int bitIndex : bitIndexes) {
+                badges.draw(canvas, bitIndex, left, top);
                 left -= squareSize + padding;
             }
         }
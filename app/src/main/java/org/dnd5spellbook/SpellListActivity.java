@@ -3,6 +3,7 @@ package org.dnd5spellbook;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.v4.app.FragmentActivity;
@@ -20,17 +21,35 @@ import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.ListView;
 import android.widget.PopupMenu;
+import android.widget.Toast;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 
+import org.dnd5spellbook.core.FacetFilter;
+import org.dnd5spellbook.core.FavoriteJournal;
+import org.dnd5spellbook.core.FullTextIndex;
+import org.dnd5spellbook.core.MetricsRegistry;
+import org.dnd5spellbook.core.SpellAttributes;
+import org.dnd5spellbook.core.SpellHeader;
+import org.dnd5spellbook.core.SpellRepository;
 import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.ConstraintMask;
+import org.dnd5spellbook.domain.School;
 import org.dnd5spellbook.domain.Spell;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -41,22 +60,33 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
     protected SpellListFragment spellListFragment;
     private EditText filterText;
     private CheckBox favOnlyCheckBox;
+    private CheckBox fullTextCheckBox;
 
     // keys for saving properties
     private static final String FILTER = "filter";
     private static final String SHOW_FAV_ONLY = "show_fav_only";
-    private static final String FAVORITES = "favorites";
+    private static final String FULL_TEXT = "full_text";
     private static final String CLASS_NAME_FILTER = "class_name_filter";
     private static final String LEVEL_FILTER = "level_filter";
+    private static final String SCHOOL_FILTER = "school_filter";
+    private static final String RITUAL_ONLY = "ritual_only";
+    private static final String WITHOUT_CONCENTRATION = "without_concentration";
+    private static final String COMPONENT_FILTER = "component_filter";
 
+    /**
+     * Name of the metrics report written on demand, see {@link #dumpMetrics()}
+     */
+    public static final String METRICS_FILE_NAME = "metrics.txt";
 
-    private static final Set<String> DEFAULT_FAVORITES = new HashSet<>();
     private static final Set<String> DEFAULT_CLASS_NAME_FILTER = ClassName.toStringSet(Arrays.asList(ClassName.values()));
     private static final Set<String> DEFAULT_LEVEL_FILTER = new HashSet<>();
+    private static final Set<String> DEFAULT_SCHOOL_FILTER = new HashSet<>();
 
     static {
-        for (int i = 0; i < 10; i++)
+        for (int i = 0; i < ConstraintMask.LEVEL_COUNT; i++)
             DEFAULT_LEVEL_FILTER.add(String.valueOf(i));
+        for (School school : School.values())
+            DEFAULT_SCHOOL_FILTER.add(school.name());
     }
 
     private static final Logger logger = Logger.getLogger(SpellListActivity.class.getName());
@@ -64,6 +94,8 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
 
     private FilterTextWatcher watcher = new FilterTextWatcher();
     private Button classFilterButton;
+    private Button levelFilterButton;
+    private Button facetFilterButton;
 
     @Override
     protected void onResume() {
@@ -74,12 +106,12 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
         filterText.setText(pref.getString(FILTER, ""));
 
         favOnlyCheckBox.setChecked(pref.getBoolean(SHOW_FAV_ONLY, false));
-
-        spellListFragment.setFavoriteSpellNames(pref.getStringSet(FAVORITES, DEFAULT_FAVORITES));
+        fullTextCheckBox.setChecked(pref.getBoolean(FULL_TEXT, false));
 
         Set<ClassName> classNames = ClassName.fromStringCollection(pref.getStringSet(CLASS_NAME_FILTER, DEFAULT_CLASS_NAME_FILTER));
         updateClassNameFilterMenuFromClassNames(classNames);
         updateLevelsFilterMenuFromStrings(pref.getStringSet(LEVEL_FILTER, DEFAULT_LEVEL_FILTER));
+        updateFacetFilterMenu(readFacetFilter(pref));
 
         performFilter();
         super.onResume();
@@ -92,9 +124,10 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
         SharedPreferences.Editor editor = pref.edit();
         editor.putString(FILTER, filterText.getText().toString());
         editor.putBoolean(SHOW_FAV_ONLY, favOnlyCheckBox.isChecked());
-        editor.putStringSet(FAVORITES, spellListFragment.getFavoriteSpellNames());
+        editor.putBoolean(FULL_TEXT, fullTextCheckBox.isChecked());
         editor.putStringSet(CLASS_NAME_FILTER, ClassName.toStringSet(getClassNamesFilter()));
         editor.putStringSet(LEVEL_FILTER, getLevelsFilterAsStrings());
+        writeFacetFilter(editor, getFacetFilter());
         editor.apply();
         filterText.removeTextChangedListener(watcher);
         spellListFragment = null;
@@ -113,6 +146,7 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
         }
         filterText = (EditText) findViewById(R.id.filterText);
         favOnlyCheckBox = (CheckBox) findViewById(R.id.favOnlyCheckBox);
+        fullTextCheckBox = (CheckBox) findViewById(R.id.fullTextCheckBox);
         classFilterButton = (Button) findViewById(R.id.classFilterButton);
 
         classNamesFilterPopupMenu = new PopupMenu(this, classFilterButton);
@@ -125,6 +159,26 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
         }
         classNamesFilterPopupMenu.setOnMenuItemClickListener(this);
 
+        levelFilterButton = (Button) findViewById(R.id.levelFilterButton);
+        levelsFilterPopupMenu = new PopupMenu(this, levelFilterButton);
+        levelsFilterPopupMenu.getMenuInflater().inflate(R.menu.spell_list_level_filter, levelsFilterPopupMenu.getMenu());
+        for (int level = 0; level < ConstraintMask.LEVEL_COUNT; level++) {
+            String title = level == 0 ? "cantrips" : "level " + level;
+            MenuItem menuItem = levelsFilterPopupMenu.getMenu().add(R.id.levels_group, level, Menu.NONE, title);
+            menuItem.setCheckable(true);
+        }
+        levelsFilterPopupMenu.setOnMenuItemClickListener(this);
+
+        facetFilterButton = (Button) findViewById(R.id.facetFilterButton);
+        facetsFilterPopupMenu = new PopupMenu(this, facetFilterButton);
+        facetsFilterPopupMenu.getMenuInflater().inflate(R.menu.spell_list_facet_filter, facetsFilterPopupMenu.getMenu());
+        for (School school : School.values()) {
+            // schools go before the property items
+            MenuItem menuItem = facetsFilterPopupMenu.getMenu().add(R.id.schools_group, school.ordinal(), school.ordinal(), school.getDisplayName());
+            menuItem.setCheckable(true);
+        }
+        facetsFilterPopupMenu.setOnMenuItemClickListener(this);
+
         setTitle("Dnd 5 spell list");
     }
 
@@ -148,15 +202,68 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
     }
 
     /**
-     * TODO: Updates level filter popup menu based on values read from preferences
+     * Updates level filter popup menu by checking only those items that correspond to
+     * levels read from preferences
+     *
+     * @param values set of levels as strings, see {@link #getLevelsFilterAsStrings()}
      */
     private void updateLevelsFilterMenuFromStrings(Set<String> values) {
-        for (String s : values) {
-            int level = Integer.valueOf(s);
-            // TODO: update the menu
+        Set<Integer> levels = new HashSet<>();
+        for (String s : values)
+            levels.add(Integer.valueOf(s));
+        for (int i = 0; i < levelsFilterPopupMenu.getMenu().size(); i++) {
+            MenuItem item = levelsFilterPopupMenu.getMenu().getItem(i);
+            item.setChecked(levels.contains(item.getItemId()));
         }
     }
 
+    /**
+     * Updates facet filter popup menu by checking only those items that correspond to
+     * a given filter
+     *
+     * @param facetFilter filter which defines what items should be checked
+     */
+    private void updateFacetFilterMenu(FacetFilter facetFilter) {
+        Menu menu = facetsFilterPopupMenu.getMenu();
+        for (int i = 0; i < menu.size(); i++) {
+            MenuItem item = menu.getItem(i);
+            if (item.getGroupId() == R.id.schools_group)
+                item.setChecked(facetFilter.getSchools().contains(School.values()[item.getItemId()]));
+        }
+        menu.findItem(R.id.ritualOnlyItem).setChecked(facetFilter.isRitualOnly());
+        menu.findItem(R.id.withoutConcentrationItem).setChecked(facetFilter.isWithoutConcentration());
+        menu.findItem(R.id.verbalItem).setChecked((facetFilter.getComponents() & SpellHeader.VERBAL) != 0);
+        menu.findItem(R.id.somaticItem).setChecked((facetFilter.getComponents() & SpellHeader.SOMATIC) != 0);
+        menu.findItem(R.id.materialItem).setChecked((facetFilter.getComponents() & SpellHeader.MATERIAL) != 0);
+    }
+
+    /**
+     * Reads the facet filter from preferences
+     */
+    private static FacetFilter readFacetFilter(SharedPreferences pref) {
+        Set<School> schools = EnumSet.noneOf(School.class);
+        for (String s : pref.getStringSet(SCHOOL_FILTER, DEFAULT_SCHOOL_FILTER))
+            schools.add(School.valueOf(s));
+        return FacetFilter.ANY
+                .withSchools(schools)
+                .withRitualOnly(pref.getBoolean(RITUAL_ONLY, false))
+                .withoutConcentration(pref.getBoolean(WITHOUT_CONCENTRATION, false))
+                .withComponents(pref.getInt(COMPONENT_FILTER, FacetFilter.ALL_COMPONENTS));
+    }
+
+    /**
+     * Writes the facet filter to preferences
+     */
+    private static void writeFacetFilter(SharedPreferences.Editor editor, FacetFilter facetFilter) {
+        Set<String> schools = new HashSet<>();
+        for (School school : facetFilter.getSchools())
+            schools.add(school.name());
+        editor.putStringSet(SCHOOL_FILTER, schools);
+        editor.putBoolean(RITUAL_ONLY, facetFilter.isRitualOnly());
+        editor.putBoolean(WITHOUT_CONCENTRATION, facetFilter.isWithoutConcentration());
+        editor.putInt(COMPONENT_FILTER, facetFilter.getComponents());
+    }
+
     /**
      * Performs ListFragment filtering according to the state of the views
      */
@@ -167,8 +274,10 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
         Set<ClassName> classNamesFilter = getClassNamesFilter();
         logger.info("Class names to filter: " + classNamesFilter.toString());
         Set<Integer> levelFilter = getLevelsFilter();
+        FacetFilter facetFilter = getFacetFilter();
 
-        spellListFragment.filter(filterText.getText(), favOnlyCheckBox.isChecked(), classNamesFilter, levelFilter);
+        spellListFragment.filter(filterText.getText(), fullTextCheckBox.isChecked(),
+                favOnlyCheckBox.isChecked(), classNamesFilter, levelFilter, facetFilter);
     }
 
     /**
@@ -187,8 +296,8 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
     }
 
     /**
-     * TODO: Returns a set of levels as string values based on checked popup menu items. Currently,
-     * returns fixed set. Intended for serialization.
+     * Returns a set of levels as string values based on checked popup menu items.
+     * Intended for serialization.
      */
     private Set<String> getLevelsFilterAsStrings() {
         Set<String> result = new HashSet<>();
@@ -198,17 +307,43 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
     }
 
     /**
-     * TODO: Returns a set of levels based on checked popup menu items. Currently, returns fixed
-     * set.
+     * Returns a set of levels based on checked popup menu items
      */
     private Set<Integer> getLevelsFilter() {
         Set<Integer> levelFilter = new HashSet<>();
-        // TODO: level filter logic
-        for (int i = 0; i < 10; i++)
-            levelFilter.add(i);
+        for (int i = 0; i < levelsFilterPopupMenu.getMenu().size(); i++) {
+            MenuItem item = levelsFilterPopupMenu.getMenu().getItem(i);
+            if (item.isChecked())
+                levelFilter.add(item.getItemId());
+        }
         return levelFilter;
     }
 
+    /**
+     * Returns a facet filter based on checked popup menu items
+     */
+    private FacetFilter getFacetFilter() {
+        Menu menu = facetsFilterPopupMenu.getMenu();
+        Set<School> schools = EnumSet.noneOf(School.class);
+        for (int i = 0; i < menu.size(); i++) {
+            MenuItem item = menu.getItem(i);
+            if (item.getGroupId() == R.id.schools_group && item.isChecked())
+                schools.add(School.values()[item.getItemId()]);
+        }
+        int components = 0;
+        if (menu.findItem(R.id.verbalItem).isChecked())
+            components |= SpellHeader.VERBAL;
+        if (menu.findItem(R.id.somaticItem).isChecked())
+            components |= SpellHeader.SOMATIC;
+        if (menu.findItem(R.id.materialItem).isChecked())
+            components |= SpellHeader.MATERIAL;
+        return FacetFilter.ANY
+                .withSchools(schools)
+                .withRitualOnly(menu.findItem(R.id.ritualOnlyItem).isChecked())
+                .withoutConcentration(menu.findItem(R.id.withoutConcentrationItem).isChecked())
+                .withComponents(components);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the menu; this adds items to the action bar if it is present.
@@ -225,9 +360,39 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
         if (id == R.id.action_settings) {
             return true;
         }
+        if (id == R.id.action_dump_metrics) {
+            dumpMetrics();
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Writes the report of the default {@link MetricsRegistry} to the log and to
+     * {@link #METRICS_FILE_NAME} in the external files directory of the application,
+     * where it can be pulled from a device, or in the internal files directory if there
+     * is no external storage
+     */
+    private void dumpMetrics() {
+        String report = MetricsRegistry.getDefault().report();
+        for (String line : report.split("\n"))
+            logger.info(line);
+
+        File dir = getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : getFilesDir(), METRICS_FILE_NAME);
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            try {
+                writer.write(report);
+            } finally {
+                writer.close();
+            }
+            Toast.makeText(this, "Metrics written to " + file, Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Can't write metrics to " + file, e);
+        }
+    }
+
     /**
      * Called when "fav only" checkbox state is changed
      *
@@ -237,7 +402,18 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
         performFilter();
     }
 
+    /**
+     * Called when "text" checkbox state is changed
+     *
+     * @param view the checkbox that has been clicked
+     */
+    public void onFullTextClicked(View view) {
+        performFilter();
+    }
+
     private PopupMenu classNamesFilterPopupMenu;
+    private PopupMenu levelsFilterPopupMenu;
+    private PopupMenu facetsFilterPopupMenu;
 
     /**
      * Called when classes filer menu is to be showed
@@ -248,6 +424,25 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
         classNamesFilterPopupMenu.show();
     }
 
+    /**
+     * Called when levels filter menu is to be showed
+     *
+     * @param view the clicked button
+     */
+    public void onLevelsFilter(View view) {
+        levelsFilterPopupMenu.show();
+    }
+
+    /**
+     * Called when the menu of filters by school, ritual, concentration and components
+     * is to be showed
+     *
+     * @param view the clicked button
+     */
+    public void onFacetsFilter(View view) {
+        facetsFilterPopupMenu.show();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -281,13 +476,20 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
     /**
      * A main fragment containing a list of spells
      */
-    public static class SpellListFragment extends ListFragment implements SwipeListViewTouchListener.OnSwipeCallback {
+    public static class SpellListFragment extends ListFragment implements SwipeListViewTouchListener.OnSwipeCallback, SpellLoadTask.Listener {
 
         public static final String TAG = "SpellListFragment";
         private static final Logger logger = Logger.getLogger(SpellListFragment.class.getName());
 
         private SpellAdapter adapter;
-        private SpellLoader spellLoader = new SpellLoader();
+        private SpellLoadTask loadTask;
+        private boolean loaded;
+        private FilterScheduler filterScheduler;
+        private FavoriteJournal favoriteJournal;
+
+        // the latest filter request; performed once loading completes if it is requested
+        // while spells are being loaded, and again when spells change
+        private Runnable latestFilter;
 
         public SpellListFragment() {
 
@@ -303,10 +505,127 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
         public void onActivityCreated(@Nullable Bundle savedInstanceState) {
             super.onActivityCreated(savedInstanceState);
 
-            adapter = new SpellAdapter(getActivity(), spellLoader.readSpellListFromAssets(getActivity()));
+            SpellbookApplication application = (SpellbookApplication) getActivity().getApplication();
+            SpellRepository repository = application.getRepository();
+            adapter = new SpellAdapter(getActivity(), new ArrayList<Spell>(), repository);
+            filterScheduler = new FilterScheduler();
             setListAdapter(adapter);
+            adapter.setListView(getListView());
+            setListShown(false);
 
             new SwipeListViewTouchListener(getListView(), this);
+
+            if (repository.isLoaded() && application.isFavoriteJournalOpened()) {
+                // recreated, e.g. on rotation: spells and favorites are already in memory
+                setFavoriteJournal(application.openFavoriteJournal());
+                adapter.appendSpells(repository.getSpells());
+                onSpellsLoaded(repository.getSpells(), repository.getFullTextIndex(), repository.getAttributes());
+                return;
+            }
+            loadTask = new SpellLoadTask(application, this);
+            loadTask.execute();
+        }
+
+        /**
+         * Looks for changed homebrew packs when the user comes back to the application,
+         * since they may be copied to the application storage while it is in background.
+         * Resuming after a rotation or after a spell is shown doesn't look for them.
+         */
+        @Override
+        public void onResume() {
+            super.onResume();
+            SpellbookApplication application = (SpellbookApplication) getActivity().getApplication();
+            // a finished refresh that found no changes doesn't report back
+            if (loaded && (loadTask == null || loadTask.getStatus() == AsyncTask.Status.FINISHED)
+                    && application.consumeUiHidden()) {
+                loadTask = new SpellLoadTask(application, this, true);
+                loadTask.execute();
+            }
+        }
+
+        /**
+         * Compacts the favorites journal in background while the list is not shown
+         */
+        @Override
+        public void onPause() {
+            super.onPause();
+            if (favoriteJournal != null)
+                favoriteJournal.requestCompaction();
+        }
+
+        @Override
+        public void onDestroyView() {
+            if (loadTask != null)
+                loadTask.cancel(false);
+            filterScheduler.cancel();
+            super.onDestroyView();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onFavoritesOpened(FavoriteJournal favoriteJournal) {
+            if (getView() == null)
+                return;
+            setFavoriteJournal(favoriteJournal);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onSpellsLoading(List<Spell> spells) {
+            if (getView() == null)
+                return;
+            adapter.appendSpells(spells);
+            setListShown(true);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onSpellsLoaded(List<Spell> spells, FullTextIndex fullTextIndex, SpellAttributes attributes) {
+            if (getView() == null)
+                return;
+            logger.info("Loaded " + spells.size() + " spells");
+            adapter.setFullTextIndex(fullTextIndex);
+            adapter.setAttributes(attributes);
+            loaded = true;
+            loadTask = null;
+            setListShown(true);
+            if (latestFilter != null)
+                latestFilter.run();
+        }
+
+        /**
+         * Replaces the adapter with one over the changed spells, keeping favorites and
+         * the latest filter
+         */
+        @Override
+        public void onSpellsChanged(List<Spell> spells, FullTextIndex fullTextIndex, SpellAttributes attributes) {
+            loadTask = null;
+            if (getView() == null)
+                return;
+            logger.info("Spells changed, " + spells.size() + " spells");
+            adapter = new SpellAdapter(getActivity(), new ArrayList<Spell>(), SpellbookApplication.getRepository(getActivity()));
+            if (favoriteJournal != null)
+                adapter.setFavoriteIds(favoriteJournal.getFavoriteIds());
+            adapter.appendSpells(spells);
+            adapter.setFullTextIndex(fullTextIndex);
+            adapter.setAttributes(attributes);
+            setListAdapter(adapter);
+            adapter.setListView(getListView());
+            if (latestFilter != null)
+                filterScheduler.schedule(latestFilter);
+        }
+
+        /**
+         * @return true if all spells are loaded and the list is ready for filtering
+         */
+        public boolean isLoaded() {
+            return loaded;
         }
 
         @Override
@@ -317,7 +636,11 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
 
         @Override
         public void onSwipeLeft(ListView listView, int position) {
-            adapter.setFavorite(position, !adapter.getItem(position).isFavorite());
+            Spell spell = adapter.getItem(position);
+            adapter.setFavorite(position, !spell.isFavorite());
+            adapter.rebindRow(listView, position);
+            if (favoriteJournal != null && spell.getId() != Spell.NO_ID)
+                favoriteJournal.setFavorite(spell.getId(), spell.isFavorite());
         }
 
         @Override
@@ -327,43 +650,51 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
 
         /**
          * Filters the displayed list of spells retaining only those which contain
-         * {@code filterString}.
+         * {@code filterString}. Requests made in quick succession are coalesced by
+         * a {@link FilterScheduler}, so only the latest one is performed. If spells
+         * are still being loaded, the latest request is performed as soon as loading
+         * completes.
          *
          * @param filterString    string constraining the displayed spell list
+         * @param fullText        if true, filterString is searched in spell descriptions
+         *                        rather than in spell names
          * @param showFavOnly     if true, filters out all nonfavorite items
          * @param classNameFilter set of class names that limit the spell list items
          * @param levelFilter     set of levels that limit te spell list items
+         * @param facetFilter     filter by spell properties that limits the spell list items
          */
-        public void filter(CharSequence filterString, boolean showFavOnly, Set<ClassName> classNameFilter, Set<Integer> levelFilter) {
-            adapter.setShowFavOnly(showFavOnly);
-            adapter.setClassNamesFilter(classNameFilter);
-            adapter.setLevelFilter(levelFilter);
-            adapter.getFilter().filter(filterString);
-        }
-
-        /**
-         * Gets a set of names of currently favorite spells
-         *
-         * @return set of current favorite spell names
-         */
-        public Set<String> getFavoriteSpellNames() {
-            HashSet<String> favorites = new HashSet<>();
-            for (Spell spell : adapter)
-                if (spell.isFavorite())
-                    favorites.add(spell.getName());
-            return favorites;
+        public void filter(CharSequence filterString, final boolean fullText, final boolean showFavOnly, final Set<ClassName> classNameFilter, final Set<Integer> levelFilter,
+                           final FacetFilter facetFilter) {
+            final String filterStringCopy = filterString.toString();
+            Runnable request = new Runnable() {
+                @Override
+                public void run() {
+                    adapter.setFullTextSearch(fullText);
+                    adapter.setShowFavOnly(showFavOnly);
+                    adapter.setClassNamesFilter(classNameFilter);
+                    adapter.setLevelFilter(levelFilter);
+                    adapter.setFacetFilter(facetFilter);
+                    adapter.filter(filterStringCopy);
+                }
+            };
+            latestFilter = request;
+            if (loaded)
+                filterScheduler.schedule(request);
         }
 
         /**
-         * Makes spells which names are in favoriteSpellNames favorite and makes all
-         * other spells unfavorite. {@link #filter} method must be called in order to
-         * ensure that only rights items are shown after the change.
+         * Sets the journal that keeps favorite spells, making spells favorite according
+         * to it. Favorite changes made in the list are journaled from now on.
+         * {@link #filter} method must be called in order to ensure that only rights items
+         * are shown after the change. If spells are still being loaded, the favorites are
+         * applied to spells as they are loaded.
          *
-         * @param favoriteSpellNames set of spell names which should be favorite
+         * @param favoriteJournal journal of favorites, or null to keep favorites in memory only
          */
-        public void setFavoriteSpellNames(Set<String> favoriteSpellNames) {
-            for (Spell spell : adapter)
-                spell.setFavorite(favoriteSpellNames.contains(spell.getName()));
+        public void setFavoriteJournal(FavoriteJournal favoriteJournal) {
+            this.favoriteJournal = favoriteJournal;
+            if (favoriteJournal != null)
+                adapter.setFavoriteIds(favoriteJournal.getFavoriteIds());
         }
 
         /**
@@ -375,6 +706,7 @@ public class SpellListActivity extends FragmentActivity implements PopupMenu.OnM
         private void gotoSpellActivity(int position) {
             Intent intent = new Intent(getActivity(), SpellActivity.class);
             intent.putExtra(SpellActivity.SPELL_NAME, adapter.getItem(position).getName());
+            intent.putExtra(SpellActivity.SPELL_ID, adapter.getItem(position).getId());
             startActivity(intent);
         }
     }
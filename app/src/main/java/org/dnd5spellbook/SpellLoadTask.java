@@ -0,0 +1,154 @@
+package org.dnd5spellbook;
+
+import android.os.AsyncTask;
+
+import org.dnd5spellbook.core.FavoriteJournal;
+import org.dnd5spellbook.core.FullTextIndex;
+import org.dnd5spellbook.core.SpellAttributes;
+import org.dnd5spellbook.core.SpellCatalogue;
+import org.dnd5spellbook.core.SpellLoader;
+import org.dnd5spellbook.core.SpellRepository;
+import org.dnd5spellbook.domain.Spell;
+
+import java.util.List;
+
+/**
+ * Loads spells of the application repository on a background thread and publishes them
+ * in portions, so that the first screen of the spell list is shown before all spells are
+ * read. The favorites journal of the application is opened before spells are read, see
+ * {@link SpellbookApplication#openFavoriteJournal()}, so that favorites are known when
+ * the first portion is shown.
+ * The full text index of spell descriptions and the spell attributes are read after
+ * all spells are read. If the spells are loaded by someone else meanwhile, they are
+ * published in one portion.
+ * <p/>
+ * A refreshing task looks for changed homebrew packs instead, see
+ * {@link SpellRepository#refresh()}, and reports the new catalogue only if they changed.
+ */
+public class SpellLoadTask extends AsyncTask<Void, List<Spell>, SpellCatalogue> {
+
+    /**
+     * Number of spells that are published first; roughly a screen of the spell list
+     */
+    public static final int FIRST_CHUNK_SIZE = 32;
+
+    /**
+     * Receives loaded spells on the UI thread
+     */
+    public interface Listener {
+        /**
+         * Called on the UI thread before the first portion of spells when the favorites
+         * journal is opened
+         *
+         * @param favoriteJournal journal of favorites, or null if the favorites can't be read
+         */
+        void onFavoritesOpened(FavoriteJournal favoriteJournal);
+
+        /**
+         * Called on the UI thread for every loaded portion of spells. Portions come in
+         * alphabetical order.
+         *
+         * @param spells next portion of spells
+         */
+        void onSpellsLoading(List<Spell> spells);
+
+        /**
+         * Called on the UI thread when all spells are loaded
+         *
+         * @param spells        list of all spells in alphabetical order
+         * @param fullTextIndex full text index of spell descriptions, or null if it
+         *                      is not available
+         * @param attributes    attributes of the spells in the same order, or null if they
+         *                      are not available
+         */
+        void onSpellsLoaded(List<Spell> spells, FullTextIndex fullTextIndex, SpellAttributes attributes);
+
+        /**
+         * Called on the UI thread when a refreshing task has found changed packs and all
+         * spells are loaded again. The spells are new objects without favorite marks.
+         *
+         * @param spells        list of all spells in alphabetical order
+         * @param fullTextIndex full text index of spell descriptions, or null if it
+         *                      is not available
+         * @param attributes    attributes of the spells in the same order, or null if they
+         *                      are not available
+         */
+        void onSpellsChanged(List<Spell> spells, FullTextIndex fullTextIndex, SpellAttributes attributes);
+    }
+
+    private final SpellbookApplication application;
+    private final SpellRepository repository;
+    private final Listener listener;
+    private final boolean refresh;
+    // written on the background thread only
+    private boolean published;
+    // written on the background thread before the first portion is published
+    private FavoriteJournal favoriteJournal;
+    // accessed on the UI thread only
+    private boolean favoritesReported;
+
+    /**
+     * Creates a task; call {@link #execute} to start loading
+     *
+     * @param application application to load spells and favorites of
+     * @param listener    receiver of the loaded spells
+     */
+    public SpellLoadTask(SpellbookApplication application, Listener listener) {
+        this(application, listener, false);
+    }
+
+    /**
+     * Creates a task; call {@link #execute} to start loading or refreshing. A refreshing
+     * task doesn't open the favorites journal.
+     *
+     * @param application application to load spells and favorites of
+     * @param listener    receiver of the loaded spells
+     * @param refresh     if true, the loaded spells are refreshed rather than loaded
+     */
+    public SpellLoadTask(SpellbookApplication application, Listener listener, boolean refresh) {
+        this.application = application;
+        this.repository = application.getRepository();
+        this.listener = listener;
+        this.refresh = refresh;
+    }
+
+    @Override
+    protected SpellCatalogue doInBackground(Void... params) {
+        if (refresh)
+            return repository.refresh() ? repository.getCatalogue() : null;
+        favoriteJournal = application.openFavoriteJournal();
+        List<Spell> spells = repository.load(FIRST_CHUNK_SIZE, new SpellLoader.Callback() {
+            @Override
+            public void onSpellsRead(List<Spell> spells) {
+                published = true;
+                //noinspection unchecked
+                publishProgress(spells);
+            }
+        });
+        if (!published)
+            //noinspection unchecked
+            publishProgress(spells);
+        // taken here, since a refresh may replace the catalogue until the task is done
+        return repository.getCatalogue();
+    }
+
+    @Override
+    protected void onProgressUpdate(List<Spell>... values) {
+        if (!favoritesReported) {
+            favoritesReported = true;
+            listener.onFavoritesOpened(favoriteJournal);
+        }
+        for (List<Spell> spells : values)
+            listener.onSpellsLoading(spells);
+    }
+
+    @Override
+    protected void onPostExecute(SpellCatalogue catalogue) {
+        if (catalogue == null)
+            return;
+        if (refresh)
+            listener.onSpellsChanged(catalogue.getSpells(), catalogue.getFullTextIndex(), catalogue.getAttributes());
+        else
+            listener.onSpellsLoaded(catalogue.getSpells(), catalogue.getFullTextIndex(), catalogue.getAttributes());
+    }
+}
@@ -0,0 +1,189 @@
+package org.dnd5spellbook;
+
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.dnd5spellbook.core.FavoriteJournal;
+import org.dnd5spellbook.core.FavoriteSet;
+import org.dnd5spellbook.core.FavoriteStore;
+import org.dnd5spellbook.core.PackDirectory;
+import org.dnd5spellbook.core.SpellIdRegistry;
+import org.dnd5spellbook.core.SpellLoader;
+import org.dnd5spellbook.core.SpellRepository;
+import org.dnd5spellbook.domain.Spell;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Application that keeps the spell repository and the favorites journal for the whole
+ * process, so that spells and favorites are read once and survive recreation of
+ * activities and fragments
+ */
+public class SpellbookApplication extends Application {
+
+    /**
+     * Name of the directory of homebrew spell packs in the application storage, see
+     * {@link PackDirectory}
+     */
+    public static final String PACKS_DIRECTORY_NAME = "packs";
+
+    /**
+     * Name of the favorites snapshot in the application files directory, see {@link FavoriteStore}
+     */
+    public static final String FAVORITES_FILE_NAME = "favorites.bin";
+
+    /**
+     * Name of the favorites journal in the application files directory, see {@link FavoriteJournal}
+     */
+    public static final String FAVORITES_JOURNAL_FILE_NAME = "favorites.journal";
+
+    // favorite spell names, kept in the preferences of the spell list activity by earlier
+    // versions; migrated when the journal is opened
+    private static final String LEGACY_PREFERENCES_NAME = "SpellListActivity";
+    private static final String LEGACY_FAVORITES = "favorites";
+
+    private static final Logger logger = Logger.getLogger(SpellbookApplication.class.getName());
+
+    private SpellRepository repository;
+
+    // not guarded by this, so that opening the journal doesn't block getRepository
+    private final Object favoritesLock = new Object();
+    // guarded by favoritesLock; the journal is null if the favorites can't be read
+    private FavoriteJournal favoriteJournal;
+    private boolean favoritesOpened;
+
+    // set on the UI thread when the whole user interface is hidden
+    private boolean uiHidden;
+
+    /**
+     * Gets the spell repository of the application
+     *
+     * @param context any context of the application
+     * @return spell repository shared by the whole process
+     */
+    public static SpellRepository getRepository(Context context) {
+        return ((SpellbookApplication) context.getApplicationContext()).getRepository();
+    }
+
+    /**
+     * Gets the spell repository of the shipped bundle and homebrew packs, creating it on
+     * first use. Nothing is read until spells are requested from the repository.
+     *
+     * @return spell repository shared by the whole process
+     */
+    public synchronized SpellRepository getRepository() {
+        if (repository == null)
+            repository = new SpellRepository(new SpellLoader(new AndroidAssetSource(getAssets()),
+                    Constants.DND_SPELLS_ASSETS_PATH), new PackDirectory(getPacksDirectory()));
+        return repository;
+    }
+
+    /**
+     * Gets the favorites journal of the application, opening it on first call. The
+     * journal is kept open for the whole process; every change is synced by its writer
+     * thread, so it is never closed.
+     * <p/>
+     * Opening reads the snapshot and replays the journal; if there are no favorites files
+     * yet, favorite spell names kept in preferences by earlier versions are converted to
+     * ids and written to the snapshot first. So the first call must be made on a background
+     * thread, see {@link SpellLoadTask}; once {@link #isFavoriteJournalOpened()} returns
+     * true, calls return at once.
+     *
+     * @return favorites journal, or null if the favorites can't be read
+     */
+    public FavoriteJournal openFavoriteJournal() {
+        synchronized (favoritesLock) {
+            if (!favoritesOpened) {
+                favoriteJournal = readFavoriteJournal();
+                favoritesOpened = true;
+            }
+            return favoriteJournal;
+        }
+    }
+
+    /**
+     * @return true if the favorites journal is opened, or failed to open, so that
+     * {@link #openFavoriteJournal()} doesn't block
+     */
+    public boolean isFavoriteJournalOpened() {
+        synchronized (favoritesLock) {
+            return favoritesOpened;
+        }
+    }
+
+    private FavoriteJournal readFavoriteJournal() {
+        FavoriteStore store = new FavoriteStore(new File(getFilesDir(), FAVORITES_FILE_NAME));
+        File journalFile = new File(getFilesDir(), FAVORITES_JOURNAL_FILE_NAME);
+        SharedPreferences pref = getSharedPreferences(LEGACY_PREFERENCES_NAME, Context.MODE_PRIVATE);
+        try {
+            if (!store.exists() && !journalFile.exists() && pref.contains(LEGACY_FAVORITES)) {
+                SpellIdRegistry registry = new SpellLoader(new AndroidAssetSource(getAssets()),
+                        Constants.DND_SPELLS_ASSETS_PATH).readSpellIdRegistry();
+                FavoriteSet favoriteIds = FavoriteSet.EMPTY;
+                for (String name : pref.getStringSet(LEGACY_FAVORITES, new HashSet<String>()))
+                    if (registry.getId(name) != Spell.NO_ID)
+                        favoriteIds = favoriteIds.with(registry.getId(name), true);
+                store.write(favoriteIds);
+                pref.edit().remove(LEGACY_FAVORITES).apply();
+                logger.info("Migrated " + favoriteIds.size() + " favorites to " + store);
+            }
+            return FavoriteJournal.open(store, journalFile);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Can't read favorites", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return directory of homebrew spell packs; it is in the external files directory,
+     * where packs can be copied from a computer, if there is one, and in the internal
+     * files directory otherwise
+     */
+    public File getPacksDirectory() {
+        File filesDir = getExternalFilesDir(null);
+        return new File(filesDir != null ? filesDir : getFilesDir(), PACKS_DIRECTORY_NAME);
+    }
+
+    /**
+     * Tells whether the user has left the application since the last call, so that what
+     * may change while the application is in background, such as homebrew packs, is
+     * checked again on resume rather than on every resume. Must be called on the UI
+     * thread. The user interface is reported hidden from API level 14 on.
+     *
+     * @return true once after the whole user interface of the application was hidden
+     */
+    public boolean consumeUiHidden() {
+        boolean hidden = uiHidden;
+        uiHidden = false;
+        return hidden;
+    }
+
+    /**
+     * Releases cached row backgrounds according to the memory pressure and, when memory
+     * is low, the derived caches of the spell repository. Loaded spells are kept. Notes
+     * that the user interface is hidden, see {@link #consumeUiHidden()}.
+     *
+     * @param level memory trim level
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_UI_HIDDEN)
+            uiHidden = true;
+        SpellAdapter.trimMemory(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL)
+            getRepository().trim();
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+}
@@ -0,0 +1,75 @@
+package org.dnd5spellbook.build;
+
+import org.dnd5spellbook.core.FileAssetSource;
+import org.dnd5spellbook.core.SpellLoader;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.OutputFile;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Base of gradle tasks that compile a spell bundle (spell html files plus spell
+ * metadata xml) into a single file
+ */
+public abstract class BundleTask extends DefaultTask {
+
+    private File bundleDir;
+    private File outputFile;
+
+    @InputDirectory
+    public File getBundleDir() {
+        return bundleDir;
+    }
+
+    public void setBundleDir(File bundleDir) {
+        this.bundleDir = bundleDir;
+    }
+
+    @OutputFile
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    public void setOutputFile(File outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    /**
+     * @return asset source with the bundle at {@link #getBundlePath()}
+     */
+    protected FileAssetSource createAssetSource() {
+        return new FileAssetSource(bundleDir.getParentFile());
+    }
+
+    /**
+     * @return path of the bundle within {@link #createAssetSource()}
+     */
+    protected String getBundlePath() {
+        return bundleDir.getName();
+    }
+
+    /**
+     * @return loader of the bundle
+     */
+    protected SpellLoader createLoader() {
+        return new SpellLoader(createAssetSource(), getBundlePath());
+    }
+
+    /**
+     * Opens the output file for writing, creating its directory if needed
+     *
+     * @return stream to write the output to; the caller is responsible for closing it
+     * @throws IOException if the file can't be created
+     */
+    protected OutputStream openOutput() throws IOException {
+        File parent = outputFile.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+            throw new IOException("Can't create directory " + parent);
+        return new BufferedOutputStream(new FileOutputStream(outputFile));
+    }
+}
@@ -0,0 +1,35 @@
+package org.dnd5spellbook.build;
+
+import org.dnd5spellbook.core.FileAssetSource;
+import org.dnd5spellbook.core.FullTextIndex;
+import org.dnd5spellbook.core.SpellHtml;
+import org.dnd5spellbook.domain.Spell;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gradle task that compiles descriptions ({@literal <article>} elements) of spells
+ * in a bundle into a full text index, see {@link FullTextIndex}
+ */
+public class CompileFullTextIndexTask extends BundleTask {
+
+    @TaskAction
+    public void compile() throws IOException {
+        FileAssetSource assets = createAssetSource();
+        List<String> documents = new ArrayList<>();
+        for (Spell spell : createLoader().readSpellListFromMetadata())
+            documents.add(SpellHtml.articleText(SpellHtml.read(assets, getBundlePath(), spell.getName())));
+
+        OutputStream out = openOutput();
+        try {
+            FullTextIndex.write(documents, out);
+        } finally {
+            out.close();
+        }
+        getLogger().info("Compiled full text index of " + documents.size() + " spells to " + getOutputFile());
+    }
+}
@@ -0,0 +1,45 @@
+package org.dnd5spellbook.build;
+
+import org.dnd5spellbook.core.FileAssetSource;
+import org.dnd5spellbook.core.SpellArchive;
+import org.dnd5spellbook.core.SpellHtml;
+import org.dnd5spellbook.domain.Spell;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Gradle task that packs html files of spells in a bundle into a single archive, see
+ * {@link SpellArchive}. Every spell of the bundle must have a stable id, see
+ * {@link UpdateSpellIdsTask}.
+ */
+public class CompileSpellArchiveTask extends BundleTask {
+
+    @TaskAction
+    public void compile() throws IOException {
+        FileAssetSource assets = createAssetSource();
+        List<String> entries = new ArrayList<>(
+                Collections.nCopies(createLoader().readSpellIdRegistry().size(), (String) null));
+        int count = 0;
+        for (Spell spell : createLoader().readSpellListFromMetadata()) {
+            if (spell.getId() == Spell.NO_ID)
+                throw new GradleException("Spell without a stable id: " + spell.getName()
+                        + ", run the updateSpellIds task to register it");
+            entries.set(spell.getId(), SpellHtml.read(assets, getBundlePath(), spell.getName()));
+            count++;
+        }
+
+        OutputStream out = openOutput();
+        try {
+            SpellArchive.write(entries, out);
+        } finally {
+            out.close();
+        }
+        getLogger().info("Packed " + count + " spells to " + getOutputFile());
+    }
+}
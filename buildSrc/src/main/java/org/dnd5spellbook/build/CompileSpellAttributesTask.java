@@ -0,0 +1,44 @@
+package org.dnd5spellbook.build;
+
+import org.dnd5spellbook.core.FileAssetSource;
+import org.dnd5spellbook.core.SpellAttributes;
+import org.dnd5spellbook.core.SpellHeader;
+import org.dnd5spellbook.core.SpellHtml;
+import org.dnd5spellbook.domain.Spell;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gradle task that parses headers of spell html files in a bundle and stores the spell
+ * properties by columns, see {@link SpellAttributes}. Properties which can't be parsed
+ * are reported and stored as unknown.
+ */
+public class CompileSpellAttributesTask extends BundleTask {
+
+    @TaskAction
+    public void compile() throws IOException {
+        FileAssetSource assets = createAssetSource();
+        List<Spell> spells = createLoader().readSpellListFromMetadata();
+        List<SpellHeader> headers = new ArrayList<>(spells.size());
+        for (Spell spell : spells) {
+            SpellHeader header = SpellHeader.parse(SpellHtml.read(assets, getBundlePath(), spell.getName()));
+            if (header.getSchool() == null || header.getLevel() == SpellHeader.UNKNOWN
+                    || header.getCastingTime() == null || header.getRangeKind() == null
+                    || header.getDurationSeconds() == SpellHeader.UNKNOWN)
+                getLogger().info("Incomplete header of " + spell.getName() + ": " + header);
+            headers.add(header);
+        }
+
+        OutputStream out = openOutput();
+        try {
+            SpellAttributes.of(headers).write(out);
+        } finally {
+            out.close();
+        }
+        getLogger().info("Compiled attributes of " + spells.size() + " spells to " + getOutputFile());
+    }
+}
@@ -0,0 +1,38 @@
+package org.dnd5spellbook.build;
+
+import org.dnd5spellbook.core.SpellIndex;
+import org.dnd5spellbook.domain.Spell;
+import org.gradle.api.GradleException;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gradle task that compiles a spell bundle into a binary spell index, see {@link SpellIndex}.
+ * Every spell of the bundle must have a stable id, see {@link UpdateSpellIdsTask}.
+ */
+public class CompileSpellIndexTask extends BundleTask {
+
+    @TaskAction
+    public void compile() throws IOException {
+        List<Spell> spells = createLoader().readSpellListFromMetadata();
+        List<String> missingIds = new ArrayList<>();
+        for (Spell spell : spells)
+            if (spell.getId() == Spell.NO_ID)
+                missingIds.add(spell.getName());
+        if (!missingIds.isEmpty())
+            throw new GradleException("Spells without stable ids: " + missingIds
+                    + ", run the updateSpellIds task to register them");
+
+        OutputStream out = openOutput();
+        try {
+            SpellIndex.write(spells, out);
+        } finally {
+            out.close();
+        }
+        getLogger().info("Compiled index of " + spells.size() + " spells to " + getOutputFile());
+    }
+}
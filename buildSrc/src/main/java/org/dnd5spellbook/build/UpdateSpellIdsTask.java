@@ -0,0 +1,46 @@
+package org.dnd5spellbook.build;
+
+import org.dnd5spellbook.core.SpellIdRegistry;
+import org.dnd5spellbook.domain.Spell;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gradle task that registers stable ids for the spells of a bundle missing in its id
+ * registry, see {@link SpellIdRegistry}. The output file is the registry in the bundle
+ * itself, which is kept under version control; registered ids are never changed.
+ */
+public class UpdateSpellIdsTask extends BundleTask {
+
+    @TaskAction
+    public void update() throws IOException {
+        SpellIdRegistry registry;
+        try {
+            registry = createLoader().readSpellIdRegistry();
+        } catch (FileNotFoundException e) {
+            registry = SpellIdRegistry.empty();
+        }
+
+        List<String> names = new ArrayList<>();
+        for (Spell spell : createLoader().readSpellListFromMetadata())
+            names.add(spell.getName());
+        SpellIdRegistry updated = registry.withNames(names);
+        if (updated == registry) {
+            getLogger().info("Every spell has a stable id");
+            return;
+        }
+
+        OutputStream out = openOutput();
+        try {
+            updated.write(out);
+        } finally {
+            out.close();
+        }
+        getLogger().lifecycle("Registered " + (updated.size() - registry.size()) + " new spell ids in " + getOutputFile());
+    }
+}
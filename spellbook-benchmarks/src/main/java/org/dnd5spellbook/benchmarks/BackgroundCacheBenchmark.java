@@ -0,0 +1,69 @@
+package org.dnd5spellbook.benchmarks;
+
+import org.dnd5spellbook.core.ConstraintMaskCache;
+import org.dnd5spellbook.domain.ConstraintMask;
+import org.dnd5spellbook.domain.Spell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the background lookup done by {@code SpellBackgroundFactory.getBackground} for
+ * every bound list row. Drawables can't be created on the desktop JVM, so the cache holds
+ * plain objects. The cache has the size of the application one, which holds fewer than
+ * the ~200 distinct constraint sets of the shipped bundle, so scrolling through the whole
+ * list misses too, as it does in the application.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BackgroundCacheBenchmark {
+
+    /**
+     * Number of copies of the shipped bundle
+     */
+    @Param({"1", "10"})
+    public int scale;
+
+    private static final ConstraintMaskCache.Factory<Object> FACTORY = new ConstraintMaskCache.Factory<Object>() {
+        @Override
+        public Object create(ConstraintMask constraints) {
+            return new Object();
+        }
+    };
+
+    private List<Spell> spells;
+    private ConstraintMaskCache<Object> cache;
+    private int position;
+
+    @Setup
+    public void setUp() {
+        spells = BenchmarkFixtures.scaledSpells(scale);
+        // as SpellBackgroundFactory caches backgrounds
+        cache = new ConstraintMaskCache<>(ConstraintMaskCache.ROW_BACKGROUNDS_SIZE);
+    }
+
+    /**
+     * Binds the next row of the list
+     */
+    @Benchmark
+    public Object getBackground() {
+        Spell spell = spells.get(position);
+        position = position + 1 == spells.size() ? 0 : position + 1;
+        return cache.get(spell.getConstraintMaskLow(), spell.getConstraintMaskHigh(), FACTORY);
+    }
+}
@@ -0,0 +1,152 @@
+package org.dnd5spellbook.benchmarks;
+
+import com.google.common.collect.Multimap;
+import com.google.common.collect.TreeMultimap;
+
+import org.dnd5spellbook.core.FileAssetSource;
+import org.dnd5spellbook.core.SpellAttributes;
+import org.dnd5spellbook.core.SpellHeader;
+import org.dnd5spellbook.core.SpellIndex;
+import org.dnd5spellbook.core.SpellLoader;
+import org.dnd5spellbook.domain.ClassLevelConstraint;
+import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.Spell;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Benchmark data: spells of the shipped bundle, optionally scaled up by
+ * copying every spell under numbered names
+ */
+public class BenchmarkFixtures {
+
+    /**
+     * Path of the bundle within benchmark asset sources
+     */
+    public static final String BUNDLE_PATH = "dndbundle";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static List<Spell> shippedSpells;
+
+    /**
+     * Reads spells of the shipped bundle. The application assets directory is taken from
+     * the {@code spellbook.assets} system property.
+     *
+     * @return spells of the shipped bundle in alphabetical order
+     */
+    public static synchronized List<Spell> shippedSpells() {
+        if (shippedSpells == null) {
+            String assets = System.getProperty("spellbook.assets", "app/src/main/assets");
+            shippedSpells = new SpellLoader(new FileAssetSource(new File(assets)), BUNDLE_PATH).readSpellListFromMetadata();
+        }
+        return shippedSpells;
+    }
+
+    /**
+     * Creates a catalogue {@code scale} times larger than the shipped one. The first copy
+     * keeps original names, other copies get a number appended to the name.
+     *
+     * @param scale number of copies of every shipped spell
+     * @return new spells in alphabetical order
+     */
+    public static List<Spell> scaledSpells(int scale) {
+        List<Spell> result = new ArrayList<>();
+        for (Spell spell : shippedSpells())
+            for (int copy = 0; copy < scale; copy++) {
+                String name = copy == 0 ? spell.getName() : spell.getName() + " " + copy;
+                result.add(new Spell(name, spell.getClassLevelConstraints()));
+            }
+        Collections.sort(result, Spell.NAME_COMPARATOR);
+        return result;
+    }
+
+    /**
+     * Creates an in-memory bundle with spell html files, spell metadata, the binary
+     * spell index and the spell attributes of the given spells
+     *
+     * @param spells spells of the bundle
+     * @return asset source with the bundle at {@link #BUNDLE_PATH}
+     */
+    public static InMemoryAssetSource bundle(List<Spell> spells) throws IOException {
+        InMemoryAssetSource assets = new InMemoryAssetSource();
+        byte[] html = "<html><body><article></article></body></html>".getBytes(UTF_8);
+        for (Spell spell : spells)
+            assets.put(BUNDLE_PATH + "/" + spell.getName() + ".html", html);
+        assets.put(BUNDLE_PATH + "/" + SpellLoader.METADATA_FILE_NAME, metadataXml(spells));
+
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        SpellIndex.write(spells, index);
+        assets.put(BUNDLE_PATH + "/" + SpellIndex.FILE_NAME, index.toByteArray());
+
+        ByteArrayOutputStream attributes = new ByteArrayOutputStream();
+        SpellAttributes.of(Collections.nCopies(spells.size(), SpellHeader.parse(new String(html, UTF_8)))).write(attributes);
+        assets.put(BUNDLE_PATH + "/" + SpellAttributes.FILE_NAME, attributes.toByteArray());
+        return assets;
+    }
+
+    /**
+     * Writes a homebrew pack directory, see {@link org.dnd5spellbook.core.PackDirectory},
+     * with spell html files that have headers, so that the pack gets spell attributes
+     *
+     * @param directory directory of the pack; it is created if it doesn't exist
+     * @param spells    spells of the pack
+     */
+    public static void writePack(File directory, List<Spell> spells) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Can't create " + directory);
+        byte[] html = ("<html><body><header><i>3rd-level evocation</i><br/>\n"
+                + "<b>Casting Time:</b> 1 action<br/>\n"
+                + "<b>Range:</b> 150 feet<br/>\n"
+                + "<b>Components:</b> V, S, M<br/>\n"
+                + "<b>Duration:</b> Instantaneous<br/>\n"
+                + "</header><article></article></body></html>").getBytes(UTF_8);
+        for (Spell spell : spells)
+            write(new File(directory, spell.getName() + ".html"), html);
+        write(new File(directory, SpellLoader.METADATA_FILE_NAME), metadataXml(spells));
+    }
+
+    private static void write(File file, byte[] content) throws IOException {
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(content);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Writes spell metadata xml in the format of the shipped bundle
+     */
+    static byte[] metadataXml(List<Spell> spells) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<classes>\n");
+        for (ClassName className : ClassName.values()) {
+            Multimap<Integer, String> spellsByLevel = TreeMultimap.create();
+            for (Spell spell : spells)
+                for (ClassLevelConstraint constraint : spell.getClassLevelConstraints())
+                    if (constraint.getClassName() == className)
+                        spellsByLevel.put(constraint.getLevel(), spell.getName());
+            xml.append("    <class name=\"").append(className.getDisplayName()).append("\">\n");
+            for (Integer level : spellsByLevel.keySet()) {
+                xml.append("        <level value=\"").append(level).append("\">\n");
+                for (String name : spellsByLevel.get(level))
+                    xml.append("            <item>").append(escapeXml(name)).append("</item>\n");
+                xml.append("        </level>\n");
+            }
+            xml.append("    </class>\n");
+        }
+        xml.append("</classes>\n");
+        return xml.toString().getBytes(UTF_8);
+    }
+
+    private static String escapeXml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
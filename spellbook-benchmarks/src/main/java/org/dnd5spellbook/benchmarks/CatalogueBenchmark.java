@@ -0,0 +1,125 @@
+package org.dnd5spellbook.benchmarks;
+
+import org.dnd5spellbook.core.PackDirectory;
+import org.dnd5spellbook.core.SpellCatalogue;
+import org.dnd5spellbook.core.SpellLoader;
+import org.dnd5spellbook.core.SpellPack;
+import org.dnd5spellbook.core.SpellRepository;
+import org.dnd5spellbook.core.SpellSearch;
+import org.dnd5spellbook.domain.Spell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a catalogue of the shipped bundle and homebrew packs in a temporary directory:
+ * merging the packs from their compiled binary files, as done on start, looking for
+ * changed packs, as done whenever the spell list is resumed, and filtering the merged
+ * spells keystroke by keystroke. Homebrew spells replace all shipped spells, so merging
+ * resolves a name collision for every shipped spell.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogueBenchmark {
+
+    /**
+     * Number of copies of the shipped bundle in homebrew packs; 28 copies are about
+     * 10 000 spells
+     */
+    @Param({"28"})
+    public int scale;
+
+    /**
+     * Number of homebrew packs the copies are spread over
+     */
+    @Param({"1", "8"})
+    public int packCount;
+
+    private static final String TYPED_WORD = "fireball";
+
+    private File root;
+    private List<SpellPack> packs;
+    private SpellRepository repository;
+    private SpellSearch search;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("packs").toFile();
+        List<Spell> spells = BenchmarkFixtures.scaledSpells(scale);
+        List<List<Spell>> packSpells = new ArrayList<>();
+        for (int i = 0; i < packCount; i++)
+            packSpells.add(new ArrayList<Spell>());
+        for (int i = 0; i < spells.size(); i++)
+            packSpells.get(i % packCount).add(spells.get(i));
+        for (int i = 0; i < packCount; i++)
+            BenchmarkFixtures.writePack(new File(root, "pack" + i), packSpells.get(i));
+
+        SpellLoader bundleLoader = new SpellLoader(BenchmarkFixtures.bundle(BenchmarkFixtures.shippedSpells()),
+                BenchmarkFixtures.BUNDLE_PATH);
+        PackDirectory directory = new PackDirectory(root);
+        // compiles the packs
+        packs = new ArrayList<>();
+        packs.add(SpellPack.bundled(bundleLoader));
+        packs.addAll(directory.discover());
+
+        repository = new SpellRepository(bundleLoader, directory);
+        search = new SpellSearch(new ArrayList<>(repository.load()), repository);
+        search.setAttributes(repository.getAttributes());
+    }
+
+    @TearDown
+    public void tearDown() {
+        delete(root);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null)
+            for (File child : files)
+                delete(child);
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    @Benchmark
+    public SpellCatalogue merge() {
+        return SpellCatalogue.merge(1, packs);
+    }
+
+    @Benchmark
+    public boolean refreshUnchanged() {
+        return repository.refresh();
+    }
+
+    /**
+     * Types a word character by character after clearing the search box, see
+     * {@link SpellSearchBenchmark#typeWord()}
+     */
+    @Benchmark
+    public int typeWord() {
+        int matched = search.search("").size();
+        for (int length = 1; length <= TYPED_WORD.length(); length++)
+            matched += search.search(TYPED_WORD.substring(0, length)).size();
+        return matched;
+    }
+}
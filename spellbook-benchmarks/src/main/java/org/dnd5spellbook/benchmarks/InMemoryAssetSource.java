@@ -0,0 +1,68 @@
+package org.dnd5spellbook.benchmarks;
+
+import org.dnd5spellbook.core.AssetSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link AssetSource} over files held in memory, so that benchmarks measure
+ * decoding rather than disk access
+ */
+public class InMemoryAssetSource implements AssetSource {
+
+    private final Map<String, byte[]> files = new LinkedHashMap<>();
+
+    /**
+     * Adds a file
+     *
+     * @param path    path of the file
+     * @param content content of the file
+     */
+    public void put(String path, byte[] content) {
+        files.put(path, content);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream open(String path) throws IOException {
+        return new ByteArrayInputStream(get(path));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ByteBuffer map(String path) throws IOException {
+        return ByteBuffer.wrap(get(path)).asReadOnlyBuffer();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] list(String path) throws IOException {
+        String prefix = path + "/";
+        List<String> names = new ArrayList<>();
+        for (String file : files.keySet())
+            if (file.startsWith(prefix) && file.indexOf('/', prefix.length()) < 0)
+                names.add(file.substring(prefix.length()));
+        return names.toArray(new String[names.size()]);
+    }
+
+    private byte[] get(String path) throws FileNotFoundException {
+        byte[] content = files.get(path);
+        if (content == null)
+            throw new FileNotFoundException(path);
+        return content;
+    }
+}
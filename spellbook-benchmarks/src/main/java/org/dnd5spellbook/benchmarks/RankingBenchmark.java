@@ -0,0 +1,68 @@
+package org.dnd5spellbook.benchmarks;
+
+import org.dnd5spellbook.core.FilterSpec;
+import org.dnd5spellbook.core.SpellSearch;
+import org.dnd5spellbook.domain.Spell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ranking of matched spells alone, that is {@link SpellSearch#rank} over the
+ * matches of a query. Run with {@code -prof gc}: the allocation per operation is that
+ * of the returned list.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RankingBenchmark {
+
+    /**
+     * Number of copies of the shipped bundle
+     */
+    @Param({"1", "10", "100", "1000"})
+    public int scale;
+
+    /**
+     * Ranked query
+     */
+    @Param({"s", "fire"})
+    public String query;
+
+    private List<Spell> spells;
+    private int[] matches;
+    private FilterSpec spec;
+
+    @Setup
+    public void setUp() {
+        spells = BenchmarkFixtures.scaledSpells(scale);
+        spec = FilterSpec.DEFAULT.withQuery(query);
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < spells.size(); i++)
+            if (spells.get(i).getNormalizedName().contains(query))
+                positions.add(i);
+        matches = new int[positions.size()];
+        for (int i = 0; i < matches.length; i++)
+            matches[i] = positions.get(i);
+    }
+
+    @Benchmark
+    public List<Spell> rank() {
+        return SpellSearch.rank(spells, matches, spec);
+    }
+}
@@ -0,0 +1,183 @@
+package org.dnd5spellbook.benchmarks;
+
+import org.dnd5spellbook.core.ConstraintMaskCache;
+import org.dnd5spellbook.core.IdListDiff;
+import org.dnd5spellbook.core.SpellAttributes;
+import org.dnd5spellbook.core.SpellLoader;
+import org.dnd5spellbook.core.SpellSearch;
+import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.ConstraintMask;
+import org.dnd5spellbook.domain.Spell;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Loads synthetic bundles of growing size, see {@link SyntheticBundle}, and reports for
+ * every size:
+ * <ul>
+ * <li>load time: decoding the binary spell index and the spell attributes, as the
+ * application does on start;</li>
+ * <li>first search time: building the name index and the facets;</li>
+ * <li>heap taken by the loaded spells and attributes, and by the search indexes;</li>
+ * <li>per-keystroke filter latency: a search and the diff of the shown list, as done by
+ * {@code SpellAdapter.SpellFilter} for every keystroke, while typing words and clearing
+ * the search box, with and without a class filter;</li>
+ * <li>hit rate of a row background cache of the application size while scrolling the
+ * whole list, as done by {@code SpellBackgroundFactory}.</li>
+ * </ul>
+ * Unlike JMH benchmarks it measures cold paths that run once per process too, so it
+ * gives a curve of the whole pipeline rather than steady state numbers.
+ * <p/>
+ * Run with {@code gradlew scaleTest}; pass {@code -Psizes=10000,100000} to choose sizes.
+ */
+public class ScaleTest {
+
+    private static final int[] DEFAULT_SIZES = {10000, 100000, 1000000};
+    private static final long SEED = 0;
+    private static final String[] TYPED_WORDS = {"fireball", "melf's acid", "wall of fire", "zzz"};
+    private static final int TYPING_ROUNDS = 20;
+    private static final double MB = 1024 * 1024;
+
+    private static final IdListDiff.Callback NO_CALLBACK = new IdListDiff.Callback() {
+        @Override
+        public void onInserted(int position, int count) {
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+        }
+    };
+
+    private static final ConstraintMaskCache.Factory<Object> BACKGROUND_FACTORY = new ConstraintMaskCache.Factory<Object>() {
+        @Override
+        public Object create(ConstraintMask constraints) {
+            return new Object();
+        }
+    };
+
+    /**
+     * Runs the test
+     *
+     * @param args sizes of bundles, separated by commas or spaces; 10k, 100k and 1M spells
+     *             by default
+     */
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length == 0 ? DEFAULT_SIZES : parseSizes(args);
+        System.out.println(String.format(Locale.US, "%9s %9s %9s %9s %9s %9s %11s %11s %11s %9s",
+                "spells", "load ms", "search ms", "heap MB", "index MB", "B/spell",
+                "key p50 us", "key p99 us", "key max us", "bg hits"));
+        for (int size : sizes)
+            System.out.println(run(size));
+    }
+
+    private static int[] parseSizes(String[] args) {
+        List<Integer> sizes = new ArrayList<>();
+        for (String arg : args)
+            for (String size : arg.split(","))
+                if (!size.trim().isEmpty())
+                    sizes.add(Integer.parseInt(size.trim()));
+        int[] result = new int[sizes.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = sizes.get(i);
+        return result;
+    }
+
+    private static String run(int size) throws IOException {
+        // the generator is dropped before measuring the heap
+        SpellLoader loader = new SpellLoader(SyntheticBundle.generate(size, SEED).compiledBundle(),
+                BenchmarkFixtures.BUNDLE_PATH);
+
+        long baseHeap = usedHeap();
+        long start = System.nanoTime();
+        List<Spell> spells = loader.readSpellList();
+        SpellAttributes attributes = loader.readSpellAttributes();
+        long loadNanos = System.nanoTime() - start;
+        long loadedHeap = usedHeap();
+
+        SpellSearch search = new SpellSearch(spells);
+        search.setAttributes(attributes);
+        start = System.nanoTime();
+        int[] shownIds = ids(search.search(""));
+        long searchNanos = System.nanoTime() - start;
+        // builds the fuzzy name index
+        search.search("firbal");
+        long indexedHeap = usedHeap();
+
+        SpellSearch classSearch = new SpellSearch(spells);
+        classSearch.setAttributes(attributes);
+        classSearch.setClassNamesFilter(EnumSet.of(ClassName.WIZARD, ClassName.WARLOCK));
+        List<Long> keystrokes = new ArrayList<>();
+        // the first round warms up the searches
+        for (int round = 0; round <= TYPING_ROUNDS; round++) {
+            type(search, shownIds, round == 0 ? null : keystrokes);
+            type(classSearch, ids(classSearch.search("")), round == 0 ? null : keystrokes);
+        }
+        Collections.sort(keystrokes);
+
+        ConstraintMaskCache<Object> backgrounds = new ConstraintMaskCache<>(ConstraintMaskCache.ROW_BACKGROUNDS_SIZE);
+        for (Spell spell : spells)
+            backgrounds.get(spell.getConstraintMaskLow(), spell.getConstraintMaskHigh(), BACKGROUND_FACTORY);
+        double hitRate = (double) backgrounds.getHitCount() / (backgrounds.getHitCount() + backgrounds.getMissCount());
+
+        String line = String.format(Locale.US, "%9d %9.1f %9.1f %9.1f %9.1f %9d %11.1f %11.1f %11.1f %8.1f%%",
+                size, loadNanos / 1e6, searchNanos / 1e6,
+                (loadedHeap - baseHeap) / MB, (indexedHeap - loadedHeap) / MB, (indexedHeap - baseHeap) / size,
+                percentile(keystrokes, 0.5) / 1e3, percentile(keystrokes, 0.99) / 1e3,
+                percentile(keystrokes, 1) / 1e3, hitRate * 100);
+        // keeps everything measured reachable until the heap is measured
+        if (spells.size() + attributes.size() + search.hashCode() == 0)
+            throw new AssertionError();
+        return line;
+    }
+
+    /**
+     * Types words character by character, clearing the search box before every word, and
+     * diffs every result with the one shown before it
+     */
+    private static void type(SpellSearch search, int[] shownIds, List<Long> keystrokes) {
+        for (String word : TYPED_WORDS) {
+            for (int length = 0; length <= word.length(); length++) {
+                long start = System.nanoTime();
+                int[] ids = ids(search.search(word.substring(0, length)));
+                IdListDiff.diff(shownIds, ids, NO_CALLBACK);
+                if (keystrokes != null)
+                    keystrokes.add(System.nanoTime() - start);
+                shownIds = ids;
+            }
+        }
+    }
+
+    /**
+     * @param sorted     sorted latencies
+     * @param percentile percentile from 0 to 1
+     * @return the latency of the percentile
+     */
+    private static long percentile(List<Long> sorted, double percentile) {
+        return sorted.get((int) Math.ceil(percentile * sorted.size()) - 1);
+    }
+
+    private static int[] ids(List<Spell> spells) {
+        int[] ids = new int[spells.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = spells.get(i).getId();
+        return ids;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,64 @@
+package org.dnd5spellbook.benchmarks;
+
+import com.google.common.collect.Multimap;
+
+import org.dnd5spellbook.core.SpellLoader;
+import org.dnd5spellbook.domain.ClassLevelConstraint;
+import org.dnd5spellbook.domain.Spell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading a bundle: parsing spell metadata xml and decoding the binary index.
+ * Bundle files are held in memory, so only decoding is measured.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpellLoaderBenchmark {
+
+    /**
+     * Number of copies of the shipped bundle
+     */
+    @Param({"1", "10", "100", "1000"})
+    public int scale;
+
+    private SpellLoader loader;
+
+    @Setup
+    public void setUp() throws IOException {
+        loader = new SpellLoader(BenchmarkFixtures.bundle(BenchmarkFixtures.scaledSpells(scale)),
+                BenchmarkFixtures.BUNDLE_PATH);
+    }
+
+    @Benchmark
+    public Multimap<String, ClassLevelConstraint> readSpellClassLevelConstraints() {
+        return loader.readSpellClassLevelConstraints();
+    }
+
+    @Benchmark
+    public List<Spell> readSpellListFromMetadata() {
+        return loader.readSpellListFromMetadata();
+    }
+
+    @Benchmark
+    public List<Spell> readSpellListFromIndex() throws IOException {
+        return loader.readSpellListFromIndex();
+    }
+}
@@ -0,0 +1,89 @@
+package org.dnd5spellbook.benchmarks;
+
+import org.dnd5spellbook.core.SpellSearch;
+import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.Spell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a whole filtering pass, as done by {@code SpellAdapter.SpellFilter.performFiltering}
+ * for every keystroke: name matching, class and level filters, and ranking.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpellSearchBenchmark {
+
+    /**
+     * Number of copies of the shipped bundle
+     */
+    @Param({"1", "10", "100", "1000"})
+    public int scale;
+
+    /**
+     * Searched string: everything, a short prefix, a longer one, and a miss
+     */
+    @Param({"", "fi", "fire", "zzz"})
+    public String query;
+
+    private static final String TYPED_WORD = "fireball";
+    private static final String MISSPELLED_NAME = "melfs acid arow";
+
+    private SpellSearch search;
+    private SpellSearch classFilteredSearch;
+
+    @Setup
+    public void setUp() {
+        List<Spell> spells = BenchmarkFixtures.scaledSpells(scale);
+        search = new SpellSearch(spells);
+        classFilteredSearch = new SpellSearch(spells);
+        classFilteredSearch.setClassNamesFilter(EnumSet.of(ClassName.WIZARD, ClassName.WARLOCK));
+    }
+
+    @Benchmark
+    public List<Spell> search() {
+        return search.search(query);
+    }
+
+    @Benchmark
+    public List<Spell> searchWithClassFilter() {
+        return classFilteredSearch.search(query);
+    }
+
+    /**
+     * Types a word character by character after clearing the search box, as a user does;
+     * every keystroke after the first one refines the previous result
+     */
+    @Benchmark
+    public int typeWord() {
+        int matched = search.search("").size();
+        for (int length = 1; length <= TYPED_WORD.length(); length++)
+            matched += search.search(TYPED_WORD.substring(0, length)).size();
+        return matched;
+    }
+
+    /**
+     * Searches a misspelled name, which has no exact matches and is answered by fuzzy search
+     */
+    @Benchmark
+    public List<Spell> searchMisspelled() {
+        return search.search(MISSPELLED_NAME);
+    }
+}
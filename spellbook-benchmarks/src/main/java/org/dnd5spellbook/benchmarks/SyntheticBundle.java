@@ -0,0 +1,384 @@
+package org.dnd5spellbook.benchmarks;
+
+import org.dnd5spellbook.core.SpellAttributes;
+import org.dnd5spellbook.core.SpellHeader;
+import org.dnd5spellbook.core.SpellIndex;
+import org.dnd5spellbook.core.SpellLoader;
+import org.dnd5spellbook.domain.ClassLevelConstraint;
+import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.School;
+import org.dnd5spellbook.domain.Spell;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic generator of spell bundles of any size. The same size and seed give the
+ * same bundle. Spell properties follow the distributions of the shipped bundle: spell
+ * levels, schools, the number of classes per spell and how often every class gets a
+ * spell, casting times, ranges, components and durations. Names are built from word
+ * lists by templates like those of shipped names ("Fireball", "Acid Splash", "Wall of
+ * Fire", "Melf's Acid Arrow"); short templates run out of unique names in large bundles,
+ * so large bundles have longer names, as real homebrew collections do.
+ * <p/>
+ * A bundle can be written as a directory with spell html files and the spell metadata
+ * xml, which the application loads as a homebrew pack, or as an in-memory bundle with
+ * the binary files the build generates for the shipped bundle, see {@link #compiledBundle()}.
+ * <p/>
+ * Run {@link #main} to write a bundle: {@code gradlew syntheticBundle -Psize=10000 -Pdir=<directory>}.
+ */
+public class SyntheticBundle {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // weights taken from the shipped bundle
+    private static final int[] LEVEL_WEIGHTS = {27, 62, 59, 50, 35, 42, 32, 20, 18, 16};
+    private static final int[] CLASS_COUNT_WEIGHTS = {0, 114, 104, 79, 46, 13, 3, 2};
+    private static final ClassName[] CLASSES = {ClassName.BARD, ClassName.CLERIC, ClassName.DRUID,
+            ClassName.PALADIN, ClassName.RANGER, ClassName.SORCERER, ClassName.WARLOCK, ClassName.WIZARD};
+    private static final int[] CLASS_WEIGHTS = {115, 106, 110, 45, 46, 129, 74, 215};
+    private static final School[] SCHOOLS = {School.ABJURATION, School.CONJURATION, School.DIVINATION,
+            School.ENCHANTMENT, School.EVOCATION, School.ILLUSION, School.NECROMANCY, School.TRANSMUTATION};
+    private static final int[] SCHOOL_WEIGHTS = {45, 62, 30, 34, 72, 28, 26, 64};
+    private static final String[] CASTING_TIMES = {"1 action", "1 bonus action",
+            "1 reaction, which you take when you are hit by an attack", "1 minute", "10 minutes", "1 hour",
+            "8 hours", "12 hours", "24 hours"};
+    private static final int[] CASTING_TIME_WEIGHTS = {270, 27, 4, 32, 15, 10, 1, 1, 1};
+    private static final String[] RANGES = {"Self", "Touch", "5 feet", "10 feet", "30 feet", "60 feet",
+            "90 feet", "120 feet", "150 feet", "300 feet", "500 feet", "1 mile", "Sight", "Unlimited", "Special"};
+    private static final int[] RANGE_WEIGHTS = {82, 72, 2, 12, 51, 61, 15, 33, 13, 8, 3, 3, 3, 2, 1};
+    private static final String[] COMPONENTS = {"V", "S", "V, S", "V, M (a pinch of sulfur)",
+            "V, S, M (a bit of fleece)", "V, S, M (a diamond worth 300 gp)",
+            "V, S, M (incense worth 25 gp, which the spell consumes)"};
+    private static final int[] COMPONENT_WEIGHTS = {42, 5, 115, 6, 136, 25, 32};
+    private static final String[] DURATIONS = {"Instantaneous", "1 round", "1 minute", "10 minutes",
+            "1 hour", "8 hours", "24 hours", "10 days", "Until dispelled"};
+    private static final int[] DURATION_WEIGHTS = {96, 12, 97, 41, 60, 18, 17, 6, 12};
+    // share of spells with a finite lasting duration that require concentration, in percent
+    private static final int CONCENTRATION_PERCENT = 60;
+    // share of leveled spells that are rituals, in percent
+    private static final int RITUAL_PERCENT = 9;
+
+    private static final String[] PREFIXES = {"Fire", "Frost", "Thunder", "Light", "Mind", "Shadow", "Storm",
+            "Blood", "Soul", "Star", "Sun", "Moon", "Earth", "Stone", "Wind", "Spirit", "Death", "Life", "Dream",
+            "Flame", "Ice", "Sky", "Sea", "Iron", "Bone", "Thorn", "Ember", "Void", "Rune", "Sword", "Shield",
+            "Blade", "Wild", "Night", "Day", "Gloom", "Glimmer", "Dusk", "Dawn", "Ash"};
+    private static final String[] ROOTS = {"ball", "bolt", "wave", "blank", "strike", "ward", "burst", "fall",
+            "walk", "step", "shape", "bind", "fire", "storm", "blast", "lance", "song", "sight", "speak", "mark",
+            "shield", "guard", "brand", "flare", "spike", "web", "bane", "call", "form", "gate", "lock", "veil",
+            "shroud", "spark", "surge", "touch", "word", "scar", "weave", "crown"};
+    private static final String[] ADJECTIVES = {"Acid", "Arcane", "Black", "Blinding", "Burning", "Chill",
+            "Chromatic", "Crushing", "Dancing", "Dark", "Divine", "Dominate", "Eldritch", "Enlarge", "False",
+            "Feral", "Flaming", "Freezing", "Ghostly", "Greater", "Guiding", "Hallowed", "Healing", "Hidden",
+            "Hungry", "Ice", "Illusory", "Lesser", "Lightning", "Mass", "Mighty", "Minor", "Misty", "Phantom",
+            "Poison", "Prismatic", "Radiant", "Rary's", "Sacred", "Searing", "Shattering", "Silent", "Silver",
+            "Spectral", "Spirit", "Storm", "Sunlit", "Thorny", "Thunderous", "Tidal", "True", "Vampiric",
+            "Vicious", "Wailing", "Warding", "Whispering", "Wild", "Withering", "Wrathful", "Zephyr"};
+    private static final String[] NOUNS = {"Aegis", "Arrow", "Aura", "Barrier", "Beacon", "Blade", "Blast",
+            "Blessing", "Bolt", "Bond", "Breath", "Burst", "Chains", "Charm", "Circle", "Cloak", "Cloud", "Command",
+            "Cone", "Curse", "Dart", "Doom", "Door", "Eye", "Fang", "Feast", "Flame", "Fog", "Form", "Gate",
+            "Gaze", "Glyph", "Grasp", "Guardian", "Hand", "Hound", "Hut", "Lance", "Light", "Lock", "Mantle",
+            "Mask", "Messenger", "Mind", "Mirror", "Mist", "Orb", "Path", "Prison", "Ray", "Rebuke", "Rope",
+            "Sanctuary", "Scream", "Sending", "Servant", "Shield", "Shroud", "Sigil", "Smite", "Song", "Sphere",
+            "Spray", "Step", "Storm", "Strike", "Swarm", "Sword", "Tentacles", "Tide", "Tongue", "Touch", "Tower",
+            "Trap", "Veil", "Wall", "Ward", "Wave", "Whip", "Word"};
+    private static final String[] ELEMENTS = {"Fire", "Ice", "Stone", "Thorns", "Force", "Light", "Shadow",
+            "Storms", "Blades", "Bones", "Flesh", "the Dead", "the Deep", "the Stars", "the Sun", "the Moon",
+            "Winter", "Summer", "Protection", "Warding", "Doom", "Fear", "Madness", "Healing", "Life", "Death",
+            "Silence", "Sleep", "Dreams", "Vitality", "Resistance", "Seeming", "Scrying", "Passage", "Binding",
+            "Banishment", "Revelation", "Ruin", "Sanctity", "Souls"};
+    private static final String[] OWNERS = {"Melf's", "Tasha's", "Bigby's", "Mordenkainen's", "Otiluke's",
+            "Leomund's", "Evard's", "Drawmij's", "Nystul's", "Tenser's", "Otto's", "Abi-Dalzim's", "Agannazar's",
+            "Maximilian's", "Snilloc's", "Aganazzar's", "Elminster's", "Khelben's", "Laeral's", "Volo's",
+            "Xanathar's", "Jim's", "Tiamat's", "Bahamut's", "Vecna's", "Acererak's", "Strahd's", "Iggwilv's",
+            "Zagyg's", "Kelemvor's"};
+    private static final String[] NUMERALS = {"II", "III", "IV", "V", "VI", "VII", "VIII", "IX", "X"};
+    // templates from the shortest; weights of names of one to four words in the shipped bundle
+    private static final int[] TEMPLATE_WEIGHTS = {109, 174, 70, 8};
+
+    private static final String[] WORDS = {"you", "creature", "target", "range", "within", "feet", "damage",
+            "saving", "throw", "spell", "must", "take", "until", "turn", "each", "end", "that", "can", "its",
+            "radius", "sphere", "point", "choose", "magical", "light", "ends", "duration", "hit", "points",
+            "attack", "roll", "ally", "object", "area", "success", "failed", "half", "strength", "dexterity",
+            "constitution", "wisdom", "intelligence", "charisma", "advantage", "disadvantage", "speed",
+            "difficult", "terrain", "fire", "cold", "lightning", "thunder", "radiant", "necrotic", "psychic",
+            "force", "acid", "poison", "shimmering", "glowing", "ghostly", "swirling", "cloud", "wall", "shield",
+            "summon", "spirit", "illusion", "sound", "image", "invisible", "concentration", "higher", "levels",
+            "slot", "increases", "additional", "reaction", "bonus", "action", "ground", "air", "water", "stone"};
+
+    private final List<Spell> spells;
+    private final List<SpellHeader> headers;
+    // number of every spell in the order of generation, which seeds its html
+    private final int[] numbers;
+    private final long seed;
+
+    private SyntheticBundle(List<Spell> spells, List<SpellHeader> headers, int[] numbers, long seed) {
+        this.spells = spells;
+        this.headers = headers;
+        this.numbers = numbers;
+        this.seed = seed;
+    }
+
+    /**
+     * Generates a bundle
+     *
+     * @param size number of spells
+     * @param seed seed of the generator
+     * @return bundle with spells in alphabetical order
+     */
+    public static SyntheticBundle generate(int size, long seed) {
+        Random random = new Random(seed);
+        Set<String> names = new HashSet<>();
+        List<Spell> generated = new ArrayList<>(size);
+        List<SpellHeader> generatedHeaders = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = uniqueName(random, names);
+            int level = pick(random, LEVEL_WEIGHTS);
+            List<ClassLevelConstraint> constraints = new ArrayList<>();
+            for (ClassName className : pickClasses(random))
+                constraints.add(ClassLevelConstraint.of(className, level));
+            generated.add(new Spell(name, constraints));
+            // html is not kept, it is generated again from the same seed when it is needed
+            generatedHeaders.add(SpellHeader.parse(headerHtml(htmlRandom(seed, i), level)));
+        }
+
+        // sort positions rather than spells to keep headers aligned with them
+        List<Integer> order = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            order.add(i);
+        final List<Spell> unsorted = generated;
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                return Spell.NAME_COMPARATOR.compare(unsorted.get(lhs), unsorted.get(rhs));
+            }
+        });
+        List<Spell> spells = new ArrayList<>(size);
+        List<SpellHeader> headers = new ArrayList<>(size);
+        int[] numbers = new int[size];
+        for (int number : order) {
+            Spell spell = generated.get(number);
+            numbers[spells.size()] = number;
+            // ids as a fresh spell id registry assigns them
+            spells.add(new Spell(spells.size(), spell.getName(), spell.getClassLevelConstraints()));
+            headers.add(generatedHeaders.get(number));
+        }
+        return new SyntheticBundle(spells, headers, numbers, seed);
+    }
+
+    private static Random htmlRandom(long seed, int number) {
+        return new Random(seed * 31 + number);
+    }
+
+    /**
+     * @return spells in alphabetical order with ids in the same order
+     */
+    public List<Spell> getSpells() {
+        return spells;
+    }
+
+    /**
+     * @return headers of the spells in the same order, parsed from their html
+     */
+    public List<SpellHeader> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Creates the html of a spell: the header and a description of a few paragraphs
+     *
+     * @param position position of the spell
+     * @return html of the spell in the format of the shipped bundle
+     */
+    public String html(int position) {
+        Random random = htmlRandom(seed, numbers[position]);
+        StringBuilder html = new StringBuilder("<html>\n    <head>\n        <link href=\"style.css\" rel=\"stylesheet\" />\n"
+                + "    </head>\n    <body>\n");
+        html.append(headerHtml(random, headers.get(position).getLevel()));
+        html.append("        <article>\n");
+        for (int paragraph = 1 + random.nextInt(3); paragraph > 0; paragraph--) {
+            html.append("            <p>\n            ");
+            for (int sentence = 2 + random.nextInt(4); sentence > 0; sentence--)
+                appendSentence(random, html);
+            html.append("\n            </p>\n");
+        }
+        html.append("        </article>\n    </body>\n</html>\n");
+        return html.toString();
+    }
+
+    /**
+     * Writes the spell html files and the spell metadata xml, which is a bundle the
+     * application can load as a homebrew pack
+     *
+     * @param directory directory to write to; it is created if it doesn't exist
+     */
+    public void writeTo(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Can't create " + directory);
+        for (int i = 0; i < spells.size(); i++)
+            write(new File(directory, spells.get(i).getName() + ".html"), html(i).getBytes(UTF_8));
+        write(new File(directory, SpellLoader.METADATA_FILE_NAME), BenchmarkFixtures.metadataXml(spells));
+    }
+
+    /**
+     * Creates an in-memory bundle with the spell metadata xml and the binary files the
+     * build generates: the spell index and the spell attributes. Spell html files are
+     * left out to keep large bundles small.
+     *
+     * @return asset source with the bundle at {@link BenchmarkFixtures#BUNDLE_PATH}
+     */
+    public InMemoryAssetSource compiledBundle() throws IOException {
+        InMemoryAssetSource assets = new InMemoryAssetSource();
+        String path = BenchmarkFixtures.BUNDLE_PATH + "/";
+        assets.put(path + SpellLoader.METADATA_FILE_NAME, BenchmarkFixtures.metadataXml(spells));
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        SpellIndex.write(spells, index);
+        assets.put(path + SpellIndex.FILE_NAME, index.toByteArray());
+        ByteArrayOutputStream attributes = new ByteArrayOutputStream();
+        SpellAttributes.of(headers).write(attributes);
+        assets.put(path + SpellAttributes.FILE_NAME, attributes.toByteArray());
+        return assets;
+    }
+
+    /**
+     * Picks a name that is not taken yet, ignoring case. A template that gives a taken
+     * name a few times in a row is replaced by a longer one; the longest one gets a
+     * numeral when it runs out too.
+     */
+    private static String uniqueName(Random random, Set<String> names) {
+        int template = pick(random, TEMPLATE_WEIGHTS);
+        for (int attempt = 0; ; attempt++) {
+            if (attempt > 0 && attempt % 4 == 0 && template < TEMPLATE_WEIGHTS.length - 1)
+                template++;
+            String name = name(random, template);
+            if (attempt >= 16)
+                name += " " + NUMERALS[random.nextInt(NUMERALS.length)];
+            if (names.add(name.toLowerCase()))
+                return name;
+        }
+    }
+
+    private static String name(Random random, int template) {
+        switch (template) {
+            case 0:
+                return pick(random, PREFIXES) + pick(random, ROOTS);
+            case 1:
+                return random.nextInt(4) == 0 ? pick(random, PREFIXES) + pick(random, ROOTS) + " " + pick(random, NOUNS)
+                        : pick(random, ADJECTIVES) + " " + pick(random, NOUNS);
+            case 2:
+                return random.nextBoolean() ? pick(random, NOUNS) + " of " + pick(random, ELEMENTS)
+                        : pick(random, OWNERS) + " " + pick(random, ADJECTIVES) + " " + pick(random, NOUNS);
+            default:
+                return pick(random, OWNERS) + " " + pick(random, ADJECTIVES) + " " + pick(random, NOUNS)
+                        + " of " + pick(random, ELEMENTS);
+        }
+    }
+
+    private static Set<ClassName> pickClasses(Random random) {
+        int count = pick(random, CLASS_COUNT_WEIGHTS);
+        Set<ClassName> classes = EnumSet.noneOf(ClassName.class);
+        while (classes.size() < count)
+            classes.add(CLASSES[pick(random, CLASS_WEIGHTS)]);
+        return classes;
+    }
+
+    private static String headerHtml(Random random, int level) {
+        String school = SCHOOLS[pick(random, SCHOOL_WEIGHTS)].getDisplayName();
+        String summary = level == 0 ? school + " cantrip"
+                : level + ordinalSuffix(level) + "-level " + school.toLowerCase();
+        if (level > 0 && random.nextInt(100) < RITUAL_PERCENT)
+            summary += " (ritual)";
+        int duration = pick(random, DURATION_WEIGHTS);
+        String durationText = DURATIONS[duration];
+        if (duration > 0 && duration < DURATIONS.length - 1 && random.nextInt(100) < CONCENTRATION_PERCENT)
+            durationText = "Concentration, up to " + durationText.toLowerCase();
+        return "        <header>\n"
+                + "        <i>" + summary + "</i><br/>\n"
+                + "        <b>Casting Time:</b>  " + CASTING_TIMES[pick(random, CASTING_TIME_WEIGHTS)] + "<br/>\n"
+                + "        <b>Range:</b>  " + RANGES[pick(random, RANGE_WEIGHTS)] + "<br/>\n"
+                + "        <b>Components:</b>  " + COMPONENTS[pick(random, COMPONENT_WEIGHTS)] + "<br/>\n"
+                + "        <b>Duration:</b>  " + durationText + "<br/>\n"
+                + "        </header>\n";
+    }
+
+    private static String ordinalSuffix(int level) {
+        switch (level) {
+            case 1:
+                return "st";
+            case 2:
+                return "nd";
+            case 3:
+                return "rd";
+            default:
+                return "th";
+        }
+    }
+
+    private static void appendSentence(Random random, StringBuilder html) {
+        int length = 6 + random.nextInt(14);
+        for (int i = 0; i < length; i++) {
+            String word = pick(random, WORDS);
+            html.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            if (i == length / 2 && random.nextInt(3) == 0)
+                html.append(" <b>").append(1 + random.nextInt(8)).append("d").append(4 + 2 * random.nextInt(5))
+                        .append("</b>");
+            html.append(i == length - 1 ? ". " : " ");
+        }
+    }
+
+    /**
+     * @return index of a weight picked with the probability proportional to it
+     */
+    private static int pick(Random random, int[] weights) {
+        int total = 0;
+        for (int weight : weights)
+            total += weight;
+        int value = random.nextInt(total);
+        for (int i = 0; ; i++) {
+            value -= weights[i];
+            if (value < 0)
+                return i;
+        }
+    }
+
+    private static String pick(Random random, String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+
+    private static void write(File file, byte[] content) throws IOException {
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(content);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Writes a bundle to a directory
+     *
+     * @param args number of spells, directory and optionally the seed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SyntheticBundle <size> <directory> [<seed>]");
+            System.exit(1);
+        }
+        int size = Integer.parseInt(args[0]);
+        File directory = new File(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        generate(size, seed).writeTo(directory);
+        System.out.println("Wrote " + size + " spells to " + directory);
+    }
+}
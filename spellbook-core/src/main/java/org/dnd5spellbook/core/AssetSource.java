@@ -0,0 +1,42 @@
+package org.dnd5spellbook.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only source of bundle files, such as application assets or a directory
+ * on disk. Paths are relative and use '/' as a separator.
+ */
+public interface AssetSource {
+
+    /**
+     * Opens a file for reading
+     *
+     * @param path path of the file
+     * @return stream with the file content; the caller is responsible for closing it
+     * @throws java.io.FileNotFoundException if there is no such file
+     * @throws IOException                   if the file can't be opened
+     */
+    InputStream open(String path) throws IOException;
+
+    /**
+     * Lists names of files in a directory
+     *
+     * @param path path of the directory
+     * @return names of the files within the directory, without the directory path
+     * @throws IOException if the directory can't be listed
+     */
+    String[] list(String path) throws IOException;
+
+    /**
+     * Maps a file into memory for reading. Sources that can't map files may read
+     * the whole file into a buffer instead.
+     *
+     * @param path path of the file
+     * @return read-only buffer with the file content
+     * @throws java.io.FileNotFoundException if there is no such file
+     * @throws IOException                   if the file can't be mapped
+     */
+    ByteBuffer map(String path) throws IOException;
+}
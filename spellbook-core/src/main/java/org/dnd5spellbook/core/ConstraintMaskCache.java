@@ -0,0 +1,235 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.ConstraintMask;
+
+/**
+ * Bounded cache of values that depend only on a set of class level constraints, such
+ * as list item backgrounds, keyed by the constraint mask words of the set (see
+ * {@link ConstraintMask}). A lookup is a probe of an open addressing table and doesn't
+ * allocate. When the cache is full, the least recently used value is evicted.
+ * <p/>
+ * The cache is not thread safe.
+ *
+ * @param <V> type of the cached values
+ */
+public class ConstraintMaskCache<V> {
+
+    /**
+     * Creates values for the constraint sets missing in the cache
+     *
+     * @param <V> type of the created values
+     */
+    public interface Factory<V> {
+        /**
+         * Creates a value for a set of constraints
+         *
+         * @param constraints mask of the constraints
+         * @return value to be cached
+         */
+        V create(ConstraintMask constraints);
+    }
+
+    /**
+     * Size of the cache of list row backgrounds, several screens of rows with distinct
+     * constraints
+     */
+    public static final int ROW_BACKGROUNDS_SIZE = 128;
+
+    private static final int NONE = -1;
+
+    private final int maxSize;
+
+    // entries, linked into a list from the most to the least recently used
+    private final long[] keyLow;
+    private final long[] keyHigh;
+    private final Object[] values;
+    private final int[] previous;
+    private final int[] next;
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+
+    // evicted entries to be reused; entries from usedEntries on were never used
+    private final int[] freeEntries;
+    private int freeCount;
+    private int usedEntries;
+
+    // open addressing table with linear probing from masks to entry index + 1
+    private final int[] table;
+    private final int mask;
+
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Creates an empty cache
+     *
+     * @param maxSize maximal number of cached values
+     */
+    public ConstraintMaskCache(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Invalid cache size " + maxSize);
+        this.maxSize = maxSize;
+        keyLow = new long[maxSize];
+        keyHigh = new long[maxSize];
+        values = new Object[maxSize];
+        previous = new int[maxSize];
+        next = new int[maxSize];
+        freeEntries = new int[maxSize];
+        int capacity = Integer.highestOneBit(maxSize) * 4;
+        table = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Gets the cached value for a set of constraints, creating it if missing
+     *
+     * @param constraintMaskLow  bits 0..63 of the constraint mask
+     * @param constraintMaskHigh bits 64..79 of the constraint mask
+     * @param factory            factory to create the value if it is not cached
+     * @return cached value for the set of constraints
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long constraintMaskLow, long constraintMaskHigh, Factory<V> factory) {
+        int entry = find(constraintMaskLow, constraintMaskHigh);
+        if (entry != NONE) {
+            hitCount++;
+            unlink(entry);
+            linkFirst(entry);
+            return (V) values[entry];
+        }
+
+        missCount++;
+        V value = factory.create(ConstraintMask.of(constraintMaskLow, constraintMaskHigh));
+        if (size == maxSize)
+            remove(tail);
+        entry = freeCount > 0 ? freeEntries[--freeCount] : usedEntries++;
+        keyLow[entry] = constraintMaskLow;
+        keyHigh[entry] = constraintMaskHigh;
+        values[entry] = value;
+        int slot = slot(constraintMaskLow, constraintMaskHigh);
+        while (table[slot] != 0)
+            slot = (slot + 1) & mask;
+        table[slot] = entry + 1;
+        linkFirst(entry);
+        size++;
+        return value;
+    }
+
+    /**
+     * Evicts the least recently used values until at most {@code size} values are left
+     *
+     * @param size number of values to keep
+     */
+    public void trimToSize(int size) {
+        while (this.size > Math.max(size, 0))
+            remove(tail);
+    }
+
+    /**
+     * Evicts all values
+     */
+    public void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * @return number of cached values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return maximal number of cached values
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of lookups that found a cached value
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of lookups that created a value
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ConstraintMaskCache{" +
+                "size=" + size +
+                ", maxSize=" + maxSize +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                '}';
+    }
+
+    private int find(long low, long high) {
+        int slot = slot(low, high);
+        while (table[slot] != 0) {
+            int entry = table[slot] - 1;
+            if (keyLow[entry] == low && keyHigh[entry] == high)
+                return entry;
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    /**
+     * Removes an entry from the table and the list and puts it to the free entries
+     */
+    private void remove(int entry) {
+        int slot = slot(keyLow[entry], keyHigh[entry]);
+        while (table[slot] != entry + 1)
+            slot = (slot + 1) & mask;
+        table[slot] = 0;
+        // shift back the following entries of the probe sequence that would become unreachable
+        for (int current = (slot + 1) & mask; table[current] != 0; current = (current + 1) & mask) {
+            int moved = table[current] - 1;
+            int ideal = slot(keyLow[moved], keyHigh[moved]);
+            if (((current - ideal) & mask) >= ((current - slot) & mask)) {
+                table[slot] = table[current];
+                table[current] = 0;
+                slot = current;
+            }
+        }
+
+        unlink(entry);
+        values[entry] = null;
+        freeEntries[freeCount++] = entry;
+        size--;
+    }
+
+    private void unlink(int entry) {
+        if (previous[entry] == NONE)
+            head = next[entry];
+        else
+            next[previous[entry]] = next[entry];
+        if (next[entry] == NONE)
+            tail = previous[entry];
+        else
+            previous[next[entry]] = previous[entry];
+    }
+
+    private void linkFirst(int entry) {
+        previous[entry] = NONE;
+        next[entry] = head;
+        if (head == NONE)
+            tail = entry;
+        else
+            previous[head] = entry;
+        head = entry;
+    }
+
+    private int slot(long low, long high) {
+        long h = (low * 0x9E3779B97F4A7C15L) ^ (high * 0xC2B2AE3D27D4EB4FL);
+        return (int) (h >>> 32) & mask;
+    }
+}
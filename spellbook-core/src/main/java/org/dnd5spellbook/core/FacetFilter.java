@@ -0,0 +1,141 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.School;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Immutable filter by spell properties parsed from spell headers: schools, ritual,
+ * concentration and components, see {@link SpellAttributes}. Every facet is evaluated
+ * as bitwise operations over precomputed bitsets, see {@link SpellFacets}.
+ * <p/>
+ * Filters are changed by {@code with} methods that return a modified copy.
+ */
+public final class FacetFilter {
+
+    /**
+     * Component flags of all components, see {@link SpellHeader#VERBAL}
+     */
+    public static final int ALL_COMPONENTS = SpellHeader.VERBAL | SpellHeader.SOMATIC | SpellHeader.MATERIAL;
+
+    /**
+     * Filter matching every spell: all schools and components, rituals and concentration
+     */
+    public static final FacetFilter ANY = new FacetFilter(
+            Collections.unmodifiableSet(EnumSet.allOf(School.class)), false, false, ALL_COMPONENTS);
+
+    private final Set<School> schools;
+    private final boolean ritualOnly;
+    private final boolean withoutConcentration;
+    private final int components;
+
+    private FacetFilter(Set<School> schools, boolean ritualOnly, boolean withoutConcentration, int components) {
+        this.schools = schools;
+        this.ritualOnly = ritualOnly;
+        this.withoutConcentration = withoutConcentration;
+        this.components = components;
+    }
+
+    /**
+     * @return unmodifiable set of schools that limits matched spells
+     */
+    public Set<School> getSchools() {
+        return schools;
+    }
+
+    /**
+     * @param schools set of schools that will limit matched spells; it is copied
+     * @return copy of the filter with the school facet changed
+     */
+    public FacetFilter withSchools(Set<School> schools) {
+        Set<School> copy = schools.isEmpty() ? EnumSet.noneOf(School.class) : EnumSet.copyOf(schools);
+        return new FacetFilter(Collections.unmodifiableSet(copy), ritualOnly, withoutConcentration, components);
+    }
+
+    /**
+     * @return true if only spells that can be cast as rituals are matched
+     */
+    public boolean isRitualOnly() {
+        return ritualOnly;
+    }
+
+    /**
+     * @param ritualOnly whether only spells that can be cast as rituals should be matched
+     * @return copy of the filter with the ritual facet changed
+     */
+    public FacetFilter withRitualOnly(boolean ritualOnly) {
+        return new FacetFilter(schools, ritualOnly, withoutConcentration, components);
+    }
+
+    /**
+     * @return true if spells requiring concentration are filtered out
+     */
+    public boolean isWithoutConcentration() {
+        return withoutConcentration;
+    }
+
+    /**
+     * @param withoutConcentration whether spells requiring concentration should be filtered out
+     * @return copy of the filter with the concentration facet changed
+     */
+    public FacetFilter withoutConcentration(boolean withoutConcentration) {
+        return new FacetFilter(schools, ritualOnly, withoutConcentration, components);
+    }
+
+    /**
+     * @return flags of the components a matched spell may have
+     */
+    public int getComponents() {
+        return components;
+    }
+
+    /**
+     * Limits spells to those that can be cast with the given components only, e.g.
+     * {@code SOMATIC | MATERIAL} matches spells without a verbal component
+     *
+     * @param components flags of the components a matched spell may have, see
+     *                   {@link SpellHeader#VERBAL}
+     * @return copy of the filter with the component facet changed
+     */
+    public FacetFilter withComponents(int components) {
+        return new FacetFilter(schools, ritualOnly, withoutConcentration, components & ALL_COMPONENTS);
+    }
+
+    /**
+     * @return true if the filter matches every spell
+     */
+    public boolean isAny() {
+        return equals(ANY);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        FacetFilter that = (FacetFilter) o;
+        return ritualOnly == that.ritualOnly && withoutConcentration == that.withoutConcentration
+                && components == that.components && schools.equals(that.schools);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = schools.hashCode();
+        result = 31 * result + (ritualOnly ? 1 : 0);
+        result = 31 * result + (withoutConcentration ? 1 : 0);
+        result = 31 * result + components;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "FacetFilter{" +
+                "schools=" + schools +
+                ", ritualOnly=" + ritualOnly +
+                ", withoutConcentration=" + withoutConcentration +
+                ", components=" + components +
+                '}';
+    }
+}
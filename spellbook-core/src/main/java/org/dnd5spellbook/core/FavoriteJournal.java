@@ -0,0 +1,295 @@
+package org.dnd5spellbook.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Durable favorites: a snapshot in a {@link FavoriteStore} plus an append-only journal of
+ * favorite changes made since the snapshot. A change is a 4 byte record appended to the
+ * journal by a background writer thread, which syncs the journal once per batch of
+ * records, so a change is durable a single fsync after it is made, and a burst of
+ * changes costs a single fsync. When the journal grows long, or when requested, it is
+ * compacted: the favorites are written to the snapshot and the journal is truncated.
+ * <p/>
+ * On {@link #open}, the journal is replayed over the snapshot. A record sets the favorite
+ * mark of a spell rather than toggling it, so replaying records which are already in the
+ * snapshot, after a crash during compaction, is harmless. A record torn by a crash, and
+ * everything after it, is dropped.
+ * <p/>
+ * Record layout (big endian): a marker byte {@code 0xA0 | favorite} followed by three
+ * bytes of the stable spell id, see {@link SpellIdRegistry}.
+ * <p/>
+ * {@link #setFavorite} and {@link #getFavoriteIds} are meant to be called from a single
+ * thread, e.g. the UI thread; they never block on I/O.
+ */
+public class FavoriteJournal implements Closeable {
+
+    /**
+     * Default number of journal records that triggers compaction
+     */
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1024;
+
+    /**
+     * Largest spell id that can be journaled
+     */
+    public static final int MAX_ID = 0xffffff;
+
+    private static final int RECORD_SIZE = 4;
+    private static final int MARKER = 0xa0;
+
+    private static final Logger logger = Logger.getLogger(FavoriteJournal.class.getName());
+
+    private final FavoriteStore store;
+    private final File file;
+    private final int compactionThreshold;
+    private final ExecutorService writer;
+
+    // state of the calling thread
+    private FavoriteSet favoriteIds;
+
+    // records not passed to the writer yet, guarded by pendingLock
+    private final Object pendingLock = new Object();
+    private int[] pending = new int[16];
+    private int pendingCount;
+    private boolean flushScheduled;
+
+    // state of the writer thread: the favorites and records that are on disk
+    private final FileOutputStream out;
+    private FavoriteSet durableIds;
+    private int recordCount;
+    private volatile IOException failure;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            writePending();
+        }
+    };
+
+    private final Runnable compactTask = new Runnable() {
+        @Override
+        public void run() {
+            compactNow();
+        }
+    };
+
+    private FavoriteJournal(FavoriteStore store, File file, int compactionThreshold,
+                            FavoriteSet favoriteIds, int recordCount) throws IOException {
+        this.store = store;
+        this.file = file;
+        this.compactionThreshold = compactionThreshold;
+        this.favoriteIds = favoriteIds;
+        this.durableIds = favoriteIds;
+        this.recordCount = recordCount;
+        this.out = new FileOutputStream(file, true);
+        this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "FavoriteJournal");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Opens a journal with {@link #DEFAULT_COMPACTION_THRESHOLD}, see
+     * {@link #open(FavoriteStore, File, int)}
+     */
+    public static FavoriteJournal open(FavoriteStore store, File file) throws IOException {
+        return open(store, file, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Opens a journal, recovering the favorites from the snapshot and the journal file.
+     * A torn record at the end of the journal file is cut off.
+     *
+     * @param store               snapshot of the favorites
+     * @param file                journal file; created if missing
+     * @param compactionThreshold number of journal records that triggers compaction
+     * @return journal holding the recovered favorites
+     * @throws IOException if the snapshot or the journal can't be read
+     */
+    public static FavoriteJournal open(FavoriteStore store, File file, int compactionThreshold) throws IOException {
+        FavoriteSet favoriteIds = store.read();
+        int recordCount = 0;
+        RandomAccessFile journal = new RandomAccessFile(file, "rw");
+        try {
+            long length = journal.length();
+            if (length > Integer.MAX_VALUE)
+                throw new IOException("Favorites journal is too long: " + file);
+            byte[] data = new byte[(int) length];
+            journal.readFully(data);
+            ByteBuffer records = ByteBuffer.wrap(data);
+            while (records.remaining() >= RECORD_SIZE) {
+                int record = records.getInt();
+                if ((record >>> 25) != (MARKER >>> 1))
+                    break;
+                favoriteIds = favoriteIds.with(record & MAX_ID, (record & (1 << 24)) != 0);
+                recordCount++;
+            }
+            if (recordCount * RECORD_SIZE != length) {
+                logger.warning("Dropping " + (length - recordCount * RECORD_SIZE)
+                        + " bytes of a torn favorites journal " + file);
+                journal.setLength(recordCount * RECORD_SIZE);
+                journal.getFD().sync();
+            }
+        } finally {
+            journal.close();
+        }
+        return new FavoriteJournal(store, file, compactionThreshold, favoriteIds, recordCount);
+    }
+
+    /**
+     * @return set of stable ids of favorite spells, including changes not yet durable
+     */
+    public FavoriteSet getFavoriteIds() {
+        return favoriteIds;
+    }
+
+    /**
+     * Marks a spell as favorite or clears the mark. The change is journaled in background.
+     *
+     * @param id       stable id of the spell, from 0 to {@link #MAX_ID}
+     * @param favorite whether the spell should be favorite
+     */
+    public void setFavorite(int id, boolean favorite) {
+        if (id < 0 || id > MAX_ID)
+            throw new IllegalArgumentException("Invalid spell id " + id);
+        FavoriteSet changed = favoriteIds.with(id, favorite);
+        if (changed == favoriteIds)
+            return;
+        favoriteIds = changed;
+        synchronized (pendingLock) {
+            if (pendingCount == pending.length)
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+            pending[pendingCount++] = ((MARKER | (favorite ? 1 : 0)) << 24) | id;
+            if (!flushScheduled) {
+                flushScheduled = true;
+                writer.execute(flushTask);
+            }
+        }
+    }
+
+    /**
+     * Requests compaction of the journal in background. Does nothing if the journal is
+     * empty by the time compaction starts.
+     */
+    public void requestCompaction() {
+        writer.execute(compactTask);
+    }
+
+    /**
+     * Waits until every change made so far is durable
+     *
+     * @throws IOException if the journal couldn't be written
+     */
+    public void flush() throws IOException {
+        try {
+            writer.submit(new Runnable() {
+                @Override
+                public void run() {
+                    // runs after every flush scheduled so far
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while flushing favorites journal", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e);
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Flushes the changes and stops the writer thread
+     *
+     * @throws IOException if the journal couldn't be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * Appends the pending records to the journal and syncs it; runs on the writer thread
+     */
+    private void writePending() {
+        ByteBuffer records;
+        synchronized (pendingLock) {
+            records = ByteBuffer.allocate(pendingCount * RECORD_SIZE);
+            records.asIntBuffer().put(pending, 0, pendingCount);
+            pendingCount = 0;
+            flushScheduled = false;
+        }
+        try {
+            out.write(records.array());
+            out.getFD().sync();
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        while (records.hasRemaining()) {
+            int record = records.getInt();
+            durableIds = durableIds.with(record & MAX_ID, (record & (1 << 24)) != 0);
+            recordCount++;
+        }
+        if (recordCount >= compactionThreshold)
+            compactNow();
+    }
+
+    /**
+     * Writes the durable favorites to the snapshot and truncates the journal; runs on the
+     * writer thread. A crash between the two steps leaves records which are already in the
+     * snapshot, and replaying them doesn't change anything.
+     */
+    private void compactNow() {
+        if (recordCount == 0)
+            return;
+        try {
+            store.write(durableIds);
+            out.getChannel().truncate(0);
+            out.getFD().sync();
+            logger.info("Compacted " + recordCount + " journal records into " + store);
+            recordCount = 0;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        logger.log(Level.SEVERE, "Can't write favorites journal " + file, e);
+        failure = e;
+    }
+
+    @Override
+    public String toString() {
+        return "FavoriteJournal{" +
+                "file=" + file +
+                ", store=" + store +
+                '}';
+    }
+}
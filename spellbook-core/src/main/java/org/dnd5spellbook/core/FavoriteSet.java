@@ -0,0 +1,136 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable set of favorite spells as a bitset over spell positions in a list, or over
+ * stable spell ids when the set is persisted, see {@link FavoriteStore}. Changing a
+ * favorite mark creates a new set, so a set can be handed to a background thread
+ * while the user keeps marking spells on the UI thread, without locks.
+ */
+public final class FavoriteSet {
+
+    /**
+     * Set without favorite spells
+     */
+    public static final FavoriteSet EMPTY = new FavoriteSet(new long[0]);
+
+    private final long[] words;
+
+    private FavoriteSet(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Creates a set of spells marked as favorite, see {@link Spell#isFavorite}
+     *
+     * @param spells list of spells
+     * @return set of positions of favorite spells in the list
+     */
+    public static FavoriteSet of(List<Spell> spells) {
+        long[] words = new long[(spells.size() + 63) >>> 6];
+        for (int i = 0; i < spells.size(); i++)
+            if (spells.get(i).isFavorite())
+                words[i >>> 6] |= 1L << i;
+        return new FavoriteSet(words);
+    }
+
+    /**
+     * Creates a set of the stable ids of spells marked as favorite, see {@link Spell#getId}.
+     * Spells without ids are skipped.
+     *
+     * @param spells spells to look at
+     * @return set of ids of favorite spells
+     */
+    public static FavoriteSet ofIds(List<Spell> spells) {
+        int maxId = Spell.NO_ID;
+        for (Spell spell : spells)
+            if (spell.isFavorite())
+                maxId = Math.max(maxId, spell.getId());
+        long[] words = new long[(maxId + 64) >>> 6];
+        for (Spell spell : spells)
+            if (spell.isFavorite() && spell.getId() != Spell.NO_ID)
+                words[spell.getId() >>> 6] |= 1L << spell.getId();
+        return new FavoriteSet(words);
+    }
+
+    /**
+     * Creates a set from words of a bitset, see {@link #toWords}
+     *
+     * @param words bitset words; the array is copied
+     * @return set of the bits set in the words
+     */
+    public static FavoriteSet fromWords(long[] words) {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0)
+            length--;
+        return length == 0 ? EMPTY : new FavoriteSet(Arrays.copyOf(words, length));
+    }
+
+    /**
+     * @return copy of the bitset words of the set, without trailing zero words
+     */
+    public long[] toWords() {
+        return fromWords(words).words.clone();
+    }
+
+    /**
+     * @param position position of a spell
+     * @return true if the spell at the position is favorite
+     */
+    public boolean contains(int position) {
+        int word = position >>> 6;
+        return word < words.length && (words[word] & (1L << position)) != 0;
+    }
+
+    /**
+     * Creates a copy of the set with the favorite mark of a spell changed
+     *
+     * @param position position of the spell
+     * @param favorite whether the spell should be favorite
+     * @return new set, or this set if the mark is unchanged
+     */
+    public FavoriteSet with(int position, boolean favorite) {
+        if (contains(position) == favorite)
+            return this;
+        long[] copy = Arrays.copyOf(words, Math.max(words.length, (position >>> 6) + 1));
+        copy[position >>> 6] ^= 1L << position;
+        return new FavoriteSet(copy);
+    }
+
+    /**
+     * @return number of spells in the set
+     */
+    public int size() {
+        int size = 0;
+        for (long word : words)
+            size += Long.bitCount(word);
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof FavoriteSet))
+            return false;
+        long[] other = ((FavoriteSet) o).words;
+        for (int i = 0; i < Math.max(words.length, other.length); i++)
+            if ((i < words.length ? words[i] : 0) != (i < other.length ? other[i] : 0))
+                return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(fromWords(words).words);
+    }
+
+    @Override
+    public String toString() {
+        return "FavoriteSet{size=" + size() + '}';
+    }
+}
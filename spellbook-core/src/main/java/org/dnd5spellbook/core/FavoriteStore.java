@@ -0,0 +1,126 @@
+package org.dnd5spellbook.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Persists favorite spells as a bitset over stable spell ids, see {@link SpellIdRegistry}.
+ * Favorites of spells hidden by filters or not loaded yet are kept as well, since the
+ * bitset covers every id. The file is replaced atomically: the new content is written
+ * and synced to a temporary file which is then renamed over the old one, so a crash
+ * leaves either the old or the new favorites.
+ * <p/>
+ * The layout of the file (all numbers are big endian) is:
+ * <pre>
+ * int     magic ("SPFV")
+ * short   version
+ * int     word count W
+ * long[W] bitset words; bit i of word w is set if the spell with id 64 * w + i is favorite
+ * </pre>
+ */
+public class FavoriteStore {
+
+    private static final int MAGIC = 0x53504656;
+    private static final short VERSION = 1;
+
+    private final File file;
+    private final File tempFile;
+
+    /**
+     * Creates a store; nothing is read or written until requested
+     *
+     * @param file file keeping the favorites
+     */
+    public FavoriteStore(File file) {
+        this.file = file;
+        this.tempFile = new File(file.getPath() + ".tmp");
+    }
+
+    /**
+     * @return true if favorites were ever written to the store
+     */
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Reads the favorites with a single read of the file
+     *
+     * @return set of ids of favorite spells; empty if the store doesn't exist
+     * @throws IOException if the file can't be read or is invalid
+     */
+    public FavoriteSet read() throws IOException {
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        } catch (FileNotFoundException e) {
+            return FavoriteSet.EMPTY;
+        }
+        try {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a favorites file: " + file);
+            short version = in.readShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported favorites file version " + version);
+            int count = in.readInt();
+            if (count < 0 || count > file.length() / 8)
+                throw new IOException("Malformed favorites file: " + file);
+            long[] words = new long[count];
+            for (int i = 0; i < count; i++)
+                words[i] = in.readLong();
+            return FavoriteSet.fromWords(words);
+        } catch (EOFException e) {
+            throw new IOException("Truncated favorites file: " + file, e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Replaces the stored favorites
+     *
+     * @param favoriteIds set of ids of favorite spells
+     * @throws IOException if the favorites can't be written; the stored favorites are
+     *                     unchanged then
+     */
+    public void write(FavoriteSet favoriteIds) throws IOException {
+        long[] words = favoriteIds.toWords();
+        FileOutputStream stream = new FileOutputStream(tempFile);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(words.length);
+            for (long word : words)
+                out.writeLong(word);
+            out.flush();
+            stream.getFD().sync();
+        } catch (IOException e) {
+            stream.close();
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            throw e;
+        }
+        stream.close();
+        if (!tempFile.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            throw new IOException("Can't replace " + file);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FavoriteStore{" +
+                "file=" + file +
+                '}';
+    }
+}
@@ -0,0 +1,59 @@
+package org.dnd5spellbook.core;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link AssetSource} that reads files from a directory on disk
+ */
+public class FileAssetSource implements AssetSource {
+
+    private final File root;
+
+    /**
+     * Creates an asset source over a directory
+     *
+     * @param root directory that asset paths are relative to
+     */
+    public FileAssetSource(File root) {
+        this.root = root;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public InputStream open(String path) throws IOException {
+        return new BufferedInputStream(new FileInputStream(new File(root, path)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] list(String path) throws IOException {
+        String[] names = new File(root, path).list();
+        if (names == null)
+            throw new IOException("Can't list " + new File(root, path));
+        return names;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ByteBuffer map(String path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(new File(root, path), "r");
+        try {
+            return file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        } finally {
+            file.close();
+        }
+    }
+}
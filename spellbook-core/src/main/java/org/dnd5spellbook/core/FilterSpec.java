@@ -0,0 +1,199 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.ConstraintMask;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of everything a spell search depends on: the query, the search
+ * mode, the class, level, facet and favorite filters, and the favorite spells themselves.
+ * A snapshot is taken on the UI thread when filtering is requested and handed to
+ * the filtering thread, so filtering never sees filters changed halfway.
+ * <p/>
+ * Specs are changed by {@code with} methods that return a modified copy.
+ */
+public final class FilterSpec {
+
+    /**
+     * Spec matching every spell: empty query, name search, all classes and levels, any facets
+     */
+    public static final FilterSpec DEFAULT;
+
+    static {
+        Set<Integer> levels = new HashSet<>(ConstraintMask.LEVEL_COUNT);
+        for (int i = 0; i < ConstraintMask.LEVEL_COUNT; i++)
+            levels.add(i);
+        DEFAULT = new FilterSpec("", false, false, Collections.unmodifiableSet(EnumSet.allOf(ClassName.class)),
+                Collections.unmodifiableSet(levels), FacetFilter.ANY, FavoriteSet.EMPTY);
+    }
+
+    private final String query;
+    private final boolean fullTextSearch;
+    private final boolean showFavOnly;
+    private final Set<ClassName> classNames;
+    private final Set<Integer> levels;
+    private final ConstraintMask constraintMask;
+    private final FacetFilter facetFilter;
+    private final FavoriteSet favorites;
+
+    private FilterSpec(String query, boolean fullTextSearch, boolean showFavOnly,
+                       Set<ClassName> classNames, Set<Integer> levels, FacetFilter facetFilter,
+                       FavoriteSet favorites) {
+        this(query, fullTextSearch, showFavOnly, classNames, levels, ConstraintMask.of(classNames, levels),
+                facetFilter, favorites);
+    }
+
+    // the mask is passed by copies that keep the class and level filters, so typing a
+    // query doesn't compute it again for every keystroke
+    private FilterSpec(String query, boolean fullTextSearch, boolean showFavOnly,
+                       Set<ClassName> classNames, Set<Integer> levels, ConstraintMask constraintMask,
+                       FacetFilter facetFilter, FavoriteSet favorites) {
+        this.query = query;
+        this.fullTextSearch = fullTextSearch;
+        this.showFavOnly = showFavOnly;
+        this.classNames = classNames;
+        this.levels = levels;
+        this.constraintMask = constraintMask;
+        this.facetFilter = facetFilter;
+        this.favorites = favorites;
+    }
+
+    /**
+     * @return normalized query, see {@link NameIndex#normalize}
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * @param query string to search for; null matches every spell
+     * @return copy of the spec with the query normalized
+     */
+    public FilterSpec withQuery(CharSequence query) {
+        String normalized = query == null ? "" : NameIndex.normalize(query);
+        return new FilterSpec(normalized, fullTextSearch, showFavOnly, classNames, levels, constraintMask,
+                facetFilter, favorites);
+    }
+
+    /**
+     * @return true if the query is searched in spell descriptions rather than names
+     */
+    public boolean isFullTextSearch() {
+        return fullTextSearch;
+    }
+
+    /**
+     * @param fullTextSearch whether the query should be searched in spell descriptions
+     * @return copy of the spec with the search mode changed
+     */
+    public FilterSpec withFullTextSearch(boolean fullTextSearch) {
+        return new FilterSpec(query, fullTextSearch, showFavOnly, classNames, levels, constraintMask,
+                facetFilter, favorites);
+    }
+
+    /**
+     * @return true if only favorite spells are matched
+     */
+    public boolean isShowFavOnly() {
+        return showFavOnly;
+    }
+
+    /**
+     * @param showFavOnly whether only favorite spells should be matched
+     * @return copy of the spec with the favorite filter changed
+     */
+    public FilterSpec withShowFavOnly(boolean showFavOnly) {
+        return new FilterSpec(query, fullTextSearch, showFavOnly, classNames, levels, constraintMask,
+                facetFilter, favorites);
+    }
+
+    /**
+     * @return unmodifiable set of classes that limits matched spells
+     */
+    public Set<ClassName> getClassNames() {
+        return classNames;
+    }
+
+    /**
+     * @param classNames set of classes that will limit matched spells; it is copied
+     * @return copy of the spec with the class filter changed
+     */
+    public FilterSpec withClassNames(Set<ClassName> classNames) {
+        Set<ClassName> copy = classNames.isEmpty() ? EnumSet.noneOf(ClassName.class) : EnumSet.copyOf(classNames);
+        return new FilterSpec(query, fullTextSearch, showFavOnly, Collections.unmodifiableSet(copy), levels, facetFilter, favorites);
+    }
+
+    /**
+     * @return unmodifiable set of levels that limits matched spells
+     */
+    public Set<Integer> getLevels() {
+        return levels;
+    }
+
+    /**
+     * @param levels set of levels that will limit matched spells; it is copied
+     * @return copy of the spec with the level filter changed
+     */
+    public FilterSpec withLevels(Set<Integer> levels) {
+        Set<Integer> copy = Collections.unmodifiableSet(new HashSet<>(levels));
+        return new FilterSpec(query, fullTextSearch, showFavOnly, classNames, copy, facetFilter, favorites);
+    }
+
+    /**
+     * Gets the constraints matching both the class and the level filter: a spell is matched
+     * if it can be cast by one of the classes at one of the levels
+     *
+     * @return mask of every combination of the filtered classes and levels
+     */
+    public ConstraintMask getConstraintMask() {
+        return constraintMask;
+    }
+
+    /**
+     * @return filter by spell properties, such as schools and components
+     */
+    public FacetFilter getFacetFilter() {
+        return facetFilter;
+    }
+
+    /**
+     * @param facetFilter filter by spell properties that will limit matched spells
+     * @return copy of the spec with the facet filter changed
+     */
+    public FilterSpec withFacetFilter(FacetFilter facetFilter) {
+        return new FilterSpec(query, fullTextSearch, showFavOnly, classNames, levels, constraintMask,
+                facetFilter, favorites);
+    }
+
+    /**
+     * @return favorite spells used by the favorite filter
+     */
+    public FavoriteSet getFavorites() {
+        return favorites;
+    }
+
+    /**
+     * @param favorites favorite spells to be used by the favorite filter
+     * @return copy of the spec with the favorite spells changed
+     */
+    public FilterSpec withFavorites(FavoriteSet favorites) {
+        return new FilterSpec(query, fullTextSearch, showFavOnly, classNames, levels, constraintMask,
+                facetFilter, favorites);
+    }
+
+    @Override
+    public String toString() {
+        return "FilterSpec{" +
+                "query='" + query + '\'' +
+                ", fullTextSearch=" + fullTextSearch +
+                ", showFavOnly=" + showFavOnly +
+                ", classNames=" + classNames +
+                ", levels=" + levels +
+                ", facetFilter=" + facetFilter +
+                '}';
+    }
+}
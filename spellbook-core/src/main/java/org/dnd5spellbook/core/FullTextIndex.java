@@ -0,0 +1,477 @@
+package org.dnd5spellbook.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Inverted index of spell descriptions. The index is written at build time by the
+ * {@code compileFullTextIndex} gradle task and read directly from a (memory mapped)
+ * buffer, so queries neither load spell html nor decode more than the posting lists
+ * of the queried terms.
+ * <p/>
+ * Documents are identified by their position in the alphabetical spell list of the
+ * bundle. The layout of the index (all numbers are big endian) is:
+ * <pre>
+ * int      magic ("SPFT")
+ * short    version
+ * int      document count
+ * int      term count T
+ * int[T+1] offsets of terms in the term block
+ * byte[]   term block, UTF-8 terms sorted by their bytes
+ * int[T+1] offsets of posting lists in the posting block
+ * byte[]   posting block
+ * </pre>
+ * A posting list holds the varint number of documents with the term followed by, for
+ * each of them, the varint document id delta, the varint term frequency and the varint
+ * deltas of the term positions within the document.
+ * <p/>
+ * Queries consist of terms and "quoted phrases"; a document matches if it has all the
+ * terms and all the phrases.
+ * <p/>
+ * Indexes of several bundles are searched together through a merged index, see
+ * {@link #merge}, which maps document ids of every bundle to positions in a merged list.
+ */
+public class FullTextIndex {
+
+    /**
+     * Name of the index file within a bundle
+     */
+    public static final String FILE_NAME = "spells.fts";
+
+    private static final int MAGIC = 0x53504654;
+    private static final short VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int[] NO_DOCUMENTS = new int[0];
+
+    private static final Comparator<byte[]> BYTES_ORDER = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] lhs, byte[] rhs) {
+            for (int i = 0; i < lhs.length && i < rhs.length; i++) {
+                int r = (lhs[i] & 0xff) - (rhs[i] & 0xff);
+                if (r != 0)
+                    return r;
+            }
+            return lhs.length - rhs.length;
+        }
+    };
+
+    private final ByteBuffer buffer;
+    // indexes of a merged index and their document ids in the merged index, or null
+    private final List<FullTextIndex> parts;
+    private final List<int[]> partDocuments;
+    private final int documentCount;
+    private final int termCount;
+    private final int termOffsetsStart;
+    private final int termBlockStart;
+    private final int postingOffsetsStart;
+    private final int postingBlockStart;
+
+    private FullTextIndex(ByteBuffer buffer, int documentCount, int termCount, int termOffsetsStart,
+                          int termBlockStart, int postingOffsetsStart, int postingBlockStart) {
+        this.buffer = buffer;
+        this.parts = null;
+        this.partDocuments = null;
+        this.documentCount = documentCount;
+        this.termCount = termCount;
+        this.termOffsetsStart = termOffsetsStart;
+        this.termBlockStart = termBlockStart;
+        this.postingOffsetsStart = postingOffsetsStart;
+        this.postingBlockStart = postingBlockStart;
+    }
+
+    private FullTextIndex(List<FullTextIndex> parts, List<int[]> partDocuments, int documentCount) {
+        this.buffer = null;
+        this.parts = parts;
+        this.partDocuments = partDocuments;
+        this.documentCount = documentCount;
+        this.termCount = 0;
+        this.termOffsetsStart = 0;
+        this.termBlockStart = 0;
+        this.postingOffsetsStart = 0;
+        this.postingBlockStart = 0;
+    }
+
+    /**
+     * Merges indexes of several bundles into one index which documents are the documents
+     * of all bundles, numbered anew. Documents that are not mapped are left out of the
+     * merged index, e.g. spells replaced by spells of another bundle.
+     *
+     * @param parts         indexes to merge
+     * @param documents     for every index, the merged document id of each of its documents,
+     *                      or -1 if the document is left out
+     * @param documentCount number of documents in the merged index
+     * @return merged index; it shares the buffers of the merged indexes
+     */
+    public static FullTextIndex merge(List<FullTextIndex> parts, List<int[]> documents, int documentCount) {
+        if (parts.size() != documents.size())
+            throw new IllegalArgumentException(parts.size() + " indexes with " + documents.size() + " document maps");
+        for (int i = 0; i < parts.size(); i++)
+            if (documents.get(i).length != parts.get(i).getDocumentCount())
+                throw new IllegalArgumentException("Document map " + i + " doesn't match its index");
+        return new FullTextIndex(new ArrayList<>(parts), new ArrayList<>(documents), documentCount);
+    }
+
+    /**
+     * Opens an index over a buffer. Only the header is read, so it is cheap to open an
+     * index over a memory mapped file.
+     *
+     * @param buffer buffer with the index content from its position to its limit
+     * @return index over the buffer
+     * @throws IOException if the buffer doesn't hold a valid index
+     */
+    public static FullTextIndex open(ByteBuffer buffer) throws IOException {
+        ByteBuffer data = buffer.slice();
+        try {
+            if (data.getInt() != MAGIC)
+                throw new IOException("Not a full text index");
+            short version = data.getShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported full text index version " + version);
+            int documentCount = data.getInt();
+            int termCount = data.getInt();
+            int termOffsetsStart = data.position();
+            int termBlockStart = termOffsetsStart + (termCount + 1) * 4;
+            int postingOffsetsStart = termBlockStart + data.getInt(termOffsetsStart + termCount * 4);
+            int postingBlockStart = postingOffsetsStart + (termCount + 1) * 4;
+            if (postingBlockStart + data.getInt(postingOffsetsStart + termCount * 4) > data.limit())
+                throw new IOException("Truncated full text index");
+            return new FullTextIndex(data, documentCount, termCount, termOffsetsStart, termBlockStart,
+                    postingOffsetsStart, postingBlockStart);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed full text index", e);
+        }
+    }
+
+    /**
+     * Splits text to lowercase terms: sequences of letters and digits
+     *
+     * @param text text to split
+     * @return terms in the order of their occurrence
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean termChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (termChar && start < 0)
+                start = i;
+            else if (!termChar && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Parses a query into phrases; a term out of quotes is a single term phrase
+     *
+     * @param query query with terms and "quoted phrases"
+     * @return list of phrases, each phrase is a list of terms
+     */
+    public static List<List<String>> parseQuery(String query) {
+        List<List<String>> phrases = new ArrayList<>();
+        String[] parts = query.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            List<String> terms = tokenize(parts[i]);
+            if (i % 2 == 1) {
+                if (!terms.isEmpty())
+                    phrases.add(terms);
+            } else
+                for (String term : terms)
+                    phrases.add(Collections.singletonList(term));
+        }
+        return phrases;
+    }
+
+    /**
+     * Writes the index of documents
+     *
+     * @param documents texts of the documents in the order of their ids
+     * @param out       stream to write the index to
+     * @throws IOException if the index can't be written
+     */
+    public static void write(List<String> documents, OutputStream out) throws IOException {
+        Map<String, List<int[]>> postings = new TreeMap<>();
+        for (int document = 0; document < documents.size(); document++) {
+            List<String> terms = tokenize(documents.get(document));
+            Map<String, List<Integer>> positions = new TreeMap<>();
+            for (int position = 0; position < terms.size(); position++) {
+                List<Integer> termPositions = positions.get(terms.get(position));
+                if (termPositions == null) {
+                    termPositions = new ArrayList<>();
+                    positions.put(terms.get(position), termPositions);
+                }
+                termPositions.add(position);
+            }
+            for (Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+                List<int[]> termPostings = postings.get(entry.getKey());
+                if (termPostings == null) {
+                    termPostings = new ArrayList<>();
+                    postings.put(entry.getKey(), termPostings);
+                }
+                int[] posting = new int[entry.getValue().size() + 1];
+                posting[0] = document;
+                for (int i = 0; i < entry.getValue().size(); i++)
+                    posting[i + 1] = entry.getValue().get(i);
+                termPostings.add(posting);
+            }
+        }
+
+        List<byte[]> terms = new ArrayList<>();
+        for (String term : postings.keySet())
+            terms.add(term.getBytes(UTF_8));
+        Collections.sort(terms, BYTES_ORDER);
+
+        ByteArrayOutputStream termBlock = new ByteArrayOutputStream();
+        ByteArrayOutputStream postingBlock = new ByteArrayOutputStream();
+        int[] termOffsets = new int[terms.size() + 1];
+        int[] postingOffsets = new int[terms.size() + 1];
+        for (int i = 0; i < terms.size(); i++) {
+            termBlock.write(terms.get(i), 0, terms.get(i).length);
+            termOffsets[i + 1] = termBlock.size();
+
+            List<int[]> termPostings = postings.get(new String(terms.get(i), UTF_8));
+            writeVarInt(postingBlock, termPostings.size());
+            int previousDocument = 0;
+            for (int[] posting : termPostings) {
+                writeVarInt(postingBlock, posting[0] - previousDocument);
+                previousDocument = posting[0];
+                writeVarInt(postingBlock, posting.length - 1);
+                int previousPosition = 0;
+                for (int j = 1; j < posting.length; j++) {
+                    writeVarInt(postingBlock, posting[j] - previousPosition);
+                    previousPosition = posting[j];
+                }
+            }
+            postingOffsets[i + 1] = postingBlock.size();
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(documents.size());
+        data.writeInt(terms.size());
+        for (int offset : termOffsets)
+            data.writeInt(offset);
+        termBlock.writeTo(data);
+        for (int offset : postingOffsets)
+            data.writeInt(offset);
+        postingBlock.writeTo(data);
+        data.flush();
+    }
+
+    /**
+     * @return number of indexed documents
+     */
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Finds documents matching a query
+     *
+     * @param query query with terms and "quoted phrases", see {@link #parseQuery}
+     * @return ids of documents that have all the terms and phrases in ascending order;
+     * all document ids if the query has no terms
+     */
+    public int[] search(String query) {
+        if (parts != null)
+            return searchParts(query);
+        int[] result = null;
+        for (List<String> phrase : parseQuery(query)) {
+            int[] documents = searchPhrase(phrase);
+            result = result == null ? documents : intersect(result, documents);
+            if (result.length == 0)
+                return result;
+        }
+        return result == null ? allDocuments() : result;
+    }
+
+    private int[] searchParts(String query) {
+        if (parseQuery(query).isEmpty())
+            return allDocuments();
+        int[] result = new int[16];
+        int count = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            int[] documents = partDocuments.get(i);
+            for (int document : parts.get(i).search(query)) {
+                if (documents[document] < 0)
+                    continue;
+                if (count == result.length)
+                    result = Arrays.copyOf(result, count * 2);
+                result[count++] = documents[document];
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private int[] allDocuments() {
+        int[] result = new int[documentCount];
+        for (int i = 0; i < documentCount; i++)
+            result[i] = i;
+        return result;
+    }
+
+    private int[] searchPhrase(List<String> phrase) {
+        Postings[] postings = new Postings[phrase.size()];
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = readPostings(phrase.get(i));
+            if (postings[i] == null)
+                return NO_DOCUMENTS;
+        }
+        if (postings.length == 1)
+            return postings[0].documents;
+
+        int[] result = new int[postings[0].documents.length];
+        int count = 0;
+        int[] indexes = new int[postings.length];
+        for (int i = 0; i < postings[0].documents.length; i++) {
+            int document = postings[0].documents[i];
+            indexes[0] = i;
+            boolean found = true;
+            for (int j = 1; j < postings.length && found; j++) {
+                indexes[j] = Arrays.binarySearch(postings[j].documents, document);
+                found = indexes[j] >= 0;
+            }
+            if (found && hasPhraseAt(postings, indexes))
+                result[count++] = document;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Checks whether the phrase terms follow each other within a document
+     *
+     * @param postings postings of the phrase terms
+     * @param indexes  index of the document in the posting list of every term
+     */
+    private static boolean hasPhraseAt(Postings[] postings, int[] indexes) {
+        for (int start : postings[0].positions[indexes[0]]) {
+            boolean found = true;
+            for (int j = 1; j < postings.length && found; j++)
+                found = Arrays.binarySearch(postings[j].positions[indexes[j]], start + j) >= 0;
+            if (found)
+                return true;
+        }
+        return false;
+    }
+
+    private static int[] intersect(int[] lhs, int[] rhs) {
+        int[] result = new int[Math.min(lhs.length, rhs.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < lhs.length && j < rhs.length; ) {
+            if (lhs[i] < rhs[j])
+                i++;
+            else if (lhs[i] > rhs[j])
+                j++;
+            else {
+                result[count++] = lhs[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Decoded posting list of a term
+     */
+    private static class Postings {
+        private final int[] documents;
+        private final int[][] positions;
+
+        private Postings(int[] documents, int[][] positions) {
+            this.documents = documents;
+            this.positions = positions;
+        }
+    }
+
+    /**
+     * Finds a term with binary search and decodes its posting list
+     *
+     * @return postings of the term or null if no document has the term
+     */
+    private Postings readPostings(String term) {
+        byte[] key = term.getBytes(UTF_8);
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int r = compareTerm(middle, key);
+            if (r < 0)
+                low = middle + 1;
+            else if (r > 0)
+                high = middle - 1;
+            else
+                return decodePostings(middle);
+        }
+        return null;
+    }
+
+    private int compareTerm(int index, byte[] key) {
+        int start = termBlockStart + buffer.getInt(termOffsetsStart + index * 4);
+        int length = termBlockStart + buffer.getInt(termOffsetsStart + (index + 1) * 4) - start;
+        for (int i = 0; i < length && i < key.length; i++) {
+            int r = (buffer.get(start + i) & 0xff) - (key[i] & 0xff);
+            if (r != 0)
+                return r;
+        }
+        return length - key.length;
+    }
+
+    private Postings decodePostings(int index) {
+        int[] position = {postingBlockStart + buffer.getInt(postingOffsetsStart + index * 4)};
+        int count = readVarInt(position);
+        int[] documents = new int[count];
+        int[][] positions = new int[count][];
+        int document = 0;
+        for (int i = 0; i < count; i++) {
+            document += readVarInt(position);
+            documents[i] = document;
+            positions[i] = new int[readVarInt(position)];
+            int termPosition = 0;
+            for (int j = 0; j < positions[i].length; j++) {
+                termPosition += readVarInt(position);
+                positions[i][j] = termPosition;
+            }
+        }
+        return new Postings(documents, positions);
+    }
+
+    /**
+     * Reads an unsigned varint at {@code position[0]} and advances the position
+     */
+    private int readVarInt(int[] position) {
+        int result = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get(position[0]++);
+            result |= (b & 0x7f) << shift;
+            if (b >= 0)
+                return result;
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -0,0 +1,211 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * BK-tree over normalized spell names for typo tolerant search. Every child of a node
+ * is kept under its edit distance to the node, and by the triangle inequality only
+ * children which distance is within {@code maxDistance} of the distance between the
+ * query and the node can hold matches, so most of the names are never compared.
+ * <p/>
+ * The edit distance is the Levenshtein distance: the number of inserted, deleted and
+ * replaced characters.
+ */
+public class FuzzyNameIndex {
+
+    private final String[] names;
+    private final Node root;
+
+    /**
+     * Builds an index over spell names
+     *
+     * @param spells spells to index; positions in the list are used as spell ids
+     */
+    public FuzzyNameIndex(List<Spell> spells) {
+        names = new String[spells.size()];
+        Node root = null;
+        int[] previous = new int[1];
+        int[] current = new int[1];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = spells.get(i).getNormalizedName();
+            if (root == null) {
+                root = new Node(i);
+                continue;
+            }
+            if (previous.length <= names[i].length()) {
+                previous = new int[names[i].length() + 1];
+                current = new int[names[i].length() + 1];
+            }
+            Node node = root;
+            while (true) {
+                int distance = distance(names[node.position], names[i], previous, current);
+                Node child = node.child(distance);
+                if (child == null) {
+                    node.addChild(distance, new Node(i));
+                    break;
+                }
+                node = child;
+            }
+        }
+        this.root = root;
+    }
+
+    /**
+     * Gets the largest edit distance at which a name is still considered a misspelling
+     * of a query, growing with the query length: one typo in a short word, up to three
+     * in a long name.
+     *
+     * @param queryLength length of the query
+     * @return maximal edit distance of a match
+     */
+    public static int maxDistance(int queryLength) {
+        if (queryLength < 3)
+            return 0;
+        if (queryLength < 6)
+            return 1;
+        if (queryLength < 12)
+            return 2;
+        return 3;
+    }
+
+    /**
+     * @return number of indexed spells
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Finds spells which normalized names are within an edit distance of a normalized
+     * query. Matches are ranked by the edit distance, then by the length of the prefix
+     * they share with the query, then by position, which is alphabetical order of names
+     * for a sorted spell list.
+     *
+     * @param query       normalized query, see {@link NameIndex#normalize}
+     * @param maxDistance maximal edit distance of a match
+     * @return positions of matching spells in ranking order
+     */
+    public int[] find(final String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root != null) {
+            int[] previous = new int[query.length() + 1];
+            int[] current = new int[query.length() + 1];
+            Deque<Node> pending = new ArrayDeque<>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                Node node = pending.pop();
+                int distance = distance(names[node.position], query, previous, current);
+                if (distance <= maxDistance)
+                    matches.add(new Match(node.position, distance, commonPrefixLength(names[node.position], query)));
+                for (int i = 0; i < node.size; i++)
+                    if (Math.abs(node.distances[i] - distance) <= maxDistance)
+                        pending.push(node.children[i]);
+            }
+        }
+
+        Collections.sort(matches, Match.RANKING_COMPARATOR);
+        int[] result = new int[matches.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = matches.get(i).position;
+        return result;
+    }
+
+    /**
+     * Computes the Levenshtein distance between two strings keeping only two rows of
+     * the distance table
+     *
+     * @param s        string which characters correspond to table rows
+     * @param t        string which characters correspond to table columns
+     * @param previous row buffer of at least {@code t.length() + 1} elements
+     * @param current  row buffer of at least {@code t.length() + 1} elements
+     * @return edit distance between s and t
+     */
+    static int distance(String s, String t, int[] previous, int[] current) {
+        for (int j = 0; j <= t.length(); j++)
+            previous[j] = j;
+        for (int i = 1; i <= s.length(); i++) {
+            current[0] = i;
+            char c = s.charAt(i - 1);
+            for (int j = 1; j <= t.length(); j++) {
+                int replace = previous[j - 1] + (c == t.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(replace, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] row = previous;
+            previous = current;
+            current = row;
+        }
+        return previous[t.length()];
+    }
+
+    private static int commonPrefixLength(String s, String t) {
+        int length = Math.min(s.length(), t.length());
+        for (int i = 0; i < length; i++)
+            if (s.charAt(i) != t.charAt(i))
+                return i;
+        return length;
+    }
+
+    /**
+     * Tree node holding a spell and its children keyed by edit distance
+     */
+    private static class Node {
+        private final int position;
+        private int[] distances = new int[2];
+        private Node[] children = new Node[2];
+        private int size;
+
+        private Node(int position) {
+            this.position = position;
+        }
+
+        private Node child(int distance) {
+            for (int i = 0; i < size; i++)
+                if (distances[i] == distance)
+                    return children[i];
+            return null;
+        }
+
+        private void addChild(int distance, Node child) {
+            if (size == distances.length) {
+                distances = Arrays.copyOf(distances, size * 2);
+                children = Arrays.copyOf(children, size * 2);
+            }
+            distances[size] = distance;
+            children[size++] = child;
+        }
+    }
+
+    /**
+     * Spell found by {@link #find} with its ranking keys
+     */
+    private static class Match {
+        private static final Comparator<Match> RANKING_COMPARATOR = new Comparator<Match>() {
+            @Override
+            public int compare(Match lhs, Match rhs) {
+                if (lhs.distance != rhs.distance)
+                    return lhs.distance - rhs.distance;
+                if (lhs.prefixLength != rhs.prefixLength)
+                    return rhs.prefixLength - lhs.prefixLength;
+                return lhs.position - rhs.position;
+            }
+        };
+
+        private final int position;
+        private final int distance;
+        private final int prefixLength;
+
+        private Match(int position, int distance, int prefixLength) {
+            this.position = position;
+            this.distance = distance;
+            this.prefixLength = prefixLength;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package org.dnd5spellbook.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shortest edit script between two lists of item ids, found with the Myers diff
+ * algorithm in {@code O((N + M) * D)} time for {@code D} edits. The script is a sequence
+ * of removals and insertions of ranges of items; items which are in both lists are kept,
+ * so a list view only has to update the rows of removed and inserted items.
+ * <p/>
+ * Operations are reported from the end of the list to its start, and positions of every
+ * operation are in the list with all previous operations applied, so applying them one
+ * by one to the old list gives the new list.
+ * <p/>
+ * An {@link Anchor} follows a position of the old list through the operations, so that a
+ * list view can keep its first visible item in place when the list changes.
+ */
+public final class IdListDiff {
+
+    /**
+     * Default maximal number of edits that are looked for; lists that differ more are
+     * reported as replaced
+     */
+    public static final int DEFAULT_MAX_EDITS = 256;
+
+    /**
+     * Receives the operations of an edit script
+     */
+    public interface Callback {
+        /**
+         * Called when items are inserted
+         *
+         * @param position position of the first inserted item
+         * @param count    number of inserted items
+         */
+        void onInserted(int position, int count);
+
+        /**
+         * Called when items are removed
+         *
+         * @param position position of the first removed item
+         * @param count    number of removed items
+         */
+        void onRemoved(int position, int count);
+    }
+
+    /**
+     * Follows an item of the old list through the operations of an edit script to its
+     * position in the new list. If the item is removed, it follows the place of the item:
+     * the position of the first item that is inserted there or that follows it.
+     */
+    public static final class Anchor implements Callback {
+        private int position;
+        private boolean removed;
+
+        /**
+         * @param position position of the item in the old list
+         */
+        public Anchor(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            // items inserted at the place of a removed item take its place
+            if (position < this.position || (position == this.position && !removed))
+                this.position += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            if (position + count <= this.position) {
+                this.position -= count;
+            } else if (position <= this.position) {
+                this.position = position;
+                removed = true;
+            }
+        }
+
+        /**
+         * @return position of the item in the list with the operations so far applied,
+         * or of its place if it is removed; may be the size of the list if it is removed
+         * from the end
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * @return true if the item is removed
+         */
+        public boolean isRemoved() {
+            return removed;
+        }
+    }
+
+    private static final int NONE = 0;
+    private static final int INSERT = 1;
+    private static final int REMOVE = 2;
+
+    private final Callback callback;
+    private int runType = NONE;
+    private int runPosition;
+    private int runCount;
+
+    private IdListDiff(Callback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Finds the edit script with at most {@link #DEFAULT_MAX_EDITS} edits, see
+     * {@link #diff(int[], int[], int, Callback)}
+     */
+    public static int diff(int[] oldIds, int[] newIds, Callback callback) {
+        return diff(oldIds, newIds, DEFAULT_MAX_EDITS, callback);
+    }
+
+    /**
+     * Finds the shortest edit script turning a list of ids into another one. Ids should
+     * be unique within a list. If the lists differ by more than {@code maxEdits} items,
+     * all old items are reported removed and all new items inserted instead.
+     *
+     * @param oldIds   ids of the old list
+     * @param newIds   ids of the new list
+     * @param maxEdits maximal number of removed and inserted items to look for
+     * @param callback receiver of the operations
+     * @return number of removed and inserted items; 0 if the lists are equal
+     */
+    public static int diff(int[] oldIds, int[] newIds, int maxEdits, Callback callback) {
+        int n = oldIds.length;
+        int m = newIds.length;
+        int maxD = Math.min(maxEdits, n + m);
+        int offset = maxD + 1;
+        int[] v = new int[2 * maxD + 3];
+        // v of every step, kept for k from -d to d, for backtracking
+        List<int[]> trace = new ArrayList<>();
+        int edits = -1;
+        // there are at least as many edits as the difference of the lengths
+        if (Math.abs(n - m) > maxD)
+            maxD = -1;
+        for (int d = 0; d <= maxD && edits < 0; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])
+                        ? v[offset + k + 1] : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && oldIds[x] == newIds[y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    edits = d;
+                    break;
+                }
+            }
+            trace.add(Arrays.copyOfRange(v, offset - d, offset + d + 1));
+        }
+
+        if (edits < 0) {
+            if (n > 0)
+                callback.onRemoved(0, n);
+            if (m > 0)
+                callback.onInserted(0, m);
+            return n + m;
+        }
+
+        IdListDiff script = new IdListDiff(callback);
+        int x = n;
+        int y = m;
+        for (int d = edits; d > 0; d--) {
+            int[] previous = trace.get(d - 1);
+            int k = x - y;
+            boolean down = k == -d || (k != d && previous[k - 1 + d - 1] < previous[k + 1 + d - 1]);
+            int previousK = down ? k + 1 : k - 1;
+            int previousX = previous[previousK + d - 1];
+            int previousY = previousX - previousK;
+            // (previousX, previousY) is followed by one edit and a run of kept items
+            if (down)
+                script.insert(previousX);
+            else
+                script.remove(previousX);
+            x = previousX;
+            y = previousY;
+        }
+        script.flush();
+        return edits;
+    }
+
+    private void insert(int position) {
+        if (runType == INSERT && runPosition == position) {
+            runCount++;
+            return;
+        }
+        flush();
+        runType = INSERT;
+        runPosition = position;
+        runCount = 1;
+    }
+
+    private void remove(int position) {
+        if (runType == REMOVE && runPosition == position + 1) {
+            runPosition = position;
+            runCount++;
+            return;
+        }
+        flush();
+        runType = REMOVE;
+        runPosition = position;
+        runCount = 1;
+    }
+
+    private void flush() {
+        if (runType == INSERT)
+            callback.onInserted(runPosition, runCount);
+        else if (runType == REMOVE)
+            callback.onRemoved(runPosition, runCount);
+        runType = NONE;
+    }
+}
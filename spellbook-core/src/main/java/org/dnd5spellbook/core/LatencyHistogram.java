@@ -0,0 +1,191 @@
+package org.dnd5spellbook.core;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with fixed power of two buckets: bucket 0 counts latencies
+ * below a microsecond (1024ns), and bucket {@code k} counts latencies from
+ * {@code 2^(k+9)} to {@code 2^(k+10)} nanoseconds, up to the last bucket which counts
+ * everything longer. Recording is a few atomic increments without allocation, and may
+ * be done from any thread.
+ * <p/>
+ * Percentiles are reported as the upper bound of the bucket they fall into, so they
+ * are accurate within a factor of two and never understated.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of buckets
+     */
+    public static final int BUCKET_COUNT = 32;
+
+    private static final int FIRST_BUCKET_SHIFT = 10;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Creates an empty histogram
+     *
+     * @param name name of the measured stage, used in reports
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return name of the measured stage
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Starts timing a stage
+     *
+     * @return start time to be passed to {@link #stop}
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time elapsed since a stage was started
+     *
+     * @param startNanos start time returned by {@link #start}
+     */
+    public void stop(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a latency
+     *
+     * @param nanos latency in nanoseconds; negative values are counted as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        buckets.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos))
+            max = maxNanos.get();
+    }
+
+    /**
+     * @param nanos latency in nanoseconds
+     * @return index of the bucket counting the latency
+     */
+    static int bucket(long nanos) {
+        long micros = nanos >>> FIRST_BUCKET_SHIFT;
+        return micros == 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+    }
+
+    /**
+     * @param bucket index of a bucket
+     * @return exclusive upper bound of the latencies counted by the bucket in nanoseconds,
+     * or {@link Long#MAX_VALUE} for the last bucket
+     */
+    static long upperBound(int bucket) {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << (bucket + FIRST_BUCKET_SHIFT);
+    }
+
+    /**
+     * @return number of recorded latencies
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return sum of recorded latencies in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    /**
+     * @return largest recorded latency in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Gets a percentile of the recorded latencies
+     *
+     * @param percentile percentile from 0 to 100
+     * @return upper bound of the bucket of the percentile in nanoseconds, but not more than
+     * the largest latency; 0 if nothing is recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(upperBound(i), getMaxNanos());
+        }
+        return getMaxNanos();
+    }
+
+    /**
+     * Clears the recorded latencies. Latencies recorded concurrently may be partially kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            buckets.set(i, 0);
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * @return one line summary: count, mean, percentiles and maximum
+     */
+    @Override
+    public String toString() {
+        long n = getCount();
+        return name + ": count=" + n +
+                ", mean=" + formatNanos(n == 0 ? 0 : getTotalNanos() / n) +
+                ", p50<=" + formatNanos(getPercentileNanos(50)) +
+                ", p90<=" + formatNanos(getPercentileNanos(90)) +
+                ", p99<=" + formatNanos(getPercentileNanos(99)) +
+                ", max=" + formatNanos(getMaxNanos());
+    }
+
+    /**
+     * Formats a latency with a unit that keeps three significant digits or less
+     *
+     * @param nanos latency in nanoseconds
+     * @return formatted latency, such as "850ns", "12.3us" or "1.50ms"
+     */
+    static String formatNanos(long nanos) {
+        if (nanos < 1000)
+            return nanos + "ns";
+        if (nanos < 1000000)
+            return format(nanos / 1e3) + "us";
+        if (nanos < 1000000000)
+            return format(nanos / 1e6) + "ms";
+        return format(nanos / 1e9) + "s";
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, value < 10 ? "%.2f" : value < 100 ? "%.1f" : "%.0f", value);
+    }
+}
@@ -0,0 +1,161 @@
+package org.dnd5spellbook.core;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of named latency histograms and counters of the application stages, such as
+ * loading spells, filtering and binding list rows. Metrics are created on first use and
+ * live as long as the registry; callers are expected to keep the metrics they update
+ * often in fields instead of looking them up every time.
+ * <p/>
+ * The report of all metrics can be dumped on demand, e.g. to a file attached to a field
+ * report or to the log.
+ */
+public class MetricsRegistry {
+
+    /**
+     * Histogram of reading the spell list of a bundle
+     */
+    public static final String LOAD = "load";
+
+    /**
+     * Histogram of spell searches, ranking included
+     */
+    public static final String FILTER = "filter";
+
+    /**
+     * Histogram of ranking matched spells
+     */
+    public static final String RANK = "rank";
+
+    /**
+     * Histogram of publishing filtered spells to the list
+     */
+    public static final String PUBLISH = "publish";
+
+    /**
+     * Histogram of binding a spell to a list row
+     */
+    public static final String ROW_BIND = "row_bind";
+
+    /**
+     * Counter of list rows bound
+     */
+    public static final String ROWS_BOUND = "rows_bound";
+
+    /**
+     * Counter of list rows requested again for the spell they already show, which are
+     * not bound
+     */
+    public static final String ROWS_UNCHANGED = "rows_unchanged";
+
+    /**
+     * Counter of list rows inserted by publishing filtered spells
+     */
+    public static final String ROWS_INSERTED = "rows_inserted";
+
+    /**
+     * Counter of list rows removed by publishing filtered spells
+     */
+    public static final String ROWS_REMOVED = "rows_removed";
+
+    /**
+     * Counter of row backgrounds found in the cache
+     */
+    public static final String BACKGROUND_CACHE_HITS = "background_cache_hits";
+
+    /**
+     * Counter of row backgrounds created because they were not cached
+     */
+    public static final String BACKGROUND_CACHE_MISSES = "background_cache_misses";
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    /**
+     * @return registry shared by the whole application
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets a histogram, creating it on first use
+     *
+     * @param name name of the histogram
+     * @return histogram with the name
+     */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram(name);
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null)
+                histogram = created;
+        }
+        return histogram;
+    }
+
+    /**
+     * Gets a counter, creating it on first use
+     *
+     * @param name name of the counter
+     * @return counter with the name
+     */
+    public AtomicLong counter(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null)
+                counter = created;
+        }
+        return counter;
+    }
+
+    /**
+     * Clears every histogram and counter, keeping them registered
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values())
+            histogram.reset();
+        for (AtomicLong counter : counters.values())
+            counter.set(0);
+    }
+
+    /**
+     * Writes the report of all metrics: a line per histogram with its count, mean,
+     * percentiles and maximum, then a line per counter, both in name order
+     *
+     * @param writer writer to write the report to; it is not flushed
+     * @throws IOException if the report can't be written
+     */
+    public void dump(Writer writer) throws IOException {
+        for (LatencyHistogram histogram : new TreeMap<>(histograms).values())
+            writer.write(histogram + "\n");
+        for (Map.Entry<String, AtomicLong> counter : new TreeMap<>(counters).entrySet())
+            writer.write(counter.getKey() + ": " + counter.getValue().get() + "\n");
+    }
+
+    /**
+     * @return the report of all metrics, see {@link #dump}
+     */
+    public String report() {
+        StringWriter report = new StringWriter();
+        try {
+            dump(report);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return report.toString();
+    }
+}
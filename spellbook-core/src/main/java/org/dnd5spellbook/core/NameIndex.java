@@ -0,0 +1,191 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trigram index over normalized spell names. For every three consecutive characters
+ * of a normalized name the index keeps the sorted list of positions of spells which
+ * names contain them. A query of three or more characters is answered by intersecting
+ * the lists of its trigrams and checking the few remaining candidates, instead of
+ * scanning every name.
+ * <p/>
+ * Results are exactly the same as of checking {@code name.toLowerCase().contains(query)}
+ * for every spell: a name containing the query contains all its trigrams, so no match
+ * is lost, and every candidate is verified, so no false match is returned.
+ */
+public class NameIndex {
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final String[] names;
+
+    // open addressing hash table from trigram key to sorted positions of spells
+    private final long[] keys;
+    private final int[][] postings;
+    private final int mask;
+
+    /**
+     * Builds an index over spell names
+     *
+     * @param spells spells to index; positions in the list are used as spell ids
+     */
+    public NameIndex(List<Spell> spells) {
+        names = new String[spells.size()];
+        Map<Long, IntList> trigrams = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            names[i] = spells.get(i).getNormalizedName();
+            for (int j = 0; j + 3 <= names[i].length(); j++) {
+                Long key = trigramKey(names[i], j);
+                IntList positions = trigrams.get(key);
+                if (positions == null) {
+                    positions = new IntList();
+                    trigrams.put(key, positions);
+                }
+                // names are indexed in order, so positions stay sorted
+                if (positions.size == 0 || positions.values[positions.size - 1] != i)
+                    positions.add(i);
+            }
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(trigrams.size(), 1) * 2) * 2;
+        keys = new long[capacity];
+        postings = new int[capacity][];
+        mask = capacity - 1;
+        for (Map.Entry<Long, IntList> entry : trigrams.entrySet()) {
+            int slot = slot(entry.getKey());
+            while (postings[slot] != null)
+                slot = (slot + 1) & mask;
+            keys[slot] = entry.getKey();
+            postings[slot] = entry.getValue().toArray();
+        }
+    }
+
+    /**
+     * Normalizes a query for searching the same way as spell names are normalized,
+     * see {@link Spell#normalizeName}
+     *
+     * @param s string to normalize
+     * @return normalized string
+     */
+    public static String normalize(CharSequence s) {
+        return Spell.normalizeName(s);
+    }
+
+    /**
+     * @return number of indexed spells
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param position position of a spell
+     * @return normalized name of the spell
+     */
+    public String getNormalizedName(int position) {
+        return names[position];
+    }
+
+    /**
+     * Finds spells which normalized names contain a normalized query. Queries shorter
+     * than three characters have no trigrams, so they are matched against every name.
+     *
+     * @param query normalized query, see {@link #normalize}
+     * @return positions of matching spells in ascending order
+     */
+    public int[] find(String query) {
+        return find(query, null);
+    }
+
+    /**
+     * Finds spells among candidates which normalized names contain a normalized query.
+     * Candidates are checked before names, so names of other spells are never compared.
+     *
+     * @param query      normalized query, see {@link #normalize}
+     * @param candidates bitset of candidate spells, or null for every spell, see
+     *                   {@link SpellFacets#candidates}
+     * @return positions of matching spells in ascending order
+     */
+    public int[] find(String query, long[] candidates) {
+        if (query.length() < 3)
+            return scan(query, candidates);
+
+        // find the shortest posting list to drive the intersection
+        int[] shortest = null;
+        for (int j = 0; j + 3 <= query.length(); j++) {
+            int[] positions = postings(trigramKey(query, j));
+            if (positions == null)
+                return NO_POSITIONS;
+            if (shortest == null || positions.length < shortest.length)
+                shortest = positions;
+        }
+
+        int[] result = new int[shortest.length];
+        int count = 0;
+        for (int position : shortest)
+            if (SpellFacets.contains(candidates, position) && names[position].contains(query))
+                result[count++] = position;
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private int[] scan(String query, long[] candidates) {
+        int[] result = new int[names.length];
+        int count = 0;
+        if (candidates == null) {
+            for (int i = 0; i < names.length; i++)
+                if (names[i].contains(query))
+                    result[count++] = i;
+        } else {
+            // visit only the set bits of the candidates
+            for (int w = 0; w < candidates.length; w++)
+                for (long word = candidates[w]; word != 0; word &= word - 1) {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                    if (i < names.length && names[i].contains(query))
+                        result[count++] = i;
+                }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private int[] postings(long key) {
+        int slot = slot(key);
+        while (postings[slot] != null) {
+            if (keys[slot] == key)
+                return postings[slot];
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    private static long trigramKey(String s, int start) {
+        return ((long) s.charAt(start) << 32) | ((long) s.charAt(start + 1) << 16) | s.charAt(start + 2);
+    }
+
+    /**
+     * Growable list of primitive ints used while building posting lists
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Directory in application storage holding homebrew spell packs, one pack per
+ * subdirectory laid out like the shipped bundle: spell html files and the spell
+ * metadata xml. Packs are merged with the shipped bundle into one catalogue, see
+ * {@link SpellCatalogue}.
+ * <p/>
+ * Packs are usually copied to the directory without the binary files the build generates
+ * for the shipped bundle, so discovery compiles the spell id registry, the spell index, the
+ * spell attributes and the full text index of a pack into its directory, see {@link #compile}. They are
+ * compiled again when the metadata or the set of spell files changes; a spell file
+ * edited in place is picked up once the metadata is touched.
+ * <p/>
+ * Pack numbers are kept in a registry file of the directory, the same way spell ids are
+ * kept by a {@link SpellIdRegistry}, so packs keep their numbers when other packs are
+ * added or removed.
+ */
+public class PackDirectory {
+
+    /**
+     * Name of the registry of pack numbers within the directory
+     */
+    public static final String REGISTRY_FILE_NAME = "packs.txt";
+
+    /**
+     * Name of the file within a pack that holds the stamp of the pack sources the binary
+     * files were compiled from
+     */
+    public static final String STAMP_FILE_NAME = "pack.stamp";
+
+    private static final Logger logger = Logger.getLogger(PackDirectory.class.getName());
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String HTML_SUFFIX = ".html";
+
+    private final File root;
+
+    /**
+     * Creates a pack directory; nothing is read until packs are discovered
+     *
+     * @param root the directory; it may not exist yet
+     */
+    public PackDirectory(File root) {
+        this.root = root;
+    }
+
+    /**
+     * @return the directory
+     */
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Finds the packs in the directory, compiling the binary files of new and changed
+     * packs. Packs that can't be compiled are skipped and logged.
+     *
+     * @return packs ordered by name, numbered from 1
+     * @throws IOException if the registry of pack numbers can't be read or written
+     */
+    public List<SpellPack> discover() throws IOException {
+        File[] files = root.listFiles();
+        if (files == null)
+            return Collections.emptyList();
+        List<File> directories = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (File file : files)
+            if (new File(file, SpellLoader.METADATA_FILE_NAME).isFile())
+                directories.add(file);
+        Collections.sort(directories);
+        for (File directory : directories)
+            names.add(directory.getName());
+
+        File registryFile = new File(root, REGISTRY_FILE_NAME);
+        SpellIdRegistry registry = readRegistry(registryFile);
+        SpellIdRegistry updated = registry.withNames(names);
+        if (updated != registry) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            updated.write(out);
+            replace(registryFile, out.toByteArray());
+        }
+
+        List<SpellPack> packs = new ArrayList<>();
+        for (File directory : directories) {
+            int number = updated.getId(directory.getName()) + 1;
+            if (number > SpellPack.MAX_NUMBER) {
+                logger.warning("Too many packs, skipping " + directory);
+                continue;
+            }
+            try {
+                long stamp = compile(directory);
+                SpellLoader loader = new SpellLoader(new FileAssetSource(root), directory.getName());
+                packs.add(new SpellPack(directory.getName(), number, loader, directory, stamp));
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Skipping spell pack " + directory, e);
+            }
+        }
+        return packs;
+    }
+
+    /**
+     * Compiles the spell id registry, the spell index, the spell attributes and the full
+     * text index of a pack into its directory, unless they are compiled from the current sources already. New
+     * spells are appended to the id registry, so the ids of other spells are kept.
+     *
+     * @param directory directory of the pack
+     * @return stamp of the pack sources, see {@link SpellPack#getStamp}
+     * @throws IOException if the pack can't be read or the files can't be written
+     */
+    static long compile(File directory) throws IOException {
+        String[] files = directory.list();
+        if (files == null)
+            throw new IOException("Can't list " + directory);
+        List<String> spellNames = new ArrayList<>();
+        for (String file : files)
+            if (file.endsWith(HTML_SUFFIX))
+                spellNames.add(file.substring(0, file.length() - HTML_SUFFIX.length()));
+        Collections.sort(spellNames);
+        long stamp = sourceStamp(new File(directory, SpellLoader.METADATA_FILE_NAME), spellNames);
+
+        File stampFile = new File(directory, STAMP_FILE_NAME);
+        File indexFile = new File(directory, SpellIndex.FILE_NAME);
+        File attributesFile = new File(directory, SpellAttributes.FILE_NAME);
+        File fullTextFile = new File(directory, FullTextIndex.FILE_NAME);
+        if (indexFile.isFile() && attributesFile.isFile() && fullTextFile.isFile() && readStamp(stampFile) == stamp)
+            return stamp;
+        long start = LatencyHistogram.start();
+
+        File registryFile = new File(directory, SpellIdRegistry.FILE_NAME);
+        SpellIdRegistry registry = readRegistry(registryFile);
+        SpellIdRegistry updated = registry.withNames(spellNames);
+        if (updated.size() > SpellPack.ID_STRIDE)
+            throw new IOException("More than " + SpellPack.ID_STRIDE + " spell ids in " + directory);
+        if (updated != registry || !registryFile.isFile()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            updated.write(out);
+            replace(registryFile, out.toByteArray());
+        }
+
+        SpellLoader loader = new SpellLoader(new FileAssetSource(directory.getParentFile()), directory.getName());
+        List<Spell> spells = loader.readSpellListFromMetadata();
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        SpellIndex.write(spells, index);
+        replace(indexFile, index.toByteArray());
+
+        List<SpellHeader> headers = new ArrayList<>(spells.size());
+        List<String> documents = new ArrayList<>(spells.size());
+        for (Spell spell : spells) {
+            String html = loader.readSpellHtml(spell.getName());
+            headers.add(SpellHeader.parse(html));
+            documents.add(SpellHtml.articleText(html));
+        }
+        ByteArrayOutputStream attributes = new ByteArrayOutputStream();
+        SpellAttributes.of(headers).write(attributes);
+        replace(attributesFile, attributes.toByteArray());
+        ByteArrayOutputStream fullText = new ByteArrayOutputStream();
+        FullTextIndex.write(documents, fullText);
+        replace(fullTextFile, fullText.toByteArray());
+
+        replace(stampFile, Long.toString(stamp).getBytes(UTF_8));
+        logger.info("Compiled " + spells.size() + " spells of " + directory + " in "
+                + LatencyHistogram.formatNanos(System.nanoTime() - start));
+        return stamp;
+    }
+
+    /**
+     * @return number that changes when the metadata is modified or spell files are
+     * added, removed or renamed
+     */
+    private static long sourceStamp(File metadata, List<String> spellNames) {
+        return metadata.lastModified() * 31 + spellNames.hashCode();
+    }
+
+    private static long readStamp(File stampFile) throws IOException {
+        try {
+            return Long.parseLong(new String(readFully(stampFile), UTF_8).trim());
+        } catch (FileNotFoundException | NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static SpellIdRegistry readRegistry(File file) throws IOException {
+        InputStream stream;
+        try {
+            stream = new FileInputStream(file);
+        } catch (FileNotFoundException e) {
+            return SpellIdRegistry.empty();
+        }
+        try {
+            return SpellIdRegistry.read(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        InputStream stream = new FileInputStream(file);
+        try {
+            byte[] data = new byte[(int) file.length()];
+            int length = 0;
+            for (int read; length < data.length && (read = stream.read(data, length, data.length - length)) > 0; )
+                length += read;
+            return Arrays.copyOf(data, length);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Writes a file to a temporary file which is then renamed over the file, so readers
+     * see either the old or the new content
+     */
+    private static void replace(File file, byte[] content) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileOutputStream stream = new FileOutputStream(tempFile);
+        try {
+            stream.write(content);
+        } finally {
+            stream.close();
+        }
+        if (!tempFile.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            throw new IOException("Can't replace " + file);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package org.dnd5spellbook.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archive of spell html files of a bundle. The archive is written at build time by the
+ * {@code compileSpellArchive} gradle task and read directly from a (memory mapped)
+ * buffer, so showing a spell takes a slice of the archive and inflating it instead of
+ * opening a file per spell.
+ * <p/>
+ * Entries are identified by stable spell ids, see {@link SpellIdRegistry}. Every entry is
+ * compressed separately with a preset dictionary of lines shared by many spell files,
+ * such as the html skeleton and the property names, so small entries compress as well
+ * as the bundle as a whole. The layout of the archive (all numbers are big endian) is:
+ * <pre>
+ * int      magic ("SPAR")
+ * short    version
+ * int      dictionary length D
+ * byte[D]  dictionary
+ * int      entry count N
+ * int[N+1] offsets of entries in the entry block; an entry without content is empty
+ * int[N]   uncompressed lengths of entries
+ * byte[]   entry block, zlib streams compressed with the dictionary
+ * </pre>
+ */
+public class SpellArchive {
+
+    /**
+     * Name of the archive file within a bundle
+     */
+    public static final String FILE_NAME = "spells.pak";
+
+    /**
+     * Largest useful dictionary: the size of the deflate window
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private static final int MAGIC = 0x53504152;
+    private static final short VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final byte[] dictionary;
+    private final int count;
+    private final int offsetsStart;
+    private final int lengthsStart;
+    private final int entryBlockStart;
+
+    private SpellArchive(ByteBuffer buffer, byte[] dictionary, int count, int offsetsStart,
+                         int lengthsStart, int entryBlockStart) {
+        this.buffer = buffer;
+        this.dictionary = dictionary;
+        this.count = count;
+        this.offsetsStart = offsetsStart;
+        this.lengthsStart = lengthsStart;
+        this.entryBlockStart = entryBlockStart;
+    }
+
+    /**
+     * Opens an archive over a buffer. Only the header and the dictionary are read, so it
+     * is cheap to open an archive over a memory mapped file.
+     *
+     * @param buffer buffer with the archive content from its position to its limit
+     * @return archive over the buffer
+     * @throws IOException if the buffer doesn't hold a valid archive
+     */
+    public static SpellArchive open(ByteBuffer buffer) throws IOException {
+        ByteBuffer data = buffer.slice();
+        try {
+            if (data.getInt() != MAGIC)
+                throw new IOException("Not a spell archive");
+            short version = data.getShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported spell archive version " + version);
+            byte[] dictionary = new byte[data.getInt()];
+            data.get(dictionary);
+            int count = data.getInt();
+            int offsetsStart = data.position();
+            int lengthsStart = offsetsStart + (count + 1) * 4;
+            int entryBlockStart = lengthsStart + count * 4;
+            if (entryBlockStart + data.getInt(offsetsStart + count * 4) > data.limit())
+                throw new IOException("Truncated spell archive");
+            return new SpellArchive(data, dictionary, count, offsetsStart, lengthsStart, entryBlockStart);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Malformed spell archive", e);
+        }
+    }
+
+    /**
+     * @return number of entries, which is the largest spell id plus one
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param id stable id of a spell
+     * @return true if the archive has the html of the spell
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id < count && offset(id + 1) > offset(id);
+    }
+
+    /**
+     * Gets the compressed entry of a spell without copying it
+     *
+     * @param id stable id of a spell
+     * @return read-only slice of the archive buffer with the zlib stream of the entry,
+     * or null if there is no such entry
+     */
+    public ByteBuffer getCompressed(int id) {
+        if (!contains(id))
+            return null;
+        ByteBuffer entry = buffer.asReadOnlyBuffer();
+        entry.limit(entryBlockStart + offset(id + 1));
+        entry.position(entryBlockStart + offset(id));
+        return entry.slice();
+    }
+
+    /**
+     * Reads the html of a spell
+     *
+     * @param id stable id of a spell
+     * @return content of the spell html file, or null if there is no such entry
+     * @throws IOException if the entry is corrupted
+     */
+    public String read(int id) throws IOException {
+        ByteBuffer compressed = getCompressed(id);
+        if (compressed == null)
+            return null;
+        // Inflater takes arrays only, so the slice is copied once
+        byte[] input = new byte[compressed.remaining()];
+        compressed.get(input);
+        byte[] output = new byte[buffer.getInt(lengthsStart + id * 4)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            int length = inflater.inflate(output);
+            if (inflater.needsDictionary()) {
+                inflater.setDictionary(dictionary);
+                length += inflater.inflate(output, length, output.length - length);
+            }
+            if (length != output.length || !inflater.finished())
+                throw new IOException("Corrupted spell archive entry " + id);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted spell archive entry " + id, e);
+        } finally {
+            inflater.end();
+        }
+        return new String(output, UTF_8);
+    }
+
+    private int offset(int index) {
+        return buffer.getInt(offsetsStart + index * 4);
+    }
+
+    /**
+     * Writes an archive of spell html files
+     *
+     * @param entries html of spells by their stable ids; null for ids without a spell
+     * @param out     stream to write the archive to
+     * @throws IOException if the archive can't be written
+     */
+    public static void write(List<String> entries, OutputStream out) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(entries.size());
+        for (String entry : entries)
+            encoded.add(entry == null ? null : entry.getBytes(UTF_8));
+        byte[] dictionary = buildDictionary(encoded, MAX_DICTIONARY_SIZE);
+
+        ByteArrayOutputStream entryBlock = new ByteArrayOutputStream();
+        int[] offsets = new int[encoded.size() + 1];
+        byte[] chunk = new byte[8192];
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            for (int i = 0; i < encoded.size(); i++) {
+                if (encoded.get(i) != null) {
+                    deflater.reset();
+                    deflater.setDictionary(dictionary);
+                    deflater.setInput(encoded.get(i));
+                    deflater.finish();
+                    while (!deflater.finished())
+                        entryBlock.write(chunk, 0, deflater.deflate(chunk));
+                }
+                offsets[i + 1] = entryBlock.size();
+            }
+        } finally {
+            deflater.end();
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(dictionary.length);
+        data.write(dictionary);
+        data.writeInt(encoded.size());
+        for (int offset : offsets)
+            data.writeInt(offset);
+        for (byte[] entry : encoded)
+            data.writeInt(entry == null ? 0 : entry.length);
+        entryBlock.writeTo(data);
+        data.flush();
+    }
+
+    /**
+     * Builds a preset dictionary from lines that occur in more than one entry, choosing
+     * the lines that save the most bytes. The most valuable lines are put at the end of
+     * the dictionary, where matches are closest to the compressed data and cheapest.
+     *
+     * @param entries entries to be compressed; nulls are skipped
+     * @param maxSize maximal size of the dictionary in bytes
+     * @return dictionary
+     */
+    static byte[] buildDictionary(List<byte[]> entries, int maxSize) {
+        final Map<String, Integer> entryCounts = new HashMap<>();
+        for (byte[] entry : entries) {
+            if (entry == null)
+                continue;
+            Set<String> lines = new HashSet<>();
+            String text = new String(entry, UTF_8);
+            for (int start = 0; start < text.length(); ) {
+                int end = text.indexOf('\n', start);
+                end = end < 0 ? text.length() : end + 1;
+                lines.add(text.substring(start, end));
+                start = end;
+            }
+            for (String line : lines) {
+                Integer entryCount = entryCounts.get(line);
+                entryCounts.put(line, entryCount == null ? 1 : entryCount + 1);
+            }
+        }
+
+        List<String> shared = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : entryCounts.entrySet())
+            if (entry.getValue() > 1 && entry.getKey().trim().length() > 0)
+                shared.add(entry.getKey());
+        Collections.sort(shared, new Comparator<String>() {
+            @Override
+            public int compare(String lhs, String rhs) {
+                long lhsSaving = (long) entryCounts.get(lhs) * lhs.length();
+                long rhsSaving = (long) entryCounts.get(rhs) * rhs.length();
+                if (lhsSaving != rhsSaving)
+                    return lhsSaving > rhsSaving ? -1 : 1;
+                return lhs.compareTo(rhs);
+            }
+        });
+
+        // most valuable first, so they get into the dictionary when it is full
+        List<byte[]> chosen = new ArrayList<>();
+        int size = 0;
+        for (String line : shared) {
+            byte[] bytes = line.getBytes(UTF_8);
+            if (size + bytes.length > maxSize)
+                continue;
+            chosen.add(bytes);
+            size += bytes.length;
+        }
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+        for (int i = chosen.size() - 1; i >= 0; i--)
+            dictionary.write(chosen.get(i), 0, chosen.get(i).length);
+        return dictionary.toByteArray();
+    }
+}
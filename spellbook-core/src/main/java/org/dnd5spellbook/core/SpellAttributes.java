@@ -0,0 +1,267 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.CastingTime;
+import org.dnd5spellbook.domain.RangeKind;
+import org.dnd5spellbook.domain.School;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Spell properties of a bundle (see {@link SpellHeader}) stored by columns: one
+ * primitive array per property, indexed by spell position in the alphabetical spell
+ * list of the bundle, the order of the {@link SpellIndex}. A scan over a property, such
+ * as selecting spells cast in an action, touches a single array.
+ * <p/>
+ * The attributes are written at build time by the {@code compileSpellAttributes} gradle
+ * task. The layout of the file (all numbers are big endian) is:
+ * <pre>
+ * int     magic ("SPAT")
+ * short   version
+ * int     spell count N
+ * byte[N] school ordinals, -1 if unknown
+ * byte[N] levels
+ * byte[N] flags: 1 if ritual, 2 if concentration
+ * byte[N] casting time ordinals, -1 if unknown
+ * int[N]  casting times in seconds
+ * byte[N] range kind ordinals, -1 if unknown
+ * int[N]  ranges in feet
+ * byte[N] component flags
+ * int[N]  durations in seconds
+ * </pre>
+ */
+public class SpellAttributes {
+
+    /**
+     * Name of the attributes file within a bundle
+     */
+    public static final String FILE_NAME = "spells.attr";
+
+    private static final int MAGIC = 0x53504154;
+    private static final short VERSION = 1;
+
+    private static final int RITUAL = 1;
+    private static final int CONCENTRATION = 1 << 1;
+
+    private static final School[] SCHOOLS = School.values();
+    private static final CastingTime[] CASTING_TIMES = CastingTime.values();
+    private static final RangeKind[] RANGE_KINDS = RangeKind.values();
+
+    private final byte[] schools;
+    private final byte[] levels;
+    private final byte[] flags;
+    private final byte[] castingTimes;
+    private final int[] castingTimeSeconds;
+    private final byte[] rangeKinds;
+    private final int[] rangeFeet;
+    private final byte[] components;
+    private final int[] durationSeconds;
+
+    private SpellAttributes(int count) {
+        schools = new byte[count];
+        levels = new byte[count];
+        flags = new byte[count];
+        castingTimes = new byte[count];
+        castingTimeSeconds = new int[count];
+        rangeKinds = new byte[count];
+        rangeFeet = new int[count];
+        components = new byte[count];
+        durationSeconds = new int[count];
+    }
+
+    /**
+     * Stores spell headers by columns
+     *
+     * @param headers headers of spells in the order of spell positions
+     * @return attributes of the spells
+     */
+    public static SpellAttributes of(List<SpellHeader> headers) {
+        SpellAttributes attributes = new SpellAttributes(headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            SpellHeader header = headers.get(i);
+            attributes.schools[i] = ordinal(header.getSchool());
+            attributes.levels[i] = (byte) header.getLevel();
+            attributes.flags[i] = (byte) ((header.isRitual() ? RITUAL : 0) | (header.isConcentration() ? CONCENTRATION : 0));
+            attributes.castingTimes[i] = ordinal(header.getCastingTime());
+            attributes.castingTimeSeconds[i] = header.getCastingTimeSeconds();
+            attributes.rangeKinds[i] = ordinal(header.getRangeKind());
+            attributes.rangeFeet[i] = header.getRangeFeet();
+            attributes.components[i] = (byte) header.getComponents();
+            attributes.durationSeconds[i] = header.getDurationSeconds();
+        }
+        return attributes;
+    }
+
+    /**
+     * Reads attributes with one bulk copy per column
+     *
+     * @param data the whole content of an attributes file
+     * @return attributes of the spells
+     * @throws IOException if data is not valid attributes
+     */
+    public static SpellAttributes open(byte[] data) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not spell attributes");
+            short version = buffer.getShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported spell attributes version " + version);
+            int count = buffer.getInt();
+            if (count < 0 || count > data.length)
+                throw new IOException("Malformed spell attributes");
+            SpellAttributes attributes = new SpellAttributes(count);
+            buffer.get(attributes.schools);
+            buffer.get(attributes.levels);
+            buffer.get(attributes.flags);
+            buffer.get(attributes.castingTimes);
+            readInts(buffer, attributes.castingTimeSeconds);
+            buffer.get(attributes.rangeKinds);
+            readInts(buffer, attributes.rangeFeet);
+            buffer.get(attributes.components);
+            readInts(buffer, attributes.durationSeconds);
+            return attributes;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated spell attributes", e);
+        }
+    }
+
+    /**
+     * Writes the attributes
+     *
+     * @param out stream to write the attributes to
+     * @throws IOException if the attributes can't be written
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(size());
+        data.write(schools);
+        data.write(levels);
+        data.write(flags);
+        data.write(castingTimes);
+        writeInts(data, castingTimeSeconds);
+        data.write(rangeKinds);
+        writeInts(data, rangeFeet);
+        data.write(components);
+        writeInts(data, durationSeconds);
+        data.flush();
+    }
+
+    /**
+     * @return number of spells
+     */
+    public int size() {
+        return schools.length;
+    }
+
+    /**
+     * @param position position of a spell
+     * @return school of the spell, or null if unknown
+     */
+    public School getSchool(int position) {
+        return schools[position] < 0 ? null : SCHOOLS[schools[position]];
+    }
+
+    /**
+     * @param position position of a spell
+     * @return level of the spell, 0 for cantrips, or {@link SpellHeader#UNKNOWN}
+     */
+    public int getLevel(int position) {
+        return levels[position];
+    }
+
+    /**
+     * @param position position of a spell
+     * @return true if the spell can be cast as a ritual
+     */
+    public boolean isRitual(int position) {
+        return (flags[position] & RITUAL) != 0;
+    }
+
+    /**
+     * @param position position of a spell
+     * @return true if the spell requires concentration
+     */
+    public boolean isConcentration(int position) {
+        return (flags[position] & CONCENTRATION) != 0;
+    }
+
+    /**
+     * @param position position of a spell
+     * @return kind of the casting time of the spell, or null if unknown
+     */
+    public CastingTime getCastingTime(int position) {
+        return castingTimes[position] < 0 ? null : CASTING_TIMES[castingTimes[position]];
+    }
+
+    /**
+     * @param position position of a spell
+     * @return casting time in seconds, see {@link SpellHeader#getCastingTimeSeconds}
+     */
+    public int getCastingTimeSeconds(int position) {
+        return castingTimeSeconds[position];
+    }
+
+    /**
+     * @param position position of a spell
+     * @return kind of the range of the spell, or null if unknown
+     */
+    public RangeKind getRangeKind(int position) {
+        return rangeKinds[position] < 0 ? null : RANGE_KINDS[rangeKinds[position]];
+    }
+
+    /**
+     * @param position position of a spell
+     * @return range in feet, see {@link SpellHeader#getRangeFeet}
+     */
+    public int getRangeFeet(int position) {
+        return rangeFeet[position];
+    }
+
+    /**
+     * @param position position of a spell
+     * @return component flags of the spell, such as {@link SpellHeader#VERBAL}
+     */
+    public int getComponents(int position) {
+        return components[position];
+    }
+
+    /**
+     * @param position position of a spell
+     * @return duration in seconds, see {@link SpellHeader#getDurationSeconds}
+     */
+    public int getDurationSeconds(int position) {
+        return durationSeconds[position];
+    }
+
+    /**
+     * @param position position of a spell
+     * @return header of the spell assembled from the columns
+     */
+    public SpellHeader getHeader(int position) {
+        return new SpellHeader(getSchool(position), getLevel(position), isRitual(position),
+                getCastingTime(position), getCastingTimeSeconds(position), getRangeKind(position),
+                getRangeFeet(position), getComponents(position), isConcentration(position),
+                getDurationSeconds(position));
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return (byte) (value == null ? -1 : value.ordinal());
+    }
+
+    private static void readInts(ByteBuffer buffer, int[] column) {
+        buffer.asIntBuffer().get(column);
+        buffer.position(buffer.position() + column.length * 4);
+    }
+
+    private static void writeInts(DataOutputStream data, int[] column) throws IOException {
+        for (int value : column)
+            data.writeInt(value);
+    }
+}
@@ -0,0 +1,354 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Immutable merge of the spells of one or more packs, see {@link SpellPack}, with the
+ * attributes of the merged spells. Catalogues are versioned: a repository builds a new
+ * catalogue with a greater version when the packs change, see {@link SpellRepository#refresh()}.
+ * <p/>
+ * Packs are merged in their order, the shipped bundle first and then homebrew packs by
+ * name. A spell which name equals the name of a spell of an earlier pack, ignoring case,
+ * replaces that spell, so a homebrew pack can override shipped spells and a later pack
+ * overrides an earlier one. The replacing spell keeps its own catalogue id.
+ * <p/>
+ * The full text index of a merged catalogue merges the full text indexes of the packs,
+ * see {@link FullTextIndex#merge}, so descriptions of shipped and homebrew spells are
+ * searched together. Spells of a pack without a full text index are not matched by full
+ * text search.
+ * <p/>
+ * Search indexes are derived caches: they are built on first use and released by
+ * {@link #trim()}.
+ */
+public class SpellCatalogue {
+
+    private static final Logger logger = Logger.getLogger(SpellCatalogue.class.getName());
+    private static final SpellHeader UNKNOWN_HEADER = SpellHeader.parse("");
+
+    private final int version;
+    private final List<SpellPack> packs;
+    private final List<Spell> spells;
+    private final FullTextIndex fullTextIndex;
+    private final SpellAttributes attributes;
+    private final int replacedCount;
+
+    // derived caches, guarded by this
+    private NameIndex nameIndex;
+    private FuzzyNameIndex fuzzyNameIndex;
+    private SpellFacets facets;
+
+    private SpellCatalogue(int version, List<SpellPack> packs, List<Spell> spells, FullTextIndex fullTextIndex,
+                           SpellAttributes attributes, int replacedCount) {
+        this.version = version;
+        this.packs = Collections.unmodifiableList(new ArrayList<>(packs));
+        this.spells = Collections.unmodifiableList(spells);
+        this.fullTextIndex = fullTextIndex;
+        this.attributes = attributes;
+        this.replacedCount = replacedCount;
+    }
+
+    /**
+     * Creates a catalogue of a single pack from spells that are read already
+     *
+     * @param version       version of the catalogue
+     * @param pack          the pack
+     * @param spells        spells of the pack in alphabetical order; the list is not copied
+     * @param fullTextIndex full text index of the spells, or null if it is not available
+     * @param attributes    attributes of the spells, or null if they are not available
+     * @return catalogue of the pack
+     */
+    public static SpellCatalogue of(int version, SpellPack pack, List<Spell> spells, FullTextIndex fullTextIndex,
+                                    SpellAttributes attributes) {
+        return new SpellCatalogue(version, Collections.singletonList(pack), spells, fullTextIndex, attributes, 0);
+    }
+
+    /**
+     * Reads the spells and attributes of packs and merges them, see the class description
+     * for the precedence of spells with equal names
+     *
+     * @param version version of the catalogue
+     * @param packs   packs in the order of precedence, the shipped bundle first
+     * @return merged catalogue
+     */
+    public static SpellCatalogue merge(int version, List<SpellPack> packs) {
+        return merge(version, packs, 0, null);
+    }
+
+    /**
+     * Reads the spells and attributes of packs and merges them, reporting the spells as
+     * they are read. Spells of a single pack of the shipped bundle are reported in portions
+     * as {@link SpellLoader#readSpellList(int, SpellLoader.Callback)} does; merged spells
+     * are reported at once.
+     *
+     * @param version        version of the catalogue
+     * @param packs          packs in the order of precedence, the shipped bundle first
+     * @param firstChunkSize number of spells in the first portion
+     * @param callback       receiver of portions of spells, or null to read the list at once
+     * @return merged catalogue
+     */
+    public static SpellCatalogue merge(int version, List<SpellPack> packs, int firstChunkSize,
+                                       SpellLoader.Callback callback) {
+        if (packs.size() == 1)
+            return read(version, packs.get(0), firstChunkSize, callback);
+
+        long start = LatencyHistogram.start();
+        Map<String, Integer> positions = new HashMap<>();
+        List<Spell> merged = new ArrayList<>();
+        List<SpellHeader> headers = new ArrayList<>();
+        // pack and position in the pack of every merged spell, to map full text documents
+        List<int[]> sources = new ArrayList<>();
+        List<int[]> packDocuments = new ArrayList<>(packs.size());
+        boolean hasAttributes = false;
+        int replacedCount = 0;
+        for (int packIndex = 0; packIndex < packs.size(); packIndex++) {
+            SpellPack pack = packs.get(packIndex);
+            List<Spell> spells = pack.readSpells();
+            SpellAttributes attributes = readAttributes(pack, spells.size());
+            hasAttributes |= attributes != null;
+            for (int i = 0; i < spells.size(); i++) {
+                Spell spell = spells.get(i);
+                SpellHeader header = attributes == null ? UNKNOWN_HEADER : attributes.getHeader(i);
+                int[] source = {packIndex, i};
+                Integer position = positions.get(spell.getNormalizedName());
+                if (position == null) {
+                    positions.put(spell.getNormalizedName(), merged.size());
+                    merged.add(spell);
+                    headers.add(header);
+                    sources.add(source);
+                } else {
+                    merged.set(position, spell);
+                    headers.set(position, header);
+                    sources.set(position, source);
+                    replacedCount++;
+                }
+            }
+            int[] documents = new int[spells.size()];
+            Arrays.fill(documents, -1);
+            packDocuments.add(documents);
+        }
+
+        // sort positions rather than spells to keep headers aligned with them
+        List<Integer> order = new ArrayList<>(merged.size());
+        for (int i = 0; i < merged.size(); i++)
+            order.add(i);
+        final List<Spell> unsorted = merged;
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                return Spell.NAME_COMPARATOR.compare(unsorted.get(lhs), unsorted.get(rhs));
+            }
+        });
+        List<Spell> spells = new ArrayList<>(merged.size());
+        List<SpellHeader> sortedHeaders = new ArrayList<>(merged.size());
+        for (int position : order) {
+            int[] source = sources.get(position);
+            packDocuments.get(source[0])[source[1]] = spells.size();
+            spells.add(merged.get(position));
+            sortedHeaders.add(headers.get(position));
+        }
+        SpellAttributes attributes = hasAttributes ? SpellAttributes.of(sortedHeaders) : null;
+        FullTextIndex fullTextIndex = mergeFullTextIndexes(packs, packDocuments, spells.size());
+        logger.info("Merged " + spells.size() + " spells of " + packs.size() + " packs, " + replacedCount
+                + " replaced, in " + LatencyHistogram.formatNanos(System.nanoTime() - start));
+        if (callback != null)
+            callback.onSpellsRead(spells);
+        return new SpellCatalogue(version, packs, spells, fullTextIndex, attributes, replacedCount);
+    }
+
+    /**
+     * Merges the full text indexes of the packs that have one
+     *
+     * @param packs         merged packs
+     * @param packDocuments for every pack, the merged positions of its spells or -1
+     * @param spellCount    number of merged spells
+     * @return merged index, or null if no pack has a full text index
+     */
+    private static FullTextIndex mergeFullTextIndexes(List<SpellPack> packs, List<int[]> packDocuments,
+                                                      int spellCount) {
+        List<FullTextIndex> parts = new ArrayList<>();
+        List<int[]> documents = new ArrayList<>();
+        for (int i = 0; i < packs.size(); i++) {
+            FullTextIndex index = readFullTextIndex(packs.get(i));
+            if (index == null)
+                continue;
+            if (index.getDocumentCount() != packDocuments.get(i).length) {
+                logger.warning("Full text index of " + packs.get(i) + " doesn't match its spells");
+                continue;
+            }
+            parts.add(index);
+            documents.add(packDocuments.get(i));
+        }
+        return parts.isEmpty() ? null : FullTextIndex.merge(parts, documents, spellCount);
+    }
+
+    private static FullTextIndex readFullTextIndex(SpellPack pack) {
+        try {
+            return pack.getSpellLoader().readFullTextIndex();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Full text index of " + pack + " is not available", e);
+            return null;
+        }
+    }
+
+    private static SpellCatalogue read(int version, SpellPack pack, int firstChunkSize,
+                                       SpellLoader.Callback callback) {
+        List<Spell> spells;
+        if (callback != null && pack.getNumber() == SpellPack.BUNDLED_NUMBER) {
+            spells = pack.getSpellLoader().readSpellList(firstChunkSize, callback);
+        } else {
+            spells = pack.readSpells();
+            if (callback != null)
+                callback.onSpellsRead(spells);
+        }
+        FullTextIndex fullTextIndex = readFullTextIndex(pack);
+        if (fullTextIndex != null && fullTextIndex.getDocumentCount() != spells.size()) {
+            logger.warning("Full text index of " + pack + " doesn't match its spells");
+            fullTextIndex = null;
+        }
+        return of(version, pack, spells, fullTextIndex, readAttributes(pack, spells.size()));
+    }
+
+    private static SpellAttributes readAttributes(SpellPack pack, int spellCount) {
+        try {
+            SpellAttributes attributes = pack.getSpellLoader().readSpellAttributes();
+            if (attributes.size() == spellCount)
+                return attributes;
+            logger.warning("Spell attributes of " + pack + " don't match its spells");
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Spell attributes of " + pack + " are not available", e);
+        }
+        return null;
+    }
+
+    /**
+     * @return version of the catalogue, greater for catalogues built later
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return unmodifiable list of the merged packs in the order of precedence
+     */
+    public List<SpellPack> getPacks() {
+        return packs;
+    }
+
+    /**
+     * @return unmodifiable list of all spells in alphabetical order
+     */
+    public List<Spell> getSpells() {
+        return spells;
+    }
+
+    /**
+     * @return full text index of spell descriptions, or null if it is not available
+     */
+    public FullTextIndex getFullTextIndex() {
+        return fullTextIndex;
+    }
+
+    /**
+     * @return attributes of the spells in the same order, or null if they are not available
+     */
+    public SpellAttributes getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return number of spells replaced by spells of later packs with equal names
+     */
+    public int getReplacedCount() {
+        return replacedCount;
+    }
+
+    /**
+     * Finds the pack of a spell
+     *
+     * @param catalogueId catalogue id of the spell
+     * @return the pack, or null if the spell is not from a pack of the catalogue
+     */
+    public SpellPack getPack(int catalogueId) {
+        if (catalogueId == Spell.NO_ID)
+            return packs.size() == 1 ? packs.get(0) : null;
+        int number = SpellPack.packNumber(catalogueId);
+        for (SpellPack pack : packs)
+            if (pack.getNumber() == number)
+                return pack;
+        return null;
+    }
+
+    /**
+     * @param packs packs that are found now
+     * @return true if the catalogue is merged of the same packs with the same content
+     */
+    public boolean hasSamePacks(List<SpellPack> packs) {
+        if (packs.size() != this.packs.size())
+            return false;
+        for (int i = 0; i < packs.size(); i++)
+            if (!packs.get(i).isSameAs(this.packs.get(i)))
+                return false;
+        return true;
+    }
+
+    /**
+     * @return name index of all spells, built on first use
+     */
+    public synchronized NameIndex getNameIndex() {
+        if (nameIndex == null)
+            nameIndex = new NameIndex(spells);
+        return nameIndex;
+    }
+
+    /**
+     * @return fuzzy name index of all spells, built on first use
+     */
+    public synchronized FuzzyNameIndex getFuzzyNameIndex() {
+        if (fuzzyNameIndex == null)
+            fuzzyNameIndex = new FuzzyNameIndex(spells);
+        return fuzzyNameIndex;
+    }
+
+    /**
+     * @return facets of all spells and their attributes, built on first use
+     */
+    public synchronized SpellFacets getFacets() {
+        if (facets == null)
+            facets = new SpellFacets(spells, attributes);
+        return facets;
+    }
+
+    /**
+     * Releases the derived caches and the spell archives of the packs; they are built
+     * again when they are requested next time
+     */
+    public void trim() {
+        synchronized (this) {
+            nameIndex = null;
+            fuzzyNameIndex = null;
+            facets = null;
+        }
+        for (SpellPack pack : packs)
+            pack.trim();
+    }
+
+    @Override
+    public String toString() {
+        return "SpellCatalogue{" +
+                "version=" + version +
+                ", packs=" + packs +
+                ", spells=" + spells.size() +
+                '}';
+    }
+}
@@ -0,0 +1,190 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.ConstraintMask;
+import org.dnd5spellbook.domain.School;
+import org.dnd5spellbook.domain.Spell;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Precomputed bitsets over spell positions, one per facet value: a bitset per level,
+ * per school, of rituals, of spells requiring concentration and per component. A
+ * combination of facet filters is evaluated as bitwise AND/OR/AND NOT over a few words
+ * per 64 spells, giving the candidate spells that name matching has to look at.
+ * <p/>
+ * Level bitsets come from the class level constraints of spells, so a spell is in the
+ * bitset of every level some class can cast it at. The other bitsets come from the
+ * {@link SpellAttributes} of the spells; without attributes those facets are not applied.
+ * <p/>
+ * Facets are immutable and can be shared between threads.
+ */
+public class SpellFacets {
+
+    private static final int[] COMPONENTS = {SpellHeader.VERBAL, SpellHeader.SOMATIC, SpellHeader.MATERIAL};
+
+    private final int size;
+    private final int wordCount;
+    private final long[][] levels;
+    // null if there are no attributes for the spells
+    private final long[][] schools;
+    private final long[] rituals;
+    private final long[] concentration;
+    private final long[][] components;
+
+    /**
+     * Builds facets of a list of spells
+     *
+     * @param spells     spells to build facets of; positions in the list are used as spell ids
+     * @param attributes attributes of the spells in the same order, or null if they are
+     *                   not available; attributes of another number of spells are ignored
+     */
+    public SpellFacets(List<Spell> spells, SpellAttributes attributes) {
+        size = spells.size();
+        wordCount = (size + 63) >>> 6;
+
+        Set<ClassName> allClasses = EnumSet.allOf(ClassName.class);
+        ConstraintMask[] levelMasks = new ConstraintMask[ConstraintMask.LEVEL_COUNT];
+        levels = new long[ConstraintMask.LEVEL_COUNT][wordCount];
+        for (int level = 0; level < levelMasks.length; level++)
+            levelMasks[level] = ConstraintMask.of(allClasses, Collections.singleton(level));
+        for (int i = 0; i < size; i++) {
+            Spell spell = spells.get(i);
+            for (int level = 0; level < levelMasks.length; level++)
+                if (spell.matches(levelMasks[level]))
+                    set(levels[level], i);
+        }
+
+        if (attributes == null || attributes.size() != size) {
+            schools = null;
+            rituals = null;
+            concentration = null;
+            components = null;
+            return;
+        }
+        schools = new long[School.values().length][wordCount];
+        rituals = new long[wordCount];
+        concentration = new long[wordCount];
+        components = new long[COMPONENTS.length][wordCount];
+        for (int i = 0; i < size; i++) {
+            School school = attributes.getSchool(i);
+            if (school != null)
+                set(schools[school.ordinal()], i);
+            if (attributes.isRitual(i))
+                set(rituals, i);
+            if (attributes.isConcentration(i))
+                set(concentration, i);
+            for (int c = 0; c < COMPONENTS.length; c++)
+                if ((attributes.getComponents(i) & COMPONENTS[c]) != 0)
+                    set(components[c], i);
+        }
+    }
+
+    /**
+     * @return number of spells the facets are built of
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the facets include those built of spell attributes
+     */
+    public boolean hasAttributes() {
+        return schools != null;
+    }
+
+    /**
+     * Evaluates the level filter and the facet filter of a spec. The class level filter
+     * still has to be checked for the candidates, since the level bitsets don't tell
+     * which class can cast a spell at a level.
+     *
+     * @param spec filters to evaluate
+     * @return new bitset of spells passing the filters, or null if the filters don't
+     * restrict spells, see {@link #contains}
+     */
+    public long[] candidates(FilterSpec spec) {
+        long[] result = null;
+        long[] union = null;
+
+        Set<Integer> levelFilter = spec.getLevels();
+        if (!containsAllLevels(levelFilter)) {
+            result = all();
+            union = new long[wordCount];
+            for (Integer level : levelFilter)
+                if (level >= 0 && level < levels.length)
+                    or(union, levels[level]);
+            and(result, union);
+        }
+
+        FacetFilter facetFilter = spec.getFacetFilter();
+        if (!hasAttributes() || facetFilter.isAny())
+            return result;
+        if (result == null)
+            result = all();
+        if (facetFilter.getSchools().size() < schools.length) {
+            if (union == null)
+                union = new long[wordCount];
+            else
+                Arrays.fill(union, 0);
+            for (School school : facetFilter.getSchools())
+                or(union, schools[school.ordinal()]);
+            and(result, union);
+        }
+        if (facetFilter.isRitualOnly())
+            and(result, rituals);
+        if (facetFilter.isWithoutConcentration())
+            andNot(result, concentration);
+        for (int c = 0; c < COMPONENTS.length; c++)
+            if ((facetFilter.getComponents() & COMPONENTS[c]) == 0)
+                andNot(result, components[c]);
+        return result;
+    }
+
+    /**
+     * @param candidates bitset of candidate spells, or null for every spell
+     * @param position   position of a spell
+     * @return true if the spell is a candidate
+     */
+    public static boolean contains(long[] candidates, int position) {
+        return candidates == null || (candidates[position >>> 6] & (1L << position)) != 0;
+    }
+
+    private static boolean containsAllLevels(Set<Integer> levelFilter) {
+        for (int level = 0; level < ConstraintMask.LEVEL_COUNT; level++)
+            if (!levelFilter.contains(level))
+                return false;
+        return true;
+    }
+
+    private long[] all() {
+        long[] words = new long[wordCount];
+        Arrays.fill(words, -1L);
+        if ((size & 63) != 0)
+            words[wordCount - 1] = (1L << size) - 1;
+        return words;
+    }
+
+    private static void set(long[] words, int position) {
+        words[position >>> 6] |= 1L << position;
+    }
+
+    private static void or(long[] target, long[] words) {
+        for (int i = 0; i < target.length; i++)
+            target[i] |= words[i];
+    }
+
+    private static void and(long[] target, long[] words) {
+        for (int i = 0; i < target.length; i++)
+            target[i] &= words[i];
+    }
+
+    private static void andNot(long[] target, long[] words) {
+        for (int i = 0; i < target.length; i++)
+            target[i] &= ~words[i];
+    }
+}
@@ -0,0 +1,324 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.CastingTime;
+import org.dnd5spellbook.domain.RangeKind;
+import org.dnd5spellbook.domain.School;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Spell properties parsed from the {@literal <header>} of a spell html file: school,
+ * level, casting time, range, components and duration, with times in seconds and
+ * distances in feet. Headers of the shipped bundle come from scanned books, so
+ * keywords are matched with whitespace removed ("Sel f", "6 th-level").
+ * <p/>
+ * Properties that can't be parsed are unknown: null for enums and -1 for numbers.
+ */
+public final class SpellHeader {
+
+    /**
+     * Component flag of spells with a verbal component
+     */
+    public static final int VERBAL = 1;
+
+    /**
+     * Component flag of spells with a somatic component
+     */
+    public static final int SOMATIC = 1 << 1;
+
+    /**
+     * Component flag of spells with a material component
+     */
+    public static final int MATERIAL = 1 << 2;
+
+    /**
+     * Component flag of spells which material component has a cost in gold pieces
+     */
+    public static final int MATERIAL_COST = 1 << 3;
+
+    /**
+     * Component flag of spells which consume their material component
+     */
+    public static final int MATERIAL_CONSUMED = 1 << 4;
+
+    /**
+     * Duration of spells that last until dispelled, in seconds
+     */
+    public static final int UNTIL_DISPELLED = Integer.MAX_VALUE;
+
+    /**
+     * Range of spells that reach as far as the caster sees or farther, in feet
+     */
+    public static final int UNLIMITED_RANGE = Integer.MAX_VALUE;
+
+    /**
+     * Value of unknown numeric properties
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Seconds in a round, the time of an action
+     */
+    public static final int ROUND_SECONDS = 6;
+
+    private static final int FEET_IN_MILE = 5280;
+
+    private static final Pattern SUMMARY = Pattern.compile("<i>(.*?)</i>", Pattern.DOTALL);
+    private static final Pattern PROPERTY = Pattern.compile("<b>(.*?)</b>(.*?)<br", Pattern.DOTALL);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern AMOUNT = Pattern.compile("(\\d[\\d,]*|one)(round|minute|hour|day|foot|feet|mile)");
+    private static final Pattern COST = Pattern.compile("\\d[\\d,]*gp");
+
+    private final School school;
+    private final int level;
+    private final boolean ritual;
+    private final CastingTime castingTime;
+    private final int castingTimeSeconds;
+    private final RangeKind rangeKind;
+    private final int rangeFeet;
+    private final int components;
+    private final boolean concentration;
+    private final int durationSeconds;
+
+    /**
+     * Creates a header from its properties
+     */
+    public SpellHeader(School school, int level, boolean ritual, CastingTime castingTime, int castingTimeSeconds,
+                       RangeKind rangeKind, int rangeFeet, int components, boolean concentration, int durationSeconds) {
+        this.school = school;
+        this.level = level;
+        this.ritual = ritual;
+        this.castingTime = castingTime;
+        this.castingTimeSeconds = castingTimeSeconds;
+        this.rangeKind = rangeKind;
+        this.rangeFeet = rangeFeet;
+        this.components = components;
+        this.concentration = concentration;
+        this.durationSeconds = durationSeconds;
+    }
+
+    /**
+     * Parses the header of a spell html file
+     *
+     * @param html html of a spell
+     * @return properties of the spell
+     */
+    public static SpellHeader parse(String html) {
+        String header = SpellHtml.element(html, "header");
+
+        School school = null;
+        int level = UNKNOWN;
+        boolean ritual = false;
+        Matcher summary = SUMMARY.matcher(header);
+        if (summary.find()) {
+            String s = compact(summary.group(1));
+            for (School candidate : School.values())
+                if (s.contains(candidate.name().toLowerCase()))
+                    school = candidate;
+            if (s.contains("cantrip"))
+                level = 0;
+            else if (s.length() > 0 && Character.isDigit(s.charAt(0)))
+                level = s.charAt(0) - '0';
+            ritual = s.contains("(ritual)");
+        }
+
+        CastingTime castingTime = null;
+        int castingTimeSeconds = UNKNOWN;
+        RangeKind rangeKind = null;
+        int rangeFeet = UNKNOWN;
+        int components = 0;
+        boolean concentration = false;
+        int durationSeconds = UNKNOWN;
+        Matcher property = PROPERTY.matcher(header);
+        while (property.find()) {
+            String name = compact(property.group(1));
+            String value = compact(SpellHtml.toText(property.group(2)));
+            if (name.startsWith("castingtime")) {
+                if (value.startsWith("1action"))
+                    castingTime = CastingTime.ACTION;
+                else if (value.startsWith("1bonusaction"))
+                    castingTime = CastingTime.BONUS_ACTION;
+                else if (value.startsWith("1reaction"))
+                    castingTime = CastingTime.REACTION;
+                if (castingTime != null) {
+                    castingTimeSeconds = ROUND_SECONDS;
+                } else {
+                    castingTimeSeconds = amount(value);
+                    if (castingTimeSeconds != UNKNOWN)
+                        castingTime = CastingTime.TIME;
+                }
+            } else if (name.startsWith("range")) {
+                if (value.startsWith("self")) {
+                    rangeKind = RangeKind.SELF;
+                    rangeFeet = 0;
+                } else if (value.startsWith("touch")) {
+                    rangeKind = RangeKind.TOUCH;
+                    rangeFeet = 0;
+                } else if (value.startsWith("sight")) {
+                    rangeKind = RangeKind.SIGHT;
+                    rangeFeet = UNLIMITED_RANGE;
+                } else if (value.startsWith("unlimited")) {
+                    rangeKind = RangeKind.UNLIMITED;
+                    rangeFeet = UNLIMITED_RANGE;
+                } else if (value.startsWith("special")) {
+                    rangeKind = RangeKind.SPECIAL;
+                } else {
+                    rangeFeet = amount(value);
+                    if (rangeFeet != UNKNOWN)
+                        rangeKind = RangeKind.DISTANCE;
+                }
+            } else if (name.startsWith("component")) {
+                int material = value.indexOf('(');
+                String kinds = material < 0 ? value : value.substring(0, material);
+                if (kinds.contains("v"))
+                    components |= VERBAL;
+                if (kinds.contains("s"))
+                    components |= SOMATIC;
+                if (kinds.contains("m"))
+                    components |= MATERIAL;
+                if (material >= 0 && COST.matcher(value).find())
+                    components |= MATERIAL_COST;
+                if (material >= 0 && value.contains("consume"))
+                    components |= MATERIAL_CONSUMED;
+            } else if (name.startsWith("duration")) {
+                concentration = value.startsWith("concentration");
+                if (value.startsWith("instantaneous"))
+                    durationSeconds = 0;
+                else if (value.startsWith("untildispelled"))
+                    durationSeconds = UNTIL_DISPELLED;
+                else
+                    durationSeconds = amount(value);
+            }
+        }
+        return new SpellHeader(school, level, ritual, castingTime, castingTimeSeconds, rangeKind, rangeFeet,
+                components, concentration, durationSeconds);
+    }
+
+    /**
+     * Lowercases a string and removes whitespace from it
+     */
+    private static String compact(String s) {
+        return WHITESPACE.matcher(s).replaceAll("").toLowerCase();
+    }
+
+    /**
+     * Converts the first amount of time or distance in a compacted string to seconds
+     * or feet
+     *
+     * @return amount in seconds or feet, or {@link #UNKNOWN} if there is no amount
+     */
+    private static int amount(String s) {
+        Matcher matcher = AMOUNT.matcher(s);
+        if (!matcher.find())
+            return UNKNOWN;
+        String number = matcher.group(1);
+        long value = number.equals("one") ? 1 : Long.parseLong(number.replace(",", ""));
+        switch (matcher.group(2)) {
+            case "round":
+                value *= ROUND_SECONDS;
+                break;
+            case "minute":
+                value *= 60;
+                break;
+            case "hour":
+                value *= 60 * 60;
+                break;
+            case "day":
+                value *= 24 * 60 * 60;
+                break;
+            case "mile":
+                value *= FEET_IN_MILE;
+                break;
+        }
+        return (int) Math.min(value, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * @return school of the spell, or null if unknown
+     */
+    public School getSchool() {
+        return school;
+    }
+
+    /**
+     * @return level of the spell, 0 for cantrips, or {@link #UNKNOWN}
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return true if the spell can be cast as a ritual
+     */
+    public boolean isRitual() {
+        return ritual;
+    }
+
+    /**
+     * @return kind of the casting time, or null if unknown
+     */
+    public CastingTime getCastingTime() {
+        return castingTime;
+    }
+
+    /**
+     * @return casting time in seconds, a round for actions, or {@link #UNKNOWN}
+     */
+    public int getCastingTimeSeconds() {
+        return castingTimeSeconds;
+    }
+
+    /**
+     * @return kind of the range, or null if unknown
+     */
+    public RangeKind getRangeKind() {
+        return rangeKind;
+    }
+
+    /**
+     * @return range in feet: 0 for self and touch, {@link #UNLIMITED_RANGE} for sight and
+     * unlimited, or {@link #UNKNOWN}
+     */
+    public int getRangeFeet() {
+        return rangeFeet;
+    }
+
+    /**
+     * @return component flags, such as {@link #VERBAL} | {@link #MATERIAL}
+     */
+    public int getComponents() {
+        return components;
+    }
+
+    /**
+     * @return true if the spell requires concentration
+     */
+    public boolean isConcentration() {
+        return concentration;
+    }
+
+    /**
+     * @return duration in seconds: 0 for instantaneous spells, {@link #UNTIL_DISPELLED},
+     * or {@link #UNKNOWN}
+     */
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "SpellHeader{" +
+                "school=" + school +
+                ", level=" + level +
+                ", ritual=" + ritual +
+                ", castingTime=" + castingTime +
+                ", castingTimeSeconds=" + castingTimeSeconds +
+                ", rangeKind=" + rangeKind +
+                ", rangeFeet=" + rangeFeet +
+                ", components=" + components +
+                ", concentration=" + concentration +
+                ", durationSeconds=" + durationSeconds +
+                '}';
+    }
+}
@@ -0,0 +1,111 @@
+package org.dnd5spellbook.core;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts parts of spell html files. Spell files consist of a {@literal <header>}
+ * with the spell properties and an {@literal <article>} with the spell description.
+ */
+public class SpellHtml {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Pattern TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern ENTITY = Pattern.compile("&(#?\\w+);");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Reads the html file of a spell
+     *
+     * @param assets     source of bundle files
+     * @param bundlePath path of the bundle within assets
+     * @param spellName  name of the spell
+     * @return content of the spell html file
+     * @throws IOException if the file can't be read
+     */
+    public static String read(AssetSource assets, String bundlePath, String spellName) throws IOException {
+        InputStream stream = assets.open(bundlePath + "/" + spellName + ".html");
+        try {
+            return new String(ByteStreams.toByteArray(stream), UTF_8);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Gets the content of an element as html
+     *
+     * @param html    html of a spell
+     * @param tagName name of the element, such as "header" or "article"
+     * @return html content of the first element with the name, or an empty string if
+     * there is no such element
+     */
+    public static String element(String html, String tagName) {
+        int start = html.indexOf("<" + tagName + ">");
+        int end = html.indexOf("</" + tagName + ">");
+        if (start < 0 || end < start)
+            return "";
+        return html.substring(start + tagName.length() + 2, end);
+    }
+
+    /**
+     * Converts html to plain text: tags become spaces, entities are decoded and
+     * whitespace is collapsed
+     *
+     * @param html html to convert
+     * @return plain text
+     */
+    public static String toText(String html) {
+        String text = TAG.matcher(html).replaceAll(" ");
+        Matcher matcher = ENTITY.matcher(text);
+        StringBuffer decoded = new StringBuffer();
+        while (matcher.find())
+            matcher.appendReplacement(decoded, Matcher.quoteReplacement(decodeEntity(matcher.group(1))));
+        matcher.appendTail(decoded);
+        return WHITESPACE.matcher(decoded).replaceAll(" ").trim();
+    }
+
+    /**
+     * Gets the plain text description of a spell
+     *
+     * @param html html of a spell
+     * @return text of the spell {@literal <article>}
+     */
+    public static String articleText(String html) {
+        return toText(element(html, "article"));
+    }
+
+    private static String decodeEntity(String entity) {
+        switch (entity) {
+            case "amp":
+                return "&";
+            case "lt":
+                return "<";
+            case "gt":
+                return ">";
+            case "quot":
+                return "\"";
+            case "apos":
+                return "'";
+            case "nbsp":
+                return " ";
+        }
+        if (entity.startsWith("#")) {
+            try {
+                int codePoint = entity.startsWith("#x") || entity.startsWith("#X")
+                        ? Integer.parseInt(entity.substring(2), 16)
+                        : Integer.parseInt(entity.substring(1));
+                return new String(Character.toChars(codePoint));
+            } catch (IllegalArgumentException e) {
+                // not a valid character reference, keep it as is
+            }
+        }
+        return "&" + entity + ";";
+    }
+}
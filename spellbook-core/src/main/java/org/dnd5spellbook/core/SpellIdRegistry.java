@@ -0,0 +1,138 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of stable spell ids of a bundle. The registry is a text file in the bundle
+ * listing spell names one per line; the id of a spell is the number of spell lines
+ * above it, not counting empty lines and comment lines that start with {@code #}.
+ * New spells are appended to the registry, and lines of removed spells are kept, so
+ * ids are never changed or reused and can be persisted, e.g. in the favorites file.
+ */
+public class SpellIdRegistry {
+
+    /**
+     * Name of the registry file within a bundle
+     */
+    public static final String FILE_NAME = "spell_ids.txt";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String COMMENT = "#";
+    private static final String HEADER =
+            "# Stable spell ids: the id of a spell is the number of spell lines above it.\n" +
+            "# Append new spells to the end and never remove or reorder lines.\n";
+
+    private final List<String> names;
+    private final Map<String, Integer> ids;
+
+    private SpellIdRegistry(List<String> names) {
+        this.names = names;
+        this.ids = new HashMap<>(names.size() * 2);
+        for (int i = 0; i < names.size(); i++)
+            if (ids.put(names.get(i), i) != null)
+                throw new IllegalArgumentException("Duplicate spell in id registry: " + names.get(i));
+    }
+
+    /**
+     * Reads a registry
+     *
+     * @param in stream to read the registry from; it is not closed
+     * @return the registry
+     * @throws IOException if the registry can't be read
+     */
+    public static SpellIdRegistry read(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+        List<String> names = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty() || line.startsWith(COMMENT))
+                continue;
+            names.add(line);
+        }
+        try {
+            return new SpellIdRegistry(names);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed spell id registry", e);
+        }
+    }
+
+    /**
+     * @return registry without spells
+     */
+    public static SpellIdRegistry empty() {
+        return new SpellIdRegistry(Collections.<String>emptyList());
+    }
+
+    /**
+     * @param name name of a spell
+     * @return stable id of the spell, or {@link Spell#NO_ID} if it is not registered
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? Spell.NO_ID : id;
+    }
+
+    /**
+     * @return unmodifiable list of registered spell names in the order of their ids,
+     * including removed spells
+     */
+    public List<String> getNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @return number of registered spells, which is also the next id to be assigned
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Creates a registry with missing spells appended in alphabetical order, so the
+     * ids of registered spells are kept
+     *
+     * @param spellNames names of spells which should be registered
+     * @return new registry, or this registry if every spell is registered
+     */
+    public SpellIdRegistry withNames(Collection<String> spellNames) {
+        List<String> missing = new ArrayList<>();
+        for (String name : spellNames)
+            if (!ids.containsKey(name))
+                missing.add(name);
+        if (missing.isEmpty())
+            return this;
+        Collections.sort(missing);
+        List<String> result = new ArrayList<>(names);
+        result.addAll(missing);
+        return new SpellIdRegistry(result);
+    }
+
+    /**
+     * Writes the registry
+     *
+     * @param out stream to write the registry to; it is flushed but not closed
+     * @throws IOException if the registry can't be written
+     */
+    public void write(OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, UTF_8);
+        writer.write(HEADER);
+        for (String name : names)
+            writer.write(name + "\n");
+        writer.flush();
+    }
+}
@@ -0,0 +1,204 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.ClassLevelConstraint;
+import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.Spell;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary spell index of a bundle. The index is written at build time by the
+ * {@code compileSpellIndex} gradle task and holds spell names already sorted in
+ * alphabetical order together with their class level constraints, so reading it
+ * replaces listing the bundle assets and parsing the spell metadata xml.
+ * <p/>
+ * The layout of the index (all numbers are big endian) is:
+ * <pre>
+ * int      magic ("SPIX")
+ * short    version
+ * byte     class count C, followed by C modified UTF-8 class names
+ * int      spell count N
+ * int[N+1] offsets of spell names in the name block
+ * byte[]   name block, UTF-8 names sorted in {@link String#compareTo} order
+ * int[N+1] offsets of spell constraints in the constraint block
+ * byte[]   constraint block, one byte per constraint: classIndex * 10 + level
+ * int[N]   stable spell ids, see {@link SpellIdRegistry}; -1 for spells without an id
+ * </pre>
+ */
+public class SpellIndex {
+
+    /**
+     * Name of the index file within a bundle
+     */
+    public static final String FILE_NAME = "spells.idx";
+
+    private static final int MAGIC = 0x53504958;
+    private static final short VERSION = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int LEVEL_COUNT = 10;
+
+    private final byte[] data;
+    private final ClassName[] classNames;
+    private final int count;
+    private final int[] nameOffsets;
+    private final int nameBlockStart;
+    private final int[] constraintOffsets;
+    private final int constraintBlockStart;
+    private final int[] ids;
+
+    private SpellIndex(byte[] data, ClassName[] classNames, int count, int[] nameOffsets,
+                       int nameBlockStart, int[] constraintOffsets, int constraintBlockStart, int[] ids) {
+        this.data = data;
+        this.classNames = classNames;
+        this.count = count;
+        this.nameOffsets = nameOffsets;
+        this.nameBlockStart = nameBlockStart;
+        this.constraintOffsets = constraintOffsets;
+        this.constraintBlockStart = constraintBlockStart;
+        this.ids = ids;
+    }
+
+    /**
+     * Checks the index header and offset tables. Spells themselves are decoded lazily by
+     * {@link #readSpells}, so that the first of them can be shown before the rest are decoded.
+     *
+     * @param data the whole content of an index file
+     * @return index over data
+     * @throws IOException if data is not a valid spell index
+     */
+    public static SpellIndex open(byte[] data) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not a spell index");
+            short version = buffer.getShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported spell index version " + version);
+
+            ClassName[] classNames = new ClassName[buffer.get()];
+            for (int i = 0; i < classNames.length; i++)
+                classNames[i] = ClassName.fromString(readModifiedUtf(buffer));
+
+            int count = buffer.getInt();
+            int[] nameOffsets = readOffsets(buffer, count);
+            int nameBlockStart = buffer.position();
+            buffer.position(nameBlockStart + nameOffsets[count]);
+            int[] constraintOffsets = readOffsets(buffer, count);
+            int constraintBlockStart = buffer.position();
+            buffer.position(constraintBlockStart + constraintOffsets[count]);
+            int[] ids = new int[count];
+            buffer.asIntBuffer().get(ids);
+
+            return new SpellIndex(data, classNames, count, nameOffsets, nameBlockStart,
+                    constraintOffsets, constraintBlockStart, ids);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed spell index", e);
+        }
+    }
+
+    /**
+     * @return number of spells in the index
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Decodes a range of spells
+     *
+     * @param from index of the first spell to decode, inclusive
+     * @param to   index of the last spell to decode, exclusive
+     * @return list of decoded spells in alphabetical order
+     */
+    public List<Spell> readSpells(int from, int to) {
+        List<Spell> result = new ArrayList<>(to - from);
+        // spells keep masks of their constraints, so the list is reused
+        List<ClassLevelConstraint> constraints = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            String name = new String(data, nameBlockStart + nameOffsets[i],
+                    nameOffsets[i + 1] - nameOffsets[i], UTF_8);
+            constraints.clear();
+            for (int j = constraintOffsets[i]; j < constraintOffsets[i + 1]; j++) {
+                int encoded = data[constraintBlockStart + j];
+                constraints.add(ClassLevelConstraint.of(classNames[encoded / LEVEL_COUNT], encoded % LEVEL_COUNT));
+            }
+            result.add(new Spell(ids[i], name, constraints));
+        }
+        return result;
+    }
+
+    /**
+     * Writes the index of spells
+     *
+     * @param spells spells to write; they are written in alphabetical order
+     * @param out    stream to write the index to
+     * @throws IOException if the index can't be written
+     */
+    public static void write(List<Spell> spells, OutputStream out) throws IOException {
+        List<Spell> sorted = new ArrayList<>(spells);
+        Collections.sort(sorted, Spell.NAME_COMPARATOR);
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+
+        ClassName[] classNames = ClassName.values();
+        data.writeByte(classNames.length);
+        for (ClassName className : classNames)
+            data.writeUTF(className.getUniqueName());
+
+        data.writeInt(sorted.size());
+
+        ByteArrayOutputStream nameBlock = new ByteArrayOutputStream();
+        ByteArrayOutputStream constraintBlock = new ByteArrayOutputStream();
+        int[] nameOffsets = new int[sorted.size() + 1];
+        int[] constraintOffsets = new int[sorted.size() + 1];
+        for (int i = 0; i < sorted.size(); i++) {
+            byte[] encodedName = sorted.get(i).getName().getBytes(UTF_8);
+            nameBlock.write(encodedName, 0, encodedName.length);
+            nameOffsets[i + 1] = nameBlock.size();
+
+            for (ClassLevelConstraint constraint : sorted.get(i).getClassLevelConstraints())
+                constraintBlock.write(constraint.getClassName().ordinal() * LEVEL_COUNT + constraint.getLevel());
+            constraintOffsets[i + 1] = constraintBlock.size();
+        }
+
+        for (int offset : nameOffsets)
+            data.writeInt(offset);
+        nameBlock.writeTo(data);
+        for (int offset : constraintOffsets)
+            data.writeInt(offset);
+        constraintBlock.writeTo(data);
+        for (Spell spell : sorted)
+            data.writeInt(spell.getId());
+        data.flush();
+    }
+
+    private static int[] readOffsets(ByteBuffer buffer, int count) {
+        int[] offsets = new int[count + 1];
+        buffer.asIntBuffer().get(offsets);
+        buffer.position(buffer.position() + offsets.length * 4);
+        return offsets;
+    }
+
+    /**
+     * Reads a string written by {@link java.io.DataOutput#writeUTF}. Class names are plain
+     * ascii, so the modified UTF-8 encoding is the same as the standard one.
+     */
+    private static String readModifiedUtf(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xffff;
+        String result = new String(buffer.array(), buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return result;
+    }
+}
@@ -0,0 +1,373 @@
+package org.dnd5spellbook.core;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.io.ByteStreams;
+
+import org.dnd5spellbook.domain.ClassLevelConstraint;
+import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.Spell;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Has logic for loading spells from a spell bundle
+ */
+public class SpellLoader {
+
+    private static final Logger logger = Logger.getLogger(SpellLoader.class.getName());
+    private static final LatencyHistogram loadHistogram = MetricsRegistry.getDefault().histogram(MetricsRegistry.LOAD);
+
+    /**
+     * Name of the spell metadata file within a bundle
+     */
+    public static final String METADATA_FILE_NAME = "spell_metadata.xml";
+
+    private final AssetSource assets;
+    private final String bundlePath;
+
+    /**
+     * Receives spells in portions while they are being read
+     */
+    public interface Callback {
+        /**
+         * Called for every portion of read spells. Portions come in alphabetical order.
+         *
+         * @param spells next portion of spells
+         */
+        void onSpellsRead(List<Spell> spells);
+    }
+
+    /**
+     * Creates a loader for a spell bundle
+     *
+     * @param assets     source to read bundle files from
+     * @param bundlePath path of the bundle directory within assets
+     */
+    public SpellLoader(AssetSource assets, String bundlePath) {
+        this.assets = assets;
+        this.bundlePath = bundlePath;
+    }
+
+    /**
+     * Reads all spells from the bundle passing them to callback in portions as soon as
+     * they are decoded. The first portion holds {@code firstChunkSize} spells, and
+     * every next portion is twice as large as the previous one, so that the first
+     * screen can be shown quickly without flooding the receiver with small portions.
+     * The latency of reading is recorded in the {@link MetricsRegistry#LOAD} histogram
+     * of the default registry.
+     *
+     * @param firstChunkSize number of spells in the first portion, at least 1
+     * @param callback       receiver of spell portions
+     * @return list of all spells that was read from the bundle in alphabetical order
+     * @throws IllegalArgumentException if {@code firstChunkSize} is less than 1
+     */
+    public List<Spell> readSpellList(int firstChunkSize, Callback callback) {
+        if (firstChunkSize < 1)
+            throw new IllegalArgumentException("Invalid first chunk size " + firstChunkSize);
+        long start = LatencyHistogram.start();
+        List<Spell> result = new ArrayList<>();
+        int chunkSize = firstChunkSize;
+        try {
+            SpellIndex index = openIndex();
+            for (int from = 0; from < index.size(); from += chunkSize, chunkSize *= 2) {
+                List<Spell> chunk = index.readSpells(from, Math.min(from + chunkSize, index.size()));
+                result.addAll(chunk);
+                callback.onSpellsRead(chunk);
+            }
+        } catch (FileNotFoundException e) {
+            logger.log(Level.WARNING, "Spell index is not available, falling back to spell metadata", e);
+            result = readSpellListFromMetadata();
+            for (int from = 0; from < result.size(); from += chunkSize, chunkSize *= 2)
+                callback.onSpellsRead(result.subList(from, Math.min(from + chunkSize, result.size())));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error while reading spell index", e);
+            throw new RuntimeException(e);
+        }
+        loadHistogram.stop(start);
+        return result;
+    }
+
+    /**
+     * Reads all spells from the bundle and returns them. The returned list
+     * is sorted in alphabetical order for convenience. The spells are read
+     * from the binary spell index if it is available; otherwise they are
+     * read from the bundle listing and the spell metadata xml.
+     *
+     * @return list of spells that was read from the bundle
+     */
+    public List<Spell> readSpellList() {
+        long start = LatencyHistogram.start();
+        try {
+            List<Spell> spells = readSpellListFromIndex();
+            loadHistogram.stop(start);
+            return spells;
+        } catch (FileNotFoundException e) {
+            logger.log(Level.WARNING, "Spell index is not available, falling back to spell metadata", e);
+            List<Spell> spells = readSpellListFromMetadata();
+            loadHistogram.stop(start);
+            return spells;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error while reading spell index", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads all spells from the binary spell index of the bundle with a single
+     * sequential read. The returned list is sorted in alphabetical order.
+     *
+     * @return list of spells that was read from the index
+     * @throws FileNotFoundException if there is no spell index in the bundle
+     * @throws IOException           if the index can't be read or is invalid
+     */
+    public List<Spell> readSpellListFromIndex() throws IOException {
+        SpellIndex index = openIndex();
+        return index.readSpells(0, index.size());
+    }
+
+    private SpellIndex openIndex() throws IOException {
+        InputStream stream = assets.open(bundlePath + "/" + SpellIndex.FILE_NAME);
+        try {
+            return SpellIndex.open(ByteStreams.toByteArray(stream));
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Opens the full text index of the bundle. The index file is memory mapped, and its
+     * documents are the spells of the bundle in alphabetical order.
+     *
+     * @return full text index of spell descriptions
+     * @throws FileNotFoundException if there is no full text index in the bundle
+     * @throws IOException           if the index can't be read or is invalid
+     */
+    public FullTextIndex readFullTextIndex() throws IOException {
+        return FullTextIndex.open(assets.map(bundlePath + "/" + FullTextIndex.FILE_NAME));
+    }
+
+    /**
+     * Opens the archive of spell html files of the bundle. The archive file is memory
+     * mapped, and its entries are identified by stable spell ids.
+     *
+     * @return archive of spell html files
+     * @throws FileNotFoundException if there is no spell archive in the bundle
+     * @throws IOException           if the archive can't be read or is invalid
+     */
+    public SpellArchive readSpellArchive() throws IOException {
+        return SpellArchive.open(assets.map(bundlePath + "/" + SpellArchive.FILE_NAME));
+    }
+
+    /**
+     * Reads the columnar spell attributes of the bundle. Attributes are indexed by spell
+     * position, the same as spells of {@link #readSpellList()}.
+     *
+     * @return attributes of the spells parsed from their headers
+     * @throws FileNotFoundException if there are no spell attributes in the bundle
+     * @throws IOException           if the attributes can't be read or are invalid
+     */
+    public SpellAttributes readSpellAttributes() throws IOException {
+        InputStream stream = assets.open(bundlePath + "/" + SpellAttributes.FILE_NAME);
+        try {
+            return SpellAttributes.open(ByteStreams.toByteArray(stream));
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Reads the html file of a spell of the bundle
+     *
+     * @param spellName name of the spell
+     * @return content of the spell html file
+     * @throws FileNotFoundException if there is no such spell in the bundle
+     * @throws IOException           if the file can't be read
+     */
+    public String readSpellHtml(String spellName) throws IOException {
+        return SpellHtml.read(assets, bundlePath, spellName);
+    }
+
+    /**
+     * Reads the registry of stable spell ids of the bundle
+     *
+     * @return spell id registry
+     * @throws FileNotFoundException if there is no id registry in the bundle
+     * @throws IOException           if the registry can't be read or is invalid
+     */
+    public SpellIdRegistry readSpellIdRegistry() throws IOException {
+        InputStream stream = assets.open(bundlePath + "/" + SpellIdRegistry.FILE_NAME);
+        try {
+            return SpellIdRegistry.read(stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Reads all spells by listing spell files in the bundle and parsing the spell
+     * metadata xml. Spells get their ids from the id registry of the bundle if there is
+     * one. A bundle without spell files, which html is packed into the spell archive as
+     * in the application package, lists the registered spells that are in the archive.
+     * The returned list is sorted in alphabetical order.
+     *
+     * @return list of spells that was read from the bundle
+     */
+    public List<Spell> readSpellListFromMetadata() {
+        try {
+            Multimap<String, ClassLevelConstraint> constraints = readSpellClassLevelConstraints();
+            SpellIdRegistry registry;
+            try {
+                registry = readSpellIdRegistry();
+            } catch (FileNotFoundException e) {
+                logger.log(Level.WARNING, "Spell id registry is not available, spells will have no ids", e);
+                registry = SpellIdRegistry.empty();
+            }
+
+            List<Spell> results = new ArrayList<>();
+            for (String spellName : listSpellNames(registry))
+                results.add(new Spell(registry.getId(spellName), spellName, constraints.get(spellName)));
+
+            Collections.sort(results, Spell.NAME_COMPARATOR);
+            return results;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error while retrieving spell list", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Lists names of the spell files of the bundle or, if there are none, names of the
+     * registered spells that are in the spell archive
+     */
+    private List<String> listSpellNames(SpellIdRegistry registry) throws IOException {
+        List<String> spellNames = new ArrayList<>();
+        for (String name : assets.list(bundlePath))
+            if (name.endsWith(".html"))
+                spellNames.add(name.substring(0, name.length() - ".html".length()));
+        if (!spellNames.isEmpty() || registry.size() == 0)
+            return spellNames;
+
+        SpellArchive archive;
+        try {
+            archive = readSpellArchive();
+        } catch (FileNotFoundException e) {
+            return spellNames;
+        }
+        List<String> registered = registry.getNames();
+        for (int id = 0; id < registered.size(); id++)
+            if (archive.contains(id))
+                spellNames.add(registered.get(id));
+        return spellNames;
+    }
+
+    /**
+     * Reads all spell constrains from the bundle metadata file and returns them as a Multimap.
+     * The key in the map is the spell name, and values represent a collection of
+     * class level constraints for the spell)
+     *
+     * @return a Multimap from spell name (key) to class level constraints of the spell (value)
+     */
+    public Multimap<String, ClassLevelConstraint> readSpellClassLevelConstraints() {
+        InputStream stream;
+        try {
+            stream = assets.open(bundlePath + "/" + METADATA_FILE_NAME);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        try {
+            XmlPullParser parser = XmlPullParserFactory.newInstance().newPullParser();
+            parser.setInput(stream, "UTF-8");
+            return readSpellClassLevelConstraints(parser);
+        } catch (IOException | XmlPullParserException e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                //noinspection ThrowFromFinallyBlock
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads all spell constrains from a given parser and returns them as a Multimap.
+     * The key in the map is the spell name, and values represent a collection of
+     * class level constraints for the spell)
+     *
+     * @param parser Parser to read constraints data from
+     * @return a Multimap from spell name (key) to class level constraints of the spell (value)
+     */
+    private Multimap<String, ClassLevelConstraint> readSpellClassLevelConstraints(XmlPullParser parser) throws IOException, XmlPullParserException {
+        Multimap<String, ClassLevelConstraint> result = HashMultimap.create();
+        parser.nextTag();
+        parser.require(XmlPullParser.START_TAG, null, "classes");
+        while (parser.next() != XmlPullParser.END_TAG) {
+            if (parser.getEventType() != XmlPullParser.START_TAG) {
+                continue;
+            }
+            parser.require(XmlPullParser.START_TAG, null, "class");
+            String className = parser.getAttributeValue(null, "name");
+            readAndAppendLevels(parser, result, className);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the levels sequence {@literal (<level>...</level><level>...</level><level>...</level>)}
+     * within one class from  parser and adds constraints to result;
+     *
+     * @param parser    parser to read xml data from
+     * @param result    Multimap to append results to
+     * @param className name of the class for creating {@link org.dnd5spellbook.domain.ClassLevelConstraint}
+     * @throws IOException            when I/O error occurs
+     * @throws XmlPullParserException when xml structure parsing error occurs
+     */
+    private void readAndAppendLevels(XmlPullParser parser, Multimap<String, ClassLevelConstraint> result, String className) throws IOException, XmlPullParserException {
+        while (parser.next() != XmlPullParser.END_TAG) {
+            if (parser.getEventType() != XmlPullParser.START_TAG) {
+                continue;
+            }
+            parser.require(XmlPullParser.START_TAG, null, "level");
+            int level = Integer.valueOf(parser.getAttributeValue(null, "value"));
+            readAndAppendItems(parser, result, className, level);
+        }
+        parser.require(XmlPullParser.END_TAG, null, "class");
+    }
+
+    /**
+     * Reads the items sequence {@literal (<item>...</item><item>...</item><item>...</item>)}
+     * within one level from parser and adds constraints to result;
+     *
+     * @param parser    parser to read xml data from
+     * @param result    Multimap to append results to
+     * @param className name of the class for creating {@link org.dnd5spellbook.domain.ClassLevelConstraint}
+     * @param level     required level for creating {@link org.dnd5spellbook.domain.ClassLevelConstraint}
+     * @throws IOException            when I/O error occurs
+     * @throws XmlPullParserException when xml structure parsing error occurs
+     */
+    private void readAndAppendItems(XmlPullParser parser, Multimap<String, ClassLevelConstraint> result, String className, int level) throws IOException, XmlPullParserException {
+        ClassLevelConstraint constraint = ClassLevelConstraint.of(ClassName.fromString(className), level);
+        while (parser.next() != XmlPullParser.END_TAG) {
+            if (parser.getEventType() != XmlPullParser.START_TAG) {
+                continue;
+            }
+            parser.require(XmlPullParser.START_TAG, null, "item");
+            String spellName = parser.nextText();
+            result.put(spellName, constraint);
+        }
+        parser.require(XmlPullParser.END_TAG, null, "level");
+    }
+}
@@ -0,0 +1,212 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bundle of spells taking part in a merged catalogue, see {@link SpellCatalogue}: the
+ * bundle shipped with the application or a homebrew pack found in application storage,
+ * see {@link PackDirectory}.
+ * <p/>
+ * Spells of a pack get catalogue ids made of the pack number and their ids in the pack,
+ * {@code number * ID_STRIDE + id}, so catalogue ids stay stable when other packs are
+ * added or removed and can be persisted like bundle ids. The shipped bundle has number 0,
+ * so its spells keep their bundle ids.
+ */
+public class SpellPack {
+
+    /**
+     * Number of the bundle shipped with the application
+     */
+    public static final int BUNDLED_NUMBER = 0;
+
+    /**
+     * Name of the bundle shipped with the application
+     */
+    public static final String BUNDLED_NAME = "bundled";
+
+    /**
+     * Difference between the catalogue ids of the first spells of consecutive pack
+     * numbers, which is also the maximal number of spell ids in a pack. It is kept small
+     * because favorites are a bitset over catalogue ids, see {@link FavoriteSet}.
+     */
+    public static final int ID_STRIDE = 1 << 14;
+
+    /**
+     * Maximal pack number, so that catalogue ids fit records of the favorites journal,
+     * see {@link FavoriteJournal#MAX_ID}
+     */
+    public static final int MAX_NUMBER = FavoriteJournal.MAX_ID / ID_STRIDE;
+
+    private final String name;
+    private final int number;
+    private final SpellLoader spellLoader;
+    private final File directory;
+    private final long stamp;
+
+    // opened on first use, guarded by this
+    private SpellArchive spellArchive;
+    private boolean noSpellArchive;
+
+    /**
+     * Creates a pack
+     *
+     * @param name        name of the pack, unique within a catalogue
+     * @param number      number of the pack, see {@link #toCatalogueId}
+     * @param spellLoader loader of the pack bundle
+     * @param directory   directory of the pack in application storage, or null for the
+     *                    bundle shipped in assets
+     * @param stamp       number that changes when the pack content changes, such as the
+     *                    modification time of its spell index
+     */
+    public SpellPack(String name, int number, SpellLoader spellLoader, File directory, long stamp) {
+        this.name = name;
+        this.number = number;
+        this.spellLoader = spellLoader;
+        this.directory = directory;
+        this.stamp = stamp;
+    }
+
+    /**
+     * Creates the pack of the bundle shipped with the application
+     *
+     * @param spellLoader loader of the shipped bundle
+     * @return pack with number {@link #BUNDLED_NUMBER}
+     */
+    public static SpellPack bundled(SpellLoader spellLoader) {
+        return new SpellPack(BUNDLED_NAME, BUNDLED_NUMBER, spellLoader, null, 0);
+    }
+
+    /**
+     * @return name of the pack
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of the pack
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * @return loader of the pack bundle
+     */
+    public SpellLoader getSpellLoader() {
+        return spellLoader;
+    }
+
+    /**
+     * @return directory of the pack in application storage, or null for the shipped bundle
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return number that changes when the pack content changes
+     */
+    public long getStamp() {
+        return stamp;
+    }
+
+    /**
+     * @param id stable id of a spell in the pack, or {@link Spell#NO_ID}
+     * @return catalogue id of the spell, or {@link Spell#NO_ID}
+     */
+    public int toCatalogueId(int id) {
+        return id == Spell.NO_ID ? Spell.NO_ID : number * ID_STRIDE + id;
+    }
+
+    /**
+     * @param catalogueId catalogue id of a spell
+     * @return number of the pack of the spell
+     */
+    public static int packNumber(int catalogueId) {
+        return catalogueId / ID_STRIDE;
+    }
+
+    /**
+     * @param catalogueId catalogue id of a spell
+     * @return stable id of the spell in its pack
+     */
+    public static int packId(int catalogueId) {
+        return catalogueId % ID_STRIDE;
+    }
+
+    /**
+     * Reads the spells of the pack with catalogue ids
+     *
+     * @return spells of the pack in alphabetical order
+     */
+    public List<Spell> readSpells() {
+        List<Spell> spells = spellLoader.readSpellList();
+        if (number == BUNDLED_NUMBER)
+            return spells;
+        List<Spell> result = new ArrayList<>(spells.size());
+        for (Spell spell : spells)
+            result.add(spell.withId(toCatalogueId(spell.getId())));
+        return result;
+    }
+
+    /**
+     * Reads the html of a spell of the pack from the spell archive of the pack, or from
+     * the spell html file if there is no archive
+     *
+     * @param catalogueId catalogue id of the spell, or {@link Spell#NO_ID}
+     * @param spellName   name of the spell
+     * @return content of the spell html file
+     * @throws IOException if the html can't be read
+     */
+    public String readSpellHtml(int catalogueId, String spellName) throws IOException {
+        SpellArchive archive = catalogueId == Spell.NO_ID ? null : getSpellArchive();
+        if (archive != null && archive.contains(packId(catalogueId)))
+            return archive.read(packId(catalogueId));
+        return spellLoader.readSpellHtml(spellName);
+    }
+
+    /**
+     * @return spell archive of the pack, opened on first use, or null if there is none
+     */
+    private synchronized SpellArchive getSpellArchive() throws IOException {
+        if (spellArchive == null && !noSpellArchive) {
+            try {
+                spellArchive = spellLoader.readSpellArchive();
+            } catch (FileNotFoundException e) {
+                noSpellArchive = true;
+            }
+        }
+        return spellArchive;
+    }
+
+    /**
+     * Releases the spell archive; it is opened again when it is needed
+     */
+    public synchronized void trim() {
+        spellArchive = null;
+    }
+
+    /**
+     * @param pack another pack
+     * @return true if the other pack is the same pack with the same content
+     */
+    public boolean isSameAs(SpellPack pack) {
+        return name.equals(pack.name) && number == pack.number && stamp == pack.stamp;
+    }
+
+    @Override
+    public String toString() {
+        return "SpellPack{" +
+                "name='" + name + '\'' +
+                ", number=" + number +
+                ", stamp=" + stamp +
+                '}';
+    }
+}
@@ -0,0 +1,251 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Spells of the shipped bundle and of homebrew packs, loaded once and shared by
+ * everything that shows or searches them. Intended to live as long as the application
+ * process, so that recreated activities and fragments get the spells without reading
+ * the bundle again.
+ * <p/>
+ * The spells, the full text index and the spell attributes form a catalogue, see
+ * {@link SpellCatalogue}; it is loaded on first request and kept until the packs change
+ * and the repository is refreshed, see {@link #refresh()}. Search indexes and spell
+ * archives are derived caches: they are built on first use, shared by all
+ * {@link SpellSearch}es of the repository, and released by {@link #trim()}.
+ * <p/>
+ * All methods may be called from any thread. Spells themselves are shared too, so their
+ * favorite marks are expected to be changed on one thread only.
+ */
+public class SpellRepository {
+
+    private static final Logger logger = Logger.getLogger(SpellRepository.class.getName());
+
+    private final SpellPack bundledPack;
+    private final PackDirectory packDirectory;
+    private final Object loadLock = new Object();
+
+    private volatile SpellCatalogue catalogue;
+    // guarded by loadLock
+    private int version;
+
+    /**
+     * Creates a repository of the shipped bundle only; nothing is read until spells are
+     * requested
+     *
+     * @param spellLoader loader to read the bundle with
+     */
+    public SpellRepository(SpellLoader spellLoader) {
+        this(spellLoader, null);
+    }
+
+    /**
+     * Creates a repository of the shipped bundle and homebrew packs; nothing is read until
+     * spells are requested
+     *
+     * @param spellLoader   loader to read the shipped bundle with
+     * @param packDirectory directory of homebrew packs, or null if there are none
+     */
+    public SpellRepository(SpellLoader spellLoader, PackDirectory packDirectory) {
+        this.bundledPack = SpellPack.bundled(spellLoader);
+        this.packDirectory = packDirectory;
+    }
+
+    /**
+     * @return true if the catalogue is loaded, so getters return without reading the bundle
+     */
+    public boolean isLoaded() {
+        return catalogue != null;
+    }
+
+    /**
+     * Loads the catalogue if it is not loaded yet, see {@link #load(int, SpellLoader.Callback)}
+     *
+     * @return unmodifiable list of all spells in alphabetical order
+     */
+    public List<Spell> load() {
+        return load(0, null);
+    }
+
+    /**
+     * Loads the catalogue if it is not loaded yet. If there are no homebrew packs, the
+     * spell list is reported in portions as {@link SpellLoader#readSpellList(int, SpellLoader.Callback)}
+     * does; otherwise the merged list is reported at once. Concurrent calls wait for the
+     * one that reads the packs, and only that call reports spells.
+     *
+     * @param firstChunkSize number of spells in the first portion, at least 1 if there is a callback
+     * @param callback       receiver of portions of spells, or null to read the list at once
+     * @return unmodifiable list of all spells in alphabetical order
+     * @throws IllegalArgumentException if there is a callback and {@code firstChunkSize} is less than 1
+     */
+    public List<Spell> load(int firstChunkSize, SpellLoader.Callback callback) {
+        if (callback != null && firstChunkSize < 1)
+            throw new IllegalArgumentException("Invalid first chunk size " + firstChunkSize);
+        return loadCatalogue(firstChunkSize, callback).getSpells();
+    }
+
+    private SpellCatalogue loadCatalogue(int firstChunkSize, SpellLoader.Callback callback) {
+        SpellCatalogue loaded = catalogue;
+        if (loaded != null)
+            return loaded;
+        synchronized (loadLock) {
+            if (catalogue == null)
+                catalogue = SpellCatalogue.merge(++version, findPacks(), firstChunkSize, callback);
+            return catalogue;
+        }
+    }
+
+    /**
+     * Looks for homebrew packs again and merges a new catalogue if they were added,
+     * removed or changed since the catalogue was loaded. Loads the catalogue if it is not
+     * loaded yet. Searches of the previous catalogue keep working with its spells.
+     *
+     * @return true if a new catalogue replaced a loaded one
+     */
+    public boolean refresh() {
+        synchronized (loadLock) {
+            SpellCatalogue current = catalogue;
+            if (current == null) {
+                loadCatalogue(0, null);
+                return false;
+            }
+            List<SpellPack> packs = findPacks();
+            if (current.hasSamePacks(packs))
+                return false;
+            catalogue = SpellCatalogue.merge(++version, packs);
+            logger.info("Spell packs changed, catalogue version " + version);
+            return true;
+        }
+    }
+
+    /**
+     * @return the shipped bundle followed by the homebrew packs
+     */
+    private List<SpellPack> findPacks() {
+        List<SpellPack> packs = new ArrayList<>();
+        packs.add(bundledPack);
+        if (packDirectory != null) {
+            try {
+                packs.addAll(packDirectory.discover());
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Spell packs are not available", e);
+            }
+        }
+        return packs;
+    }
+
+    /**
+     * @return the catalogue, or null if it is not loaded yet
+     */
+    public SpellCatalogue getCatalogue() {
+        return catalogue;
+    }
+
+    /**
+     * @return unmodifiable list of all spells in alphabetical order, or null if the
+     * catalogue is not loaded yet
+     */
+    public List<Spell> getSpells() {
+        SpellCatalogue catalogue = this.catalogue;
+        return catalogue == null ? null : catalogue.getSpells();
+    }
+
+    /**
+     * @return full text index of spell descriptions, or null if it is not available or
+     * the catalogue is not loaded yet
+     */
+    public FullTextIndex getFullTextIndex() {
+        SpellCatalogue catalogue = this.catalogue;
+        return catalogue == null ? null : catalogue.getFullTextIndex();
+    }
+
+    /**
+     * @return attributes of the spells in the same order, or null if they are not
+     * available or the catalogue is not loaded yet
+     */
+    public SpellAttributes getAttributes() {
+        SpellCatalogue catalogue = this.catalogue;
+        return catalogue == null ? null : catalogue.getAttributes();
+    }
+
+    /**
+     * Gets the name index of all spells, building it on first use. Loads the catalogue
+     * if it is not loaded yet.
+     *
+     * @return name index of all spells
+     */
+    public NameIndex getNameIndex() {
+        return loadCatalogue(0, null).getNameIndex();
+    }
+
+    /**
+     * Gets the fuzzy name index of all spells, building it on first use. Loads the
+     * catalogue if it is not loaded yet.
+     *
+     * @return fuzzy name index of all spells
+     */
+    public FuzzyNameIndex getFuzzyNameIndex() {
+        return loadCatalogue(0, null).getFuzzyNameIndex();
+    }
+
+    /**
+     * Gets the facets of all spells and their attributes, building them on first use.
+     * Loads the catalogue if it is not loaded yet.
+     *
+     * @return facets of all spells
+     */
+    public SpellFacets getFacets() {
+        return loadCatalogue(0, null).getFacets();
+    }
+
+    /**
+     * Finds the pack of a spell. Spells without ids and spells with ids of the shipped
+     * bundle are found without loading the catalogue; homebrew spells load it if it is
+     * not loaded yet, which may discover and compile packs, so it must not be called on
+     * the UI thread for them.
+     *
+     * @param spellId catalogue id of the spell, or {@link Spell#NO_ID}
+     * @return the pack, or null if the spell is not from a pack of the catalogue
+     */
+    public SpellPack getPack(int spellId) {
+        if (spellId == Spell.NO_ID || SpellPack.packNumber(spellId) == SpellPack.BUNDLED_NUMBER)
+            return bundledPack;
+        return loadCatalogue(0, null).getPack(spellId);
+    }
+
+    /**
+     * Reads the html of a spell from its pack, see {@link #getPack}
+     *
+     * @param spellId   catalogue id of the spell, or {@link Spell#NO_ID}
+     * @param spellName name of the spell
+     * @return content of the spell html file
+     * @throws IOException if the html can't be read or the spell is not from a pack of
+     *                     the catalogue
+     */
+    public String readSpellHtml(int spellId, String spellName) throws IOException {
+        SpellPack pack = getPack(spellId);
+        if (pack == null)
+            throw new FileNotFoundException("No spell pack for spell " + spellName + " with id " + spellId);
+        return pack.readSpellHtml(spellId, spellName);
+    }
+
+    /**
+     * Releases the derived caches, keeping the catalogue. Caches are built again when
+     * they are requested next time; searches that are running keep the caches they use.
+     */
+    public void trim() {
+        SpellCatalogue catalogue = this.catalogue;
+        if (catalogue != null)
+            catalogue.trim();
+        // the archive of the shipped bundle may be open before the catalogue is loaded
+        bundledPack.trim();
+        logger.info("Released derived spell caches");
+    }
+}
@@ -0,0 +1,424 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.ConstraintMask;
+import org.dnd5spellbook.domain.Spell;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Filters a list of spells by name, favorite status, classes, levels and facets, and
+ * ranks the matching spells so that spells starting with the searched string go first.
+ * The level and facet filters are evaluated first over precomputed bitsets, see
+ * {@link SpellFacets}, so names are compared only for spells passing them.
+ * <p/>
+ * Searches keep caches, so a search should be used by a single thread at a time. The
+ * filters are either set by the setters and applied by {@link #search(CharSequence)},
+ * or passed along with the query as a {@link FilterSpec} snapshot to
+ * {@link #search(FilterSpec)}, which doesn't read any state shared with other threads.
+ */
+public class SpellSearch {
+
+    /**
+     * Number of matches below which misspelled names are matched as well
+     */
+    public static final int FEW_MATCHES = 3;
+
+    private static final LatencyHistogram filterHistogram = MetricsRegistry.getDefault().histogram(MetricsRegistry.FILTER);
+    private static final LatencyHistogram rankHistogram = MetricsRegistry.getDefault().histogram(MetricsRegistry.RANK);
+
+    private final List<Spell> spells;
+    // null if the search builds its own indexes
+    private final SpellRepository repository;
+    private FilterSpec filterSpec = FilterSpec.DEFAULT;
+
+    private NameIndex nameIndex;
+    private FuzzyNameIndex fuzzyNameIndex;
+    private boolean fuzzySearch = true;
+    private volatile FullTextIndex fullTextIndex;
+    private volatile SpellAttributes attributes;
+    private SpellFacets facets;
+
+    // the last name search, kept for refining its result when the query is extended
+    private String lastQuery;
+    private ConstraintMask lastConstraintFilter;
+    private Set<Integer> lastLevelFilter;
+    private FacetFilter lastFacetFilter;
+    private int[] lastMatches;
+
+    /**
+     * Creates a search over a list of spells
+     *
+     * @param spells list of spells to search in, sorted by name as with
+     *               {@link Spell#NAME_COMPARATOR}; the list is not copied, so spells
+     *               added to it later in name order are searched as well
+     */
+    public SpellSearch(List<Spell> spells) {
+        this(spells, null);
+    }
+
+    /**
+     * Creates a search over a list of spells that takes its indexes from a repository once
+     * the list has all spells of the repository, instead of building them. Searches of a
+     * repository share the indexes, so a new search is as fast as a warm one.
+     *
+     * @param spells     list of spells to search in, see {@link #SpellSearch(List)};
+     *                   expected to be the spells of the repository once they are loaded
+     * @param repository repository to take indexes from, or null to build them
+     */
+    public SpellSearch(List<Spell> spells, SpellRepository repository) {
+        this.spells = spells;
+        this.repository = repository;
+    }
+
+    /**
+     * @return true if only favorite spells are matched
+     */
+    public boolean isShowFavOnly() {
+        return filterSpec.isShowFavOnly();
+    }
+
+    /**
+     * Sets whether only favorite spells should be matched
+     *
+     * @param showFavOnly whether only favorite spells should be matched
+     */
+    public void setShowFavOnly(boolean showFavOnly) {
+        filterSpec = filterSpec.withShowFavOnly(showFavOnly);
+    }
+
+    /**
+     * Sets the set of classes to constrain the spells; only spells that can be cast
+     * by those classes at one of the levels of the level filter are matched.
+     *
+     * @param classNamesFilter set of class names that will limit matched spells
+     */
+    public void setClassNamesFilter(Set<ClassName> classNamesFilter) {
+        filterSpec = filterSpec.withClassNames(classNamesFilter);
+    }
+
+    /**
+     * Gets current set of classes that limits matched spells
+     *
+     * @return current set of classes that limits matched spells
+     */
+    public Set<ClassName> getClassNamesFilter() {
+        return filterSpec.getClassNames();
+    }
+
+    /**
+     * Sets the set of levels to constrain the spells; only spells that can be cast
+     * at those levels by one of the classes of the class filter are matched.
+     *
+     * @param levelFilter set of levels that will limit matched spells
+     */
+    public void setLevelFilter(Set<Integer> levelFilter) {
+        filterSpec = filterSpec.withLevels(levelFilter);
+    }
+
+    /**
+     * Gets current set of levels that limits matched spells
+     *
+     * @return current set of levels that limits matched spells
+     */
+    public Set<Integer> getLevelFilter() {
+        return filterSpec.getLevels();
+    }
+
+    /**
+     * Sets the filter by spell properties; only spells passing every facet of the filter
+     * are matched. Facets are applied once the attributes of the spells are set.
+     *
+     * @param facetFilter filter by spell properties that will limit matched spells
+     */
+    public void setFacetFilter(FacetFilter facetFilter) {
+        filterSpec = filterSpec.withFacetFilter(facetFilter);
+    }
+
+    /**
+     * @return current filter by spell properties that limits matched spells
+     */
+    public FacetFilter getFacetFilter() {
+        return filterSpec.getFacetFilter();
+    }
+
+    /**
+     * Finds positions of spells which names match the query and the class level and facet
+     * filters. If the query contains the query of the previous search and the filters
+     * didn't change, every match is a match of the previous search, so only those are
+     * checked; otherwise the level and facet bitsets are evaluated and the name index is
+     * searched among the spells passing them. The favorite filter is not applied here,
+     * because favorites change between searches.
+     *
+     * @param spec filters with a normalized query
+     * @return positions of matching spells in ascending order
+     */
+    private int[] findMatches(FilterSpec spec) {
+        String query = spec.getQuery();
+        ConstraintMask constraintFilter = spec.getConstraintMask();
+        NameIndex index = nameIndex();
+        SpellFacets spellFacets = facets();
+        int[] matches;
+        int count = 0;
+        if (lastMatches != null && query.contains(lastQuery) && constraintFilter.equals(lastConstraintFilter)
+                && spec.getLevels().equals(lastLevelFilter) && spec.getFacetFilter().equals(lastFacetFilter)) {
+            matches = new int[lastMatches.length];
+            for (int position : lastMatches)
+                if (index.getNormalizedName(position).contains(query))
+                    matches[count++] = position;
+        } else {
+            matches = index.find(query, spellFacets.candidates(spec));
+            for (int position : matches)
+                if (spells.get(position).matches(constraintFilter))
+                    matches[count++] = position;
+        }
+
+        lastQuery = query;
+        lastConstraintFilter = constraintFilter;
+        lastLevelFilter = spec.getLevels();
+        lastFacetFilter = spec.getFacetFilter();
+        lastMatches = count == matches.length ? matches : Arrays.copyOf(matches, count);
+        return lastMatches;
+    }
+
+    /**
+     * Finds positions of spells which descriptions match the query and the class level
+     * and facet filters. The favorite filter is not applied here.
+     *
+     * @param spec          filters with a normalized query
+     * @param fullTextIndex full text index of the spells
+     * @return positions of matching spells in ascending order
+     */
+    private int[] findFullTextMatches(FilterSpec spec, FullTextIndex fullTextIndex) {
+        long[] candidates = facets().candidates(spec);
+        int[] matches = fullTextIndex.search(spec.getQuery());
+        int count = 0;
+        for (int position : matches)
+            if (SpellFacets.contains(candidates, position) && spells.get(position).matches(spec.getConstraintMask()))
+                matches[count++] = position;
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Gets the name index, building it on first use or taking it from the repository.
+     * The index is rebuilt if spells were added to the list since it was built, which
+     * happens only while spells are loading.
+     */
+    private NameIndex nameIndex() {
+        if (nameIndex == null || nameIndex.size() != spells.size()) {
+            SpellCatalogue catalogue = repositoryCatalogue();
+            nameIndex = catalogue != null ? catalogue.getNameIndex() : new NameIndex(spells);
+            lastMatches = null;
+        }
+        return nameIndex;
+    }
+
+    /**
+     * Gets the facets of the spells, building them on first use. The facets are rebuilt if
+     * spells were added to the list or the attributes were set since they were built.
+     */
+    private SpellFacets facets() {
+        SpellAttributes attributes = this.attributes;
+        if (facets == null || facets.size() != spells.size()
+                || facets.hasAttributes() != (attributes != null && attributes.size() == spells.size())) {
+            SpellCatalogue catalogue = repositoryCatalogue();
+            facets = catalogue != null && attributes == catalogue.getAttributes()
+                    ? catalogue.getFacets() : new SpellFacets(spells, attributes);
+            lastMatches = null;
+        }
+        return facets;
+    }
+
+    /**
+     * Gets the fuzzy name index, building it on first use and rebuilding it if spells were
+     * added to the list since it was built, like {@link #nameIndex()}
+     */
+    private FuzzyNameIndex fuzzyNameIndex() {
+        if (fuzzyNameIndex == null || fuzzyNameIndex.size() != spells.size()) {
+            SpellCatalogue catalogue = repositoryCatalogue();
+            fuzzyNameIndex = catalogue != null ? catalogue.getFuzzyNameIndex() : new FuzzyNameIndex(spells);
+        }
+        return fuzzyNameIndex;
+    }
+
+    /**
+     * @return catalogue of the repository if its indexes are indexes of the searched
+     * spells, or null
+     */
+    private SpellCatalogue repositoryCatalogue() {
+        SpellCatalogue catalogue = repository == null ? null : repository.getCatalogue();
+        if (catalogue == null || catalogue.getSpells().size() != spells.size())
+            return null;
+        // a refreshed catalogue is read anew, so it doesn't share spells with the previous one
+        int last = spells.size() - 1;
+        return last < 0 || catalogue.getSpells().get(last) == spells.get(last) ? catalogue : null;
+    }
+
+    private boolean isFullTextSearchActive(FilterSpec spec, FullTextIndex fullTextIndex) {
+        return spec.isFullTextSearch() && fullTextIndex != null && fullTextIndex.getDocumentCount() == spells.size();
+    }
+
+    /**
+     * @return true if misspelled names are matched when there are few exact matches
+     */
+    public boolean isFuzzySearch() {
+        return fuzzySearch;
+    }
+
+    /**
+     * Sets whether misspelled names are matched when fewer than {@link #FEW_MATCHES}
+     * spells contain the query. Such spells are the ones which names are within a small
+     * edit distance of the query, see {@link FuzzyNameIndex}. Fuzzy search is enabled
+     * by default and does not apply to full text search.
+     *
+     * @param fuzzySearch whether misspelled names should be matched
+     */
+    public void setFuzzySearch(boolean fuzzySearch) {
+        this.fuzzySearch = fuzzySearch;
+    }
+
+    /**
+     * Sets the full text index of spell descriptions used by full text search. May be
+     * called from any thread.
+     *
+     * @param fullTextIndex index which documents are the searched spells in the same order
+     */
+    public void setFullTextIndex(FullTextIndex fullTextIndex) {
+        this.fullTextIndex = fullTextIndex;
+    }
+
+    /**
+     * Sets the attributes of the searched spells parsed from their headers. May be called
+     * from any thread.
+     *
+     * @param attributes attributes of the searched spells in the same order
+     */
+    public void setAttributes(SpellAttributes attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * @return attributes of the searched spells, or null if they are not set
+     */
+    public SpellAttributes getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return true if queries are searched in spell descriptions rather than names
+     */
+    public boolean isFullTextSearch() {
+        return filterSpec.isFullTextSearch();
+    }
+
+    /**
+     * Sets whether queries are searched in spell descriptions rather than names. In full
+     * text search a spell matches if its description has all the query terms and "quoted
+     * phrases", see {@link FullTextIndex}. Names are searched as usual while there is
+     * no full text index for the spells.
+     *
+     * @param fullTextSearch whether queries should be searched in spell descriptions
+     */
+    public void setFullTextSearch(boolean fullTextSearch) {
+        filterSpec = filterSpec.withFullTextSearch(fullTextSearch);
+    }
+
+    /**
+     * Finds spells which names (or descriptions in full text search) contain the query
+     * (ignoring case), which match the favorite and facet filters and have a constraint
+     * that matches both the class and the level filter. Spells which names start with the query go
+     * first, and spells are sorted by name within those two groups. If there are fewer
+     * than {@link #FEW_MATCHES} such spells, spells with misspelled names follow, see
+     * {@link #setFuzzySearch}.
+     * <p/>
+     * Uses the filters set by the setters and the favorite marks of the spells.
+     *
+     * @param query string to search for; null matches every spell
+     * @return new list of matched spells in ranking order
+     */
+    public List<Spell> search(CharSequence query) {
+        return search(filterSpec.withQuery(query).withFavorites(FavoriteSet.of(spells)));
+    }
+
+    /**
+     * Finds spells matching a filter spec like {@link #search(CharSequence)} does, taking
+     * the query, the filters and the favorite spells from the spec only. The latencies of
+     * the search and of ranking are recorded in the {@link MetricsRegistry#FILTER} and
+     * {@link MetricsRegistry#RANK} histograms of the default registry.
+     *
+     * @param spec query and filters to search with
+     * @return new list of matched spells in ranking order
+     */
+    public List<Spell> search(FilterSpec spec) {
+        long start = LatencyHistogram.start();
+        FullTextIndex fullTextIndex = this.fullTextIndex;
+        boolean fullText = isFullTextSearchActive(spec, fullTextIndex);
+        int[] matches = fullText ? findFullTextMatches(spec, fullTextIndex) : findMatches(spec);
+        long rankStart = LatencyHistogram.start();
+        List<Spell> newValues = rank(spells, matches, spec);
+        rankHistogram.stop(rankStart);
+        if (newValues.size() < FEW_MATCHES && fuzzySearch && !fullText)
+            addFuzzyMatches(spec, matches, newValues);
+        filterHistogram.stop(start);
+        return newValues;
+    }
+
+    /**
+     * Adds spells with names within a small edit distance of the query, in the order of
+     * {@link FuzzyNameIndex#find}, skipping exact matches
+     *
+     * @param spec      filters with a normalized query
+     * @param matches   positions of exact matches in ascending order
+     * @param newValues list to add matched spells to
+     */
+    private void addFuzzyMatches(FilterSpec spec, int[] matches, List<Spell> newValues) {
+        String query = spec.getQuery();
+        int maxDistance = FuzzyNameIndex.maxDistance(query.length());
+        if (maxDistance == 0)
+            return;
+        long[] candidates = facets().candidates(spec);
+        for (int position : fuzzyNameIndex().find(query, maxDistance)) {
+            if (Arrays.binarySearch(matches, position) >= 0 || !SpellFacets.contains(candidates, position))
+                continue;
+            Spell spell = spells.get(position);
+            if (spell.matches(spec.getConstraintMask()) && matchFavOnlyFilter(spec, position))
+                newValues.add(spell);
+        }
+    }
+
+    private static boolean matchFavOnlyFilter(FilterSpec spec, int position) {
+        return !spec.isShowFavOnly() || spec.getFavorites().contains(position);
+    }
+
+    /**
+     * Ranks matched spells for a query: spells which names start with the query go first,
+     * and spells are sorted by name within those two groups. Spells are sorted by name,
+     * so the position of a spell is its ordinal in name order, and ranking is two passes
+     * over ascending positions instead of a sort. Besides the returned list nothing is
+     * allocated.
+     *
+     * @param spells    list of spells sorted by name
+     * @param positions positions of matched spells in ascending order
+     * @param spec      query and favorite filter; spells not matching the favorite
+     *                  filter are left out
+     * @return new list of ranked spells
+     */
+    public static List<Spell> rank(List<Spell> spells, int[] positions, FilterSpec spec) {
+        String lowerFilterString = spec.getQuery();
+        List<Spell> ranked = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            Spell spell = spells.get(position);
+            if (matchFavOnlyFilter(spec, position) && spell.getNormalizedName().startsWith(lowerFilterString))
+                ranked.add(spell);
+        }
+        for (int position : positions) {
+            Spell spell = spells.get(position);
+            if (matchFavOnlyFilter(spec, position) && !spell.getNormalizedName().startsWith(lowerFilterString))
+                ranked.add(spell);
+        }
+        return ranked;
+    }
+}
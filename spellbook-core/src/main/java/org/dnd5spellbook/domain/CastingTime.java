@@ -0,0 +1,12 @@
+package org.dnd5spellbook.domain;
+
+/**
+ * Kinds of spell casting time. Spells cast in an action, a bonus action or a reaction
+ * take a round; other spells take a stated time.
+ */
+public enum CastingTime {
+    ACTION,
+    BONUS_ACTION,
+    REACTION,
+    TIME
+}
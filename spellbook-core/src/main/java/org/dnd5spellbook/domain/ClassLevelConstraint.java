@@ -0,0 +1,101 @@
+package org.dnd5spellbook.domain;
+
+/**
+ * This class holds pair of values - the name of the caster's class and the level. It
+ * defines a limitation for a spell, that is, that spell can be cast by a member of
+ * that class at that level.
+ * <p/>
+ * Constraints are immutable, and there are only {@link ConstraintMask#LEVEL_COUNT}
+ * levels for each class, so a canonical instance of every constraint is kept in a
+ * table and returned by {@link #of}.
+ */
+public class ClassLevelConstraint {
+    private static final ClassLevelConstraint[] CANONICAL =
+            new ClassLevelConstraint[ClassName.values().length * ConstraintMask.LEVEL_COUNT];
+
+    static {
+        for (ClassName className : ClassName.values())
+            for (int level = 0; level < ConstraintMask.LEVEL_COUNT; level++)
+                CANONICAL[ConstraintMask.bitIndex(className, level)] = new ClassLevelConstraint(className, level);
+    }
+
+    private final ClassName className;
+    private final int level;
+
+    /**
+     * Gets the canonical instance of a constraint
+     *
+     * @param className name of the casters class that can use the constrained spell
+     * @param level     level required for a member of a class to cast the constrained spell,
+     *                  from 0 to {@link ConstraintMask#LEVEL_COUNT} - 1
+     * @return the shared constraint instance
+     * @throws IllegalArgumentException if the level is out of range
+     */
+    public static ClassLevelConstraint of(ClassName className, int level) {
+        return CANONICAL[ConstraintMask.bitIndex(className, level)];
+    }
+
+    /**
+     * Gets the canonical instance of a constraint by its bit index in a constraint mask
+     *
+     * @param bitIndex bit index of the constraint, see {@link ConstraintMask#bitIndex}
+     * @return the shared constraint instance
+     */
+    public static ClassLevelConstraint fromBitIndex(int bitIndex) {
+        return CANONICAL[bitIndex];
+    }
+
+    /**
+     * @return name of the casters class that can use the constrained spell
+     */
+    public ClassName getClassName() {
+        return className;
+    }
+
+    /**
+     * @return level required for a member of a class to cast the constrained spell
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Creates a class-level constraint for a spell. Prefer the shared instances returned
+     * by {@link #of}.
+     *
+     * @param className name of the casters class that can use the constrained spell
+     * @param level     level required for a member of a class to cast the constrained spell
+     */
+    public ClassLevelConstraint(ClassName className, int level) {
+        this.className = className;
+        this.level = level;
+    }
+
+    @Override
+    public String toString() {
+        return "ClassLevelConstraint{" +
+                "className='" + className + '\'' +
+                ", level=" + level +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ClassLevelConstraint that = (ClassLevelConstraint) o;
+
+        if (level != that.level) return false;
+        if (className != that.className) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = className.hashCode();
+        result = 31 * result + level;
+        return result;
+    }
+}
@@ -1,33 +1,39 @@
 package org.dnd5spellbook.domain;
 
-import org.dnd5spellbook.R;
-
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * ClassName have all possible dnd classes
  */
 public enum ClassName {
-    BARD("Bard", "bard", R.color.bard),
-    CLERIC("Cleric", "cleric", R.color.cleric),
-    DRUID("Druid", "druid", R.color.druid),
-    PALADIN("Paladin", "paladin", R.color.paladin),
-    RANGER("Ranger", "ranger", R.color.ranger),
-    SORCERER("Sorcerer", "sorcerer", R.color.sorcerer),
-    WARLOCK("Warlock", "warlock", R.color.warlock),
-    WIZARD("Wizard", "wizard", R.color.wizard);
+    BARD("Bard", "bard"),
+    CLERIC("Cleric", "cleric"),
+    DRUID("Druid", "druid"),
+    PALADIN("Paladin", "paladin"),
+    RANGER("Ranger", "ranger"),
+    SORCERER("Sorcerer", "sorcerer"),
+    WARLOCK("Warlock", "warlock"),
+    WIZARD("Wizard", "wizard");
+
+    // lowercased unique names of all classes
+    private static final Map<String, ClassName> BY_UNIQUE_NAME = new HashMap<>();
+
+    static {
+        for (ClassName c : values())
+            BY_UNIQUE_NAME.put(c.getUniqueName().toLowerCase(), c);
+    }
 
     private final String displayName;
     private final String uniqueName;
-    private final int colorId;
 
-    ClassName(String displayName, String uniqueName, int colorId) {
+    ClassName(String displayName, String uniqueName) {
         this.displayName = displayName;
         this.uniqueName = uniqueName;
-        this.colorId = colorId;
     }
 
     public String getDisplayName() {
@@ -38,10 +44,6 @@ public enum ClassName {
         return uniqueName;
     }
 
-    public int getColorId() {
-        return colorId;
-    }
-
     /**
      * Gets the ClassName instance by its unique string representation
      *
@@ -52,11 +54,13 @@ public enum ClassName {
      *                                            classUniqueName
      */
     public static ClassName fromString(String classUniqueName) {
-        String lowercasedClassName = classUniqueName.toLowerCase();
-        for (ClassName c : values())
-            if (c.getUniqueName().toLowerCase().equals(lowercasedClassName))
-                return c;
-        throw new IllegalArgumentException("No ClassName enum for " + classUniqueName);
+        // unique names are usually stored lowercased already, so try that first
+        ClassName c = BY_UNIQUE_NAME.get(classUniqueName);
+        if (c == null)
+            c = BY_UNIQUE_NAME.get(classUniqueName.toLowerCase());
+        if (c == null)
+            throw new IllegalArgumentException("No ClassName enum for " + classUniqueName);
+        return c;
     }
 
     /**
@@ -0,0 +1,186 @@
+package org.dnd5spellbook.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set of class level constraints encoded as an 80 bit mask: there is one bit for
+ * each of the {@link ClassName} values at each of the {@link #LEVEL_COUNT} levels.
+ * The bit of a constraint has index {@code className.ordinal() * LEVEL_COUNT + level};
+ * bits 0..63 are held by the low word and bits 64..79 by the high word.
+ * <p/>
+ * Masks are immutable, and checking whether two masks have common constraints
+ * takes a couple of bitwise operations without any allocation.
+ */
+public final class ConstraintMask {
+
+    /**
+     * Number of spell levels, cantrips (level 0) included
+     */
+    public static final int LEVEL_COUNT = 10;
+
+    /**
+     * Mask without constraints
+     */
+    public static final ConstraintMask EMPTY = new ConstraintMask(0, 0);
+
+    private final long low;
+    private final long high;
+
+    private ConstraintMask(long low, long high) {
+        this.low = low;
+        this.high = high;
+    }
+
+    /**
+     * Gets the bit index of a constraint
+     *
+     * @param className class of the constraint
+     * @param level     level of the constraint, from 0 to {@link #LEVEL_COUNT} - 1
+     * @return index of the constraint bit
+     */
+    public static int bitIndex(ClassName className, int level) {
+        if (level < 0 || level >= LEVEL_COUNT)
+            throw new IllegalArgumentException("Invalid level " + level);
+        return className.ordinal() * LEVEL_COUNT + level;
+    }
+
+    /**
+     * Creates a mask from its words
+     *
+     * @param low  bits 0..63 of the mask
+     * @param high bits 64..79 of the mask
+     * @return mask with the given bits
+     */
+    public static ConstraintMask of(long low, long high) {
+        return new ConstraintMask(low, high);
+    }
+
+    /**
+     * Creates a mask of a collection of constraints
+     *
+     * @param constraints constraints to be set in the mask
+     * @return mask with bits of all constraints set
+     */
+    public static ConstraintMask of(Collection<ClassLevelConstraint> constraints) {
+        long low = 0;
+        long high = 0;
+        for (ClassLevelConstraint constraint : constraints) {
+            int bit = bitIndex(constraint.getClassName(), constraint.getLevel());
+            if (bit < 64)
+                low |= 1L << bit;
+            else
+                high |= 1L << (bit - 64);
+        }
+        return new ConstraintMask(low, high);
+    }
+
+    /**
+     * Creates a mask of every combination of the given classes and levels. Levels
+     * out of the valid range are ignored.
+     *
+     * @param classNames classes to be set in the mask
+     * @param levels     levels to be set in the mask
+     * @return mask with bits of constraints for each class at each level set
+     */
+    public static ConstraintMask of(Set<ClassName> classNames, Set<Integer> levels) {
+        long low = 0;
+        long high = 0;
+        for (ClassName className : classNames)
+            for (Integer level : levels) {
+                if (level < 0 || level >= LEVEL_COUNT)
+                    continue;
+                int bit = bitIndex(className, level);
+                if (bit < 64)
+                    low |= 1L << bit;
+                else
+                    high |= 1L << (bit - 64);
+            }
+        return new ConstraintMask(low, high);
+    }
+
+    /**
+     * @return bits 0..63 of the mask
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * @return bits 64..79 of the mask
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * Checks whether this mask has at least one constraint in common with a mask
+     * given by its words
+     *
+     * @param otherLow  bits 0..63 of the other mask
+     * @param otherHigh bits 64..79 of the other mask
+     * @return true if the masks intersect
+     */
+    public boolean intersects(long otherLow, long otherHigh) {
+        return (low & otherLow) != 0 || (high & otherHigh) != 0;
+    }
+
+    /**
+     * Checks whether a constraint is set in the mask
+     *
+     * @param className class of the constraint
+     * @param level     level of the constraint
+     * @return true if the constraint bit is set
+     */
+    public boolean contains(ClassName className, int level) {
+        int bit = bitIndex(className, level);
+        return bit < 64 ? (low & (1L << bit)) != 0 : (high & (1L << (bit - 64))) != 0;
+    }
+
+    /**
+     * Lists the constraints set in the mask
+     *
+     * @return new list of the constraints ordered by class and then level
+     */
+    public List<ClassLevelConstraint> toList() {
+        List<ClassLevelConstraint> result = new ArrayList<>(Long.bitCount(low) + Long.bitCount(high));
+        for (long word = low; word != 0; word &= word - 1)
+            result.add(ClassLevelConstraint.fromBitIndex(Long.numberOfTrailingZeros(word)));
+        for (long word = high; word != 0; word &= word - 1)
+            result.add(ClassLevelConstraint.fromBitIndex(64 + Long.numberOfTrailingZeros(word)));
+        return result;
+    }
+
+    /**
+     * @return true if no constraint is set in the mask
+     */
+    public boolean isEmpty() {
+        return low == 0 && high == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ConstraintMask that = (ConstraintMask) o;
+        return low == that.low && high == that.high;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (low ^ (low >>> 32));
+        result = 31 * result + (int) (high ^ (high >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ConstraintMask{" +
+                "low=" + Long.toHexString(low) +
+                ", high=" + Long.toHexString(high) +
+                '}';
+    }
+}
@@ -0,0 +1,13 @@
+package org.dnd5spellbook.domain;
+
+/**
+ * Kinds of spell range. Only {@link #DISTANCE} ranges are measured.
+ */
+public enum RangeKind {
+    SELF,
+    TOUCH,
+    DISTANCE,
+    SIGHT,
+    UNLIMITED,
+    SPECIAL
+}
@@ -0,0 +1,25 @@
+package org.dnd5spellbook.domain;
+
+/**
+ * Schools of magic
+ */
+public enum School {
+    ABJURATION("Abjuration"),
+    CONJURATION("Conjuration"),
+    DIVINATION("Divination"),
+    ENCHANTMENT("Enchantment"),
+    EVOCATION("Evocation"),
+    ILLUSION("Illusion"),
+    NECROMANCY("Necromancy"),
+    TRANSMUTATION("Transmutation");
+
+    private final String displayName;
+
+    School(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,212 @@
+package org.dnd5spellbook.domain;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * POJO that describes a single spell. The class level constraints of a spell are kept
+ * as a constraint mask only, see {@link ConstraintMask}, and listed on demand.
+ */
+public class Spell {
+
+    /**
+     * Id of a spell that has no stable id in its bundle, see {@link #getId}
+     */
+    public static final int NO_ID = -1;
+
+    private final int id;
+    private String name;
+    private final String normalizedName;
+    private boolean favorite;
+    private final long constraintMaskLow;
+    private final long constraintMaskHigh;
+    // created on first use
+    private List<ClassLevelConstraint> classLevelConstraints;
+
+    private static class NameComparator implements Comparator<Spell> {
+        @Override
+        public int compare(Spell lhs, Spell rhs) {
+            return lhs.getName().compareTo(rhs.getName());
+        }
+    }
+
+    public static Comparator<Spell> NAME_COMPARATOR = new NameComparator();
+
+    /**
+     * Creates a new spell with the given name and without a stable id
+     *
+     * @param name                  name of the spell
+     * @param classLevelConstraints class level constraints for this spell; the collection
+     *                              is not retained
+     */
+    public Spell(String name, Collection<ClassLevelConstraint> classLevelConstraints) {
+        this(NO_ID, name, classLevelConstraints);
+    }
+
+    /**
+     * Creates a new spell with the given stable id and name
+     *
+     * @param id                    stable id of the spell, or {@link #NO_ID}
+     * @param name                  name of the spell
+     * @param classLevelConstraints class level constraints for this spell; the collection
+     *                              is not retained
+     */
+    public Spell(int id, String name, Collection<ClassLevelConstraint> classLevelConstraints) {
+        this.id = id;
+        this.name = name;
+        this.normalizedName = normalizeName(name);
+        ConstraintMask mask = ConstraintMask.of(classLevelConstraints);
+        this.constraintMaskLow = mask.getLow();
+        this.constraintMaskHigh = mask.getHigh();
+    }
+
+    private Spell(int id, Spell spell) {
+        this.id = id;
+        this.name = spell.name;
+        this.normalizedName = spell.normalizedName;
+        this.constraintMaskLow = spell.constraintMaskLow;
+        this.constraintMaskHigh = spell.constraintMaskHigh;
+    }
+
+    /**
+     * Creates a copy of the spell with another stable id, e.g. to give spells of several
+     * bundles ids that don't collide. The favorite mark is not copied.
+     *
+     * @param id stable id of the copy, or {@link #NO_ID}
+     * @return copy of the spell with the id
+     */
+    public Spell withId(int id) {
+        return new Spell(id, this);
+    }
+
+    /**
+     * Checks whether the spell has at least one of the constraints in a mask. The
+     * spell keeps its constraints as a precomputed mask, so the check doesn't allocate.
+     *
+     * @param mask constraints to check
+     * @return true if any of the spell class level constraints is set in the mask
+     */
+    public boolean matches(ConstraintMask mask) {
+        return mask.intersects(constraintMaskLow, constraintMaskHigh);
+    }
+
+    /**
+     * @return bits 0..63 of the constraint mask of the spell, see {@link ConstraintMask}
+     */
+    public long getConstraintMaskLow() {
+        return constraintMaskLow;
+    }
+
+    /**
+     * @return bits 64..79 of the constraint mask of the spell, see {@link ConstraintMask}
+     */
+    public long getConstraintMaskHigh() {
+        return constraintMaskHigh;
+    }
+
+    /**
+     * Gets the class level constraints of the spell, ordered by class and then level.
+     * The list is a view of the constraint mask of the spell, created on first use.
+     *
+     * @return unmodifiable list of class level constraints for this spell
+     */
+    public List<ClassLevelConstraint> getClassLevelConstraints() {
+        if (classLevelConstraints == null)
+            classLevelConstraints = new ConstraintList();
+        return classLevelConstraints;
+    }
+
+    /**
+     * Gets the stable id of the spell. Ids are assigned to spell names by the id registry
+     * of a bundle, see {@link org.dnd5spellbook.core.SpellIdRegistry}, and don't change
+     * when spells are added to or removed from the bundle, so they can be persisted.
+     *
+     * @return stable id of the spell, or {@link #NO_ID} if it has none
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the name of the spell
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the name of the spell normalized for searching, see {@link #normalizeName}
+     */
+    public String getNormalizedName() {
+        return normalizedName;
+    }
+
+    /**
+     * Normalizes a spell name or a searched string, that is converts it to lower case.
+     * Spells keep their normalized names, so searches normalize only the query.
+     *
+     * @param s string to normalize
+     * @return normalized string
+     */
+    public static String normalizeName(CharSequence s) {
+        return s.toString().toLowerCase();
+    }
+
+    /**
+     * @return true if this spell is favorite by a user and false otherwise
+     */
+    public boolean isFavorite() {
+        return favorite;
+    }
+
+    /**
+     * Sets whether the spell is a favorite spell
+     *
+     * @param favorite whether the spell should be marked as favorite or not
+     */
+    public void setFavorite(boolean favorite) {
+        this.favorite = favorite;
+    }
+
+    @Override
+    public String toString() {
+        return "Spell{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", favorite=" + favorite +
+                ", classLevelConstraints=" + getClassLevelConstraints() +
+                '}';
+    }
+
+    /**
+     * Unmodifiable list of the constraints set in the constraint mask of the spell
+     */
+    private class ConstraintList extends AbstractList<ClassLevelConstraint> implements RandomAccess {
+
+        @Override
+        public ClassLevelConstraint get(int index) {
+            if (index < 0 || index >= size())
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+            long word = constraintMaskLow;
+            int base = 0;
+            int lowCount = Long.bitCount(constraintMaskLow);
+            if (index >= lowCount) {
+                word = constraintMaskHigh;
+                base = 64;
+                index -= lowCount;
+            }
+            // clear the lowest set bits preceding the requested one
+            for (int i = 0; i < index; i++)
+                word &= word - 1;
+            return ClassLevelConstraint.fromBitIndex(base + Long.numberOfTrailingZeros(word));
+        }
+
+        @Override
+        public int size() {
+            return Long.bitCount(constraintMaskLow) + Long.bitCount(constraintMaskHigh);
+        }
+    }
+}
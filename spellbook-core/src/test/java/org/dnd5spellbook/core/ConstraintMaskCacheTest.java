@@ -0,0 +1,81 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.ConstraintMask;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ConstraintMaskCacheTest {
+
+    private static final ConstraintMaskCache.Factory<ConstraintMask> IDENTITY = new ConstraintMaskCache.Factory<ConstraintMask>() {
+        @Override
+        public ConstraintMask create(ConstraintMask constraints) {
+            return constraints;
+        }
+    };
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        ConstraintMaskCache<ConstraintMask> cache = new ConstraintMaskCache<>(2);
+        ConstraintMask first = cache.get(1, 0, IDENTITY);
+        cache.get(2, 0, IDENTITY);
+        assertSame(first, cache.get(1, 0, IDENTITY));
+        cache.get(0, 3, IDENTITY);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertSame(first, cache.get(1, 0, IDENTITY));
+        cache.get(2, 0, IDENTITY);
+        assertEquals(4, cache.getMissCount());
+
+        cache.trimToSize(1);
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSameAsLinkedHashMap() {
+        final int maxSize = 8;
+        ConstraintMaskCache<ConstraintMask> cache = new ConstraintMaskCache<>(maxSize);
+        Map<List<Long>, ConstraintMask> reference = new LinkedHashMap<>(16, 0.75f, true);
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            if (random.nextInt(100) == 0) {
+                int size = random.nextInt(maxSize);
+                cache.trimToSize(size);
+                for (Iterator<?> it = reference.keySet().iterator(); reference.size() > size; ) {
+                    it.next();
+                    it.remove();
+                }
+            } else {
+                // few distinct keys, some of them differing in the high word only
+                long low = random.nextInt(5) * 0x0101010101010101L;
+                long high = random.nextInt(4);
+                ConstraintMask expected = reference.get(Arrays.asList(low, high));
+                long misses = cache.getMissCount();
+                ConstraintMask actual = cache.get(low, high, IDENTITY);
+                if (expected == null) {
+                    assertEquals(misses + 1, cache.getMissCount());
+                    reference.put(Arrays.asList(low, high), actual);
+                    if (reference.size() > maxSize) {
+                        Iterator<?> it = reference.keySet().iterator();
+                        it.next();
+                        it.remove();
+                    }
+                } else
+                    assertSame(expected, actual);
+            }
+            assertEquals(reference.size(), cache.size());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.dnd5spellbook.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FavoriteJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FavoriteStore store() {
+        return new FavoriteStore(new File(folder.getRoot(), "favorites.bin"));
+    }
+
+    private File journalFile() {
+        return new File(folder.getRoot(), "favorites.journal");
+    }
+
+    @Test
+    public void testChangesSurviveCrash() throws IOException {
+        FavoriteJournal journal = FavoriteJournal.open(store(), journalFile());
+        journal.setFavorite(3, true);
+        journal.setFavorite(700, true);
+        journal.setFavorite(3, false);
+        journal.setFavorite(3, false);
+        journal.setFavorite(42, true);
+        journal.flush();
+        // the journal is never closed, as if the process was killed
+        assertEquals(4 * 4, journalFile().length());
+        assertFalse(store().exists());
+
+        FavoriteSet recovered = FavoriteJournal.open(store(), journalFile()).getFavoriteIds();
+        assertEquals(journal.getFavoriteIds(), recovered);
+        assertFalse(recovered.contains(3));
+        assertTrue(recovered.contains(42));
+        assertTrue(recovered.contains(700));
+    }
+
+    @Test
+    public void testTornRecordIsDropped() throws IOException {
+        FavoriteJournal journal = FavoriteJournal.open(store(), journalFile());
+        journal.setFavorite(5, true);
+        journal.setFavorite(6, true);
+        journal.close();
+
+        // a record torn in the middle, and a zero filled block after a crash
+        OutputStream out = new FileOutputStream(journalFile(), true);
+        out.write(new byte[]{(byte) 0xa1, 0});
+        out.close();
+        FavoriteJournal recovered = FavoriteJournal.open(store(), journalFile());
+        assertEquals(FavoriteSet.EMPTY.with(5, true).with(6, true), recovered.getFavoriteIds());
+        assertEquals(2 * 4, journalFile().length());
+
+        recovered.setFavorite(7, true);
+        recovered.close();
+        out = new FileOutputStream(journalFile(), true);
+        out.write(new byte[4096]);
+        out.close();
+        assertEquals(FavoriteSet.EMPTY.with(5, true).with(6, true).with(7, true),
+                FavoriteJournal.open(store(), journalFile()).getFavoriteIds());
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        FavoriteJournal journal = FavoriteJournal.open(store(), journalFile(), 8);
+        FavoriteSet expected = FavoriteSet.EMPTY;
+        for (int i = 0; i < 20; i++) {
+            journal.setFavorite(i * 7, true);
+            expected = expected.with(i * 7, true);
+            journal.flush();
+        }
+        assertEquals(20 % 8 * 4, journalFile().length());
+        assertEquals(expected, FavoriteJournal.open(store(), journalFile()).getFavoriteIds());
+
+        journal.requestCompaction();
+        journal.flush();
+        assertEquals(0, journalFile().length());
+        assertEquals(expected, store().read());
+        journal.close();
+    }
+
+    @Test
+    public void testCrashDuringCompaction() throws IOException {
+        FavoriteJournal journal = FavoriteJournal.open(store(), journalFile());
+        journal.setFavorite(1, true);
+        journal.setFavorite(2, true);
+        journal.setFavorite(1, false);
+        journal.close();
+        // the snapshot is written, but the journal is not truncated yet
+        store().write(journal.getFavoriteIds());
+
+        FavoriteJournal recovered = FavoriteJournal.open(store(), journalFile());
+        assertEquals(FavoriteSet.EMPTY.with(2, true), recovered.getFavoriteIds());
+        recovered.close();
+    }
+}
@@ -0,0 +1,35 @@
+package org.dnd5spellbook.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FavoriteSetTest {
+
+    @Test
+    public void testCopyOnWrite() {
+        FavoriteSet first = FavoriteSet.EMPTY.with(3, true);
+        FavoriteSet second = first.with(130, true).with(3, false);
+
+        assertTrue(first.contains(3));
+        assertFalse(first.contains(130));
+        assertFalse(second.contains(3));
+        assertTrue(second.contains(130));
+        assertFalse(FavoriteSet.EMPTY.contains(3));
+        assertFalse(second.contains(100000));
+        assertSame(second, second.with(130, true));
+    }
+
+    @Test
+    public void testWords() {
+        FavoriteSet favorites = FavoriteSet.EMPTY.with(5, true).with(200, true).with(200, false);
+        assertArrayEquals(new long[]{1L << 5}, favorites.toWords());
+        assertEquals(favorites, FavoriteSet.fromWords(new long[]{1L << 5, 0, 0}));
+        assertEquals(favorites.hashCode(), FavoriteSet.fromWords(new long[]{1L << 5}).hashCode());
+        assertEquals(1, favorites.size());
+    }
+}
@@ -0,0 +1,63 @@
+package org.dnd5spellbook.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FavoriteStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = new File(folder.getRoot(), "favorites.bin");
+        FavoriteStore store = new FavoriteStore(file);
+        assertFalse(store.exists());
+        assertEquals(FavoriteSet.EMPTY, store.read());
+
+        FavoriteSet favorites = FavoriteSet.EMPTY.with(0, true).with(63, true).with(300, true);
+        store.write(favorites);
+        assertTrue(store.exists());
+        assertEquals(favorites, store.read());
+        // 4 magic, 2 version, 4 word count and 5 words
+        assertEquals(4 + 2 + 4 + 5 * 8, file.length());
+
+        FavoriteSet changed = favorites.with(300, false);
+        store.write(changed);
+        assertEquals(changed, new FavoriteStore(file).read());
+        assertEquals(4 + 2 + 4 + 8, file.length());
+        assertArrayEquals(new String[]{"favorites.bin"}, folder.getRoot().list());
+    }
+
+    @Test
+    public void testInvalidFileIsRejected() throws IOException {
+        File file = new File(folder.getRoot(), "favorites.bin");
+        FavoriteStore store = new FavoriteStore(file);
+        store.write(FavoriteSet.EMPTY.with(200, true));
+
+        byte[] truncated = Arrays.copyOf(Files.readAllBytes(file.toPath()), 20);
+        OutputStream out = new FileOutputStream(file);
+        out.write(truncated);
+        out.close();
+        try {
+            store.read();
+            fail("Truncated file was read");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.ClassName;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class FilterSpecTest {
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testDefaultClassNamesAreUnmodifiable() {
+        FilterSpec.DEFAULT.getClassNames().remove(ClassName.WIZARD);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testDefaultLevelsAreUnmodifiable() {
+        FilterSpec.DEFAULT.getLevels().clear();
+    }
+
+    @Test
+    public void testKeepsConstraintMask() {
+        FilterSpec spec = FilterSpec.DEFAULT.withClassNames(EnumSet.of(ClassName.WIZARD))
+                .withLevels(Collections.singleton(3));
+        FilterSpec typed = spec.withQuery("fire").withFavorites(FavoriteSet.EMPTY).withShowFavOnly(true);
+        assertSame(spec.getConstraintMask(), typed.getConstraintMask());
+        assertEquals("fire", typed.getQuery());
+    }
+}
@@ -0,0 +1,78 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FullTextIndexTest {
+
+    private static FullTextIndex build(List<String> documents) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FullTextIndex.write(documents, out);
+        return FullTextIndex.open(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    private static List<String> names(List<Spell> spells, int[] ids) {
+        List<String> names = new ArrayList<>();
+        for (int id : ids)
+            names.add(spells.get(id).getName());
+        return names;
+    }
+
+    @Test
+    public void testShippedBundle() throws IOException {
+        SpellLoader loader = TestBundles.dndBundleLoader();
+        List<Spell> spells = loader.readSpellListFromMetadata();
+        List<String> documents = new ArrayList<>();
+        for (Spell spell : spells)
+            documents.add(SpellHtml.articleText(
+                    SpellHtml.read(TestBundles.applicationAssets(), TestBundles.DND_BUNDLE, spell.getName())));
+        FullTextIndex index = build(documents);
+
+        assertEquals(spells.size(), index.getDocumentCount());
+        assertTrue(names(spells, index.search("frightened")).contains("Fear"));
+        assertTrue(names(spells, index.search("Frightened")).contains("Fear"));
+        assertTrue(names(spells, index.search("\"saving throw\" dexterity")).contains("Fireball"));
+        assertEquals(0, index.search("frightened xyzzy").length);
+    }
+
+    @Test
+    public void testPhrasesRespectWordOrder() throws IOException {
+        FullTextIndex index = build(Arrays.asList(
+                "a cone of cold air",
+                "cold, then a cone",
+                "nothing to see here"));
+
+        assertArrayEquals(new int[]{0, 1}, index.search("cone cold"));
+        assertArrayEquals(new int[]{0}, index.search("\"cone of cold\""));
+        assertArrayEquals(new int[]{1}, index.search("\"cold then\""));
+        assertArrayEquals(new int[]{}, index.search("\"cold cone\""));
+        assertArrayEquals(new int[]{0, 1, 2}, index.search(""));
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+        FullTextIndex first = build(Arrays.asList("a cone of cold", "a ball of fire", "cold hands"));
+        FullTextIndex second = build(Arrays.asList("a wall of fire", "cold fire"));
+        // the second document of the first index is replaced by the first of the second
+        FullTextIndex merged = FullTextIndex.merge(Arrays.asList(first, second),
+                Arrays.asList(new int[]{1, -1, 2}, new int[]{3, 0}), 4);
+
+        assertEquals(4, merged.getDocumentCount());
+        assertArrayEquals(new int[]{0, 3}, merged.search("fire"));
+        assertArrayEquals(new int[]{0, 1, 2}, merged.search("cold"));
+        assertArrayEquals(new int[]{}, merged.search("ball"));
+        assertArrayEquals(new int[]{0}, merged.search("\"cold fire\""));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, merged.search(""));
+    }
+}
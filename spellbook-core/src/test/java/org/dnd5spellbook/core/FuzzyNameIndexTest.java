@@ -0,0 +1,66 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class FuzzyNameIndexTest {
+
+    private static int distance(String s, String t) {
+        int[] previous = new int[t.length() + 1];
+        int[] current = new int[t.length() + 1];
+        return FuzzyNameIndex.distance(s, t, previous, current);
+    }
+
+    @Test
+    public void testDistance() {
+        assertEquals(0, distance("fireball", "fireball"));
+        assertEquals(1, distance("firebal", "fireball"));
+        assertEquals(2, distance("melfs acid arow", "melf's acid arrow"));
+        assertEquals(3, distance("kitten", "sitting"));
+        assertEquals(5, distance("", "light"));
+    }
+
+    @Test
+    public void testSameMatchesAsBruteForce() {
+        List<Spell> spells = TestBundles.dndBundleLoader().readSpellListFromMetadata();
+        FuzzyNameIndex index = new FuzzyNameIndex(spells);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            // a name with a few random typos
+            StringBuilder query = new StringBuilder(NameIndex.normalize(spells.get(random.nextInt(spells.size())).getName()));
+            for (int typos = random.nextInt(4); typos > 0 && query.length() > 0; typos--) {
+                int at = random.nextInt(query.length());
+                switch (random.nextInt(3)) {
+                    case 0:
+                        query.deleteCharAt(at);
+                        break;
+                    case 1:
+                        query.insert(at, (char) ('a' + random.nextInt(26)));
+                        break;
+                    default:
+                        query.setCharAt(at, (char) ('a' + random.nextInt(26)));
+                }
+            }
+            int maxDistance = random.nextInt(4);
+
+            List<Integer> expected = new ArrayList<>();
+            for (int position = 0; position < spells.size(); position++)
+                if (distance(NameIndex.normalize(spells.get(position).getName()), query.toString()) <= maxDistance)
+                    expected.add(position);
+            int[] found = index.find(query.toString(), maxDistance);
+            Arrays.sort(found);
+            List<Integer> actual = new ArrayList<>();
+            for (int position : found)
+                actual.add(position);
+            assertEquals(query.toString(), expected, actual);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.dnd5spellbook.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IdListDiffTest {
+
+    /**
+     * Applies the operations to a copy of the old list and records them
+     */
+    private static class Recorder implements IdListDiff.Callback {
+        private final List<Integer> list = new ArrayList<>();
+        private final int[] newIds;
+        private final StringBuilder operations = new StringBuilder();
+
+        private Recorder(int[] oldIds, int[] newIds) {
+            for (int id : oldIds)
+                list.add(id);
+            this.newIds = newIds;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            operations.append("+").append(position).append(":").append(count).append(" ");
+            // inserted items are the new items following the items before them
+            int newPosition = newIds.length - (list.size() - position) - count;
+            for (int i = 0; i < count; i++)
+                list.add(position + i, newIds[newPosition + i]);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            operations.append("-").append(position).append(":").append(count).append(" ");
+            list.subList(position, position + count).clear();
+        }
+
+        private int[] result() {
+            int[] ids = new int[list.size()];
+            for (int i = 0; i < ids.length; i++)
+                ids[i] = list.get(i);
+            return ids;
+        }
+    }
+
+    private static Recorder diff(int[] oldIds, int[] newIds, int expectedEdits) {
+        Recorder recorder = new Recorder(oldIds, newIds);
+        assertEquals(expectedEdits, IdListDiff.diff(oldIds, newIds, recorder));
+        assertEquals(Arrays.toString(newIds), Arrays.toString(recorder.result()));
+        return recorder;
+    }
+
+    @Test
+    public void testEqual() {
+        assertEquals("", diff(new int[]{}, new int[]{}, 0).operations.toString());
+        assertEquals("", diff(new int[]{3, 1, 2}, new int[]{3, 1, 2}, 0).operations.toString());
+    }
+
+    @Test
+    public void testRanges() {
+        // typing a letter narrows the list
+        assertEquals("-4:2 -1:1 ", diff(new int[]{1, 2, 3, 4, 5, 6, 7}, new int[]{1, 3, 4, 7}, 3).operations.toString());
+        // deleting it widens the list back
+        assertEquals("+3:2 +1:1 ", diff(new int[]{1, 3, 4, 7}, new int[]{1, 2, 3, 4, 5, 6, 7}, 3).operations.toString());
+        assertEquals("+0:2 ", diff(new int[]{}, new int[]{8, 9}, 2).operations.toString());
+        assertEquals("-0:2 ", diff(new int[]{8, 9}, new int[]{}, 2).operations.toString());
+    }
+
+    @Test
+    public void testReplaced() {
+        diff(new int[]{1, 2, 3}, new int[]{4, 5}, 5);
+        diff(new int[]{1, 2, 3}, new int[]{3, 2, 1}, 4);
+    }
+
+    @Test
+    public void testMaxEdits() {
+        Recorder recorder = new Recorder(new int[]{1, 2, 3, 4}, new int[]{1, 5, 3, 6});
+        assertEquals(8, IdListDiff.diff(new int[]{1, 2, 3, 4}, new int[]{1, 5, 3, 6}, 3, recorder));
+        assertEquals("-0:4 +0:4 ", recorder.operations.toString());
+        assertEquals("[1, 5, 3, 6]", Arrays.toString(recorder.result()));
+    }
+
+    @Test
+    public void testRandom() {
+        Random random = new Random(22);
+        for (int round = 0; round < 200; round++) {
+            int[] oldIds = randomSubsequence(random);
+            int[] newIds = randomSubsequence(random);
+            Recorder recorder = new Recorder(oldIds, newIds);
+            int edits = IdListDiff.diff(oldIds, newIds, 1000, recorder);
+            assertEquals(Arrays.toString(newIds), Arrays.toString(recorder.result()));
+            // both lists are sorted, so the longest common subsequence is their intersection
+            int common = 0;
+            for (int id : oldIds)
+                if (Arrays.binarySearch(newIds, id) >= 0)
+                    common++;
+            assertEquals(oldIds.length + newIds.length - 2 * common, edits);
+        }
+    }
+
+    private static int[] randomSubsequence(Random random) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < 100; id++)
+            if (random.nextInt(3) > 0)
+                ids.add(id);
+        int[] result = new int[ids.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = ids.get(i);
+        return result;
+    }
+
+    private static IdListDiff.Anchor anchor(int[] oldIds, int[] newIds, int maxEdits, int position) {
+        IdListDiff.Anchor anchor = new IdListDiff.Anchor(position);
+        IdListDiff.diff(oldIds, newIds, maxEdits, anchor);
+        return anchor;
+    }
+
+    @Test
+    public void testAnchorFollowsKeptItem() {
+        int[] oldIds = {1, 2, 3, 4, 5, 6};
+        int[] newIds = {0, 2, 7, 8, 4, 6, 9};
+        for (int position : new int[]{1, 3, 5}) {
+            IdListDiff.Anchor anchor = anchor(oldIds, newIds, IdListDiff.DEFAULT_MAX_EDITS, position);
+            assertFalse(anchor.isRemoved());
+            assertEquals(oldIds[position], newIds[anchor.getPosition()]);
+        }
+    }
+
+    @Test
+    public void testAnchorOfRemovedItem() {
+        // the place of a removed item is taken by the next kept or inserted item
+        IdListDiff.Anchor anchor = anchor(new int[]{1, 2, 3, 4}, new int[]{1, 4}, IdListDiff.DEFAULT_MAX_EDITS, 1);
+        assertTrue(anchor.isRemoved());
+        assertEquals(1, anchor.getPosition());
+        anchor = anchor(new int[]{1, 2, 3}, new int[]{1, 5, 3}, IdListDiff.DEFAULT_MAX_EDITS, 1);
+        assertTrue(anchor.isRemoved());
+        assertEquals(1, anchor.getPosition());
+        // a replaced list starts over
+        anchor = anchor(new int[]{1, 2, 3, 4}, new int[]{1, 5, 3, 6}, 3, 2);
+        assertTrue(anchor.isRemoved());
+        assertEquals(0, anchor.getPosition());
+    }
+
+    @Test
+    public void testRandomAnchors() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            int[] oldIds = randomSubsequence(random);
+            int[] newIds = randomSubsequence(random);
+            // both lists are sorted, so kept items are the items of both lists
+            int position = random.nextInt(oldIds.length);
+            IdListDiff.Anchor anchor = anchor(oldIds, newIds, 1000, position);
+            int expected = -1;
+            for (int i = 0; i < newIds.length; i++)
+                if (newIds[i] == oldIds[position])
+                    expected = i;
+            assertEquals(expected < 0, anchor.isRemoved());
+            if (expected >= 0)
+                assertEquals(expected, anchor.getPosition());
+        }
+    }
+}
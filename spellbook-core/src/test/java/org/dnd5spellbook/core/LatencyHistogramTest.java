@@ -0,0 +1,65 @@
+package org.dnd5spellbook.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        assertEquals(0, LatencyHistogram.bucket(0));
+        assertEquals(0, LatencyHistogram.bucket(1023));
+        assertEquals(1, LatencyHistogram.bucket(1024));
+        assertEquals(1, LatencyHistogram.bucket(2047));
+        assertEquals(2, LatencyHistogram.bucket(2048));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKET_COUNT - 1; bucket++) {
+            long bound = LatencyHistogram.upperBound(bucket);
+            assertEquals(bucket, LatencyHistogram.bucket(bound - 1));
+            assertEquals(bucket + 1, LatencyHistogram.bucket(bound));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram("filter");
+        assertEquals(0, histogram.getPercentileNanos(50));
+        // 90 fast filterings of 5us and 10 slow ones of 3ms
+        for (int i = 0; i < 90; i++)
+            histogram.record(5000);
+        for (int i = 0; i < 10; i++)
+            histogram.record(3000000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(3000000, histogram.getMaxNanos());
+        assertEquals(90 * 5000 + 10 * 3000000, histogram.getTotalNanos());
+        long p50 = histogram.getPercentileNanos(50);
+        assertTrue(p50 + "", p50 > 5000 && p50 <= 2 * 5000);
+        assertEquals(p50, histogram.getPercentileNanos(90));
+        // the upper bound of the slow bucket is capped by the maximum
+        assertEquals(3000000, histogram.getPercentileNanos(91));
+        assertEquals(3000000, histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram("load");
+        histogram.stop(LatencyHistogram.start());
+        histogram.record(-5);
+        assertEquals(2, histogram.getCount());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals("load: count=0, mean=0ns, p50<=0ns, p90<=0ns, p99<=0ns, max=0ns", histogram.toString());
+    }
+
+    @Test
+    public void testFormat() {
+        assertEquals("850ns", LatencyHistogram.formatNanos(850));
+        assertEquals("12.3us", LatencyHistogram.formatNanos(12345));
+        assertEquals("1.50ms", LatencyHistogram.formatNanos(1500000));
+        assertEquals("250s", LatencyHistogram.formatNanos(250000000000L));
+    }
+}
@@ -0,0 +1,47 @@
+package org.dnd5spellbook.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testMetricsAreCreatedOnce() {
+        MetricsRegistry registry = new MetricsRegistry();
+        assertSame(registry.histogram(MetricsRegistry.FILTER), registry.histogram(MetricsRegistry.FILTER));
+        assertSame(registry.counter(MetricsRegistry.ROWS_BOUND), registry.counter(MetricsRegistry.ROWS_BOUND));
+    }
+
+    @Test
+    public void testReport() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.histogram(MetricsRegistry.RANK).record(700);
+        registry.histogram(MetricsRegistry.FILTER).record(1500);
+        registry.counter(MetricsRegistry.ROWS_BOUND).addAndGet(12);
+
+        assertEquals(Arrays.asList(
+                "filter: count=1, mean=1.50us, p50<=1.50us, p90<=1.50us, p99<=1.50us, max=1.50us",
+                "rank: count=1, mean=700ns, p50<=700ns, p90<=700ns, p99<=700ns, max=700ns",
+                "rows_bound: 12"),
+                Arrays.asList(registry.report().split("\n")));
+
+        registry.reset();
+        assertTrue(registry.report(), registry.report().contains("rows_bound: 0"));
+    }
+
+    @Test
+    public void testSearchIsTimed() {
+        LatencyHistogram filter = MetricsRegistry.getDefault().histogram(MetricsRegistry.FILTER);
+        LatencyHistogram rank = MetricsRegistry.getDefault().histogram(MetricsRegistry.RANK);
+        long filterCount = filter.getCount();
+        long rankCount = rank.getCount();
+        new SpellSearch(TestBundles.dndBundleLoader().readSpellListFromMetadata()).search("fire");
+        assertEquals(filterCount + 1, filter.getCount());
+        assertEquals(rankCount + 1, rank.getCount());
+    }
+}
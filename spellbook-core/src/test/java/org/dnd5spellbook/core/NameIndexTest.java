@@ -0,0 +1,49 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class NameIndexTest {
+
+    private static int[] bruteForce(List<Spell> spells, String query) {
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < spells.size(); i++)
+            if (spells.get(i).getName().toLowerCase().contains(query))
+                positions.add(i);
+        int[] result = new int[positions.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = positions.get(i);
+        return result;
+    }
+
+    @Test
+    public void testSameMatchesAsContains() {
+        List<Spell> spells = TestBundles.dndBundleLoader().readSpellListFromMetadata();
+        NameIndex index = new NameIndex(spells);
+
+        Set<String> queries = new LinkedHashSet<>();
+        queries.add("");
+        queries.add("zzz");
+        queries.add("fireball of doom");
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            String name = index.getNormalizedName(random.nextInt(index.size()));
+            int start = random.nextInt(name.length());
+            int end = Math.min(name.length(), start + 1 + random.nextInt(8));
+            queries.add(name.substring(start, end));
+            // a random character replacement mostly produces misses
+            queries.add(name.substring(start, end).replace(name.charAt(start), (char) ('a' + random.nextInt(26))));
+        }
+
+        for (String query : queries)
+            assertArrayEquals(query, bruteForce(spells, query), index.find(query));
+    }
+}
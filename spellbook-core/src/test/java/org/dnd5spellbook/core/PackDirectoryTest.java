@@ -0,0 +1,131 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.School;
+import org.dnd5spellbook.domain.Spell;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PackDirectoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes a pack with evocation cantrips available to wizards
+     */
+    static File writePack(File root, String name, String... spellNames) throws IOException {
+        File directory = new File(root, name);
+        assertTrue(directory.mkdirs() || directory.isDirectory());
+        StringBuilder metadata = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<classes>\n    <class name=\"Wizard\">\n        <level value=\"0\">\n");
+        for (String spellName : spellNames) {
+            addSpell(directory, spellName);
+            metadata.append("            <item>").append(spellName).append("</item>\n");
+        }
+        metadata.append("        </level>\n    </class>\n</classes>\n");
+        write(new File(directory, SpellLoader.METADATA_FILE_NAME), metadata.toString());
+        return directory;
+    }
+
+    static void addSpell(File directory, String spellName) throws IOException {
+        write(new File(directory, spellName + ".html"), "<html><body><header>\n"
+                + "<i>Evocation cantrip</i><br/>\n"
+                + "<b>Casting Time:</b> 1 action<br/>\n"
+                + "<b>Range:</b> 60 feet<br/>\n"
+                + "<b>Components:</b> V, S<br/>\n"
+                + "<b>Duration:</b> Instantaneous<br/>\n"
+                + "</header><article><p>" + spellName + " from a homebrew pack.</p></article></body></html>\n");
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null)
+            for (File child : files)
+                delete(child);
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testMissingDirectoryHasNoPacks() throws IOException {
+        assertTrue(new PackDirectory(new File(folder.getRoot(), "packs")).discover().isEmpty());
+    }
+
+    @Test
+    public void testCompilesPacks() throws IOException {
+        File root = folder.getRoot();
+        writePack(root, "second", "Spark");
+        File first = writePack(root, "first", "Frost Bolt", "Arc Flash");
+        assertTrue(new File(root, "not a pack").mkdir());
+
+        List<SpellPack> packs = new PackDirectory(root).discover();
+        assertEquals(2, packs.size());
+        assertEquals("first", packs.get(0).getName());
+        assertEquals(1, packs.get(0).getNumber());
+        assertEquals("second", packs.get(1).getName());
+        assertEquals(2, packs.get(1).getNumber());
+        assertEquals(first, packs.get(0).getDirectory());
+
+        SpellLoader loader = packs.get(0).getSpellLoader();
+        List<Spell> spells = loader.readSpellListFromIndex();
+        assertEquals("Arc Flash", spells.get(0).getName());
+        assertEquals("Frost Bolt", spells.get(1).getName());
+        assertNotEquals(Spell.NO_ID, spells.get(0).getId());
+        SpellAttributes attributes = loader.readSpellAttributes();
+        assertEquals(School.EVOCATION, attributes.getSchool(0));
+        assertEquals(0, attributes.getLevel(1));
+
+        List<Spell> catalogueSpells = packs.get(0).readSpells();
+        assertEquals(packs.get(0).toCatalogueId(spells.get(0).getId()), catalogueSpells.get(0).getId());
+        assertEquals(1, SpellPack.packNumber(catalogueSpells.get(0).getId()));
+        assertEquals(spells.get(0).getId(), SpellPack.packId(catalogueSpells.get(0).getId()));
+    }
+
+    @Test
+    public void testKeepsNumbersAndIds() throws IOException {
+        File root = folder.getRoot();
+        File first = writePack(root, "first", "Spark");
+        File second = writePack(root, "second", "Frost Bolt", "Spark");
+        PackDirectory directory = new PackDirectory(root);
+        List<SpellPack> packs = directory.discover();
+        int sparkId = packs.get(1).getSpellLoader().readSpellListFromIndex().get(1).getId();
+
+        // unchanged packs are not compiled again
+        File index = new File(second, SpellIndex.FILE_NAME);
+        assertTrue(index.setLastModified(1000));
+        List<SpellPack> again = directory.discover();
+        assertTrue(again.get(1).isSameAs(packs.get(1)));
+        assertEquals(1000, index.lastModified());
+
+        delete(first);
+        writePack(root, "third", "Spark");
+        addSpell(second, "Arc Flash");
+        packs = directory.discover();
+        assertEquals(2, packs.size());
+        assertEquals("second", packs.get(0).getName());
+        assertEquals(2, packs.get(0).getNumber());
+        assertEquals("third", packs.get(1).getName());
+        assertEquals(3, packs.get(1).getNumber());
+
+        // a new spell gets a new id and the ids of other spells are kept
+        List<Spell> spells = packs.get(0).getSpellLoader().readSpellListFromIndex();
+        assertEquals(3, spells.size());
+        assertEquals("Spark", spells.get(2).getName());
+        assertEquals(sparkId, spells.get(2).getId());
+        assertEquals(2, spells.get(0).getId());
+    }
+}
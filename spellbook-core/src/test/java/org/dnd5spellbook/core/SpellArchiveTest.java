@@ -0,0 +1,89 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpellArchiveTest {
+
+    private static SpellArchive build(List<String> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SpellArchive.write(entries, out);
+        return SpellArchive.open(ByteBuffer.wrap(out.toByteArray()).asReadOnlyBuffer());
+    }
+
+    private static int deflatedSize(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] chunk = new byte[8192];
+        int size = 0;
+        while (!deflater.finished())
+            size += deflater.deflate(chunk);
+        deflater.end();
+        return size;
+    }
+
+    @Test
+    public void testShippedBundle() throws IOException {
+        SpellLoader loader = TestBundles.dndBundleLoader();
+        List<Spell> spells = loader.readSpellListFromMetadata();
+        List<String> entries = new ArrayList<>();
+        for (int i = 0; i < loader.readSpellIdRegistry().size(); i++)
+            entries.add(null);
+        int separatelyDeflated = 0;
+        for (Spell spell : spells) {
+            String html = SpellHtml.read(TestBundles.applicationAssets(), TestBundles.DND_BUNDLE, spell.getName());
+            entries.set(spell.getId(), html);
+            separatelyDeflated += deflatedSize(html.getBytes(Charset.forName("UTF-8")));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SpellArchive.write(entries, out);
+        SpellArchive archive = SpellArchive.open(ByteBuffer.wrap(out.toByteArray()));
+        assertEquals(entries.size(), archive.size());
+        for (Spell spell : spells)
+            assertEquals(spell.getName(), entries.get(spell.getId()), archive.read(spell.getId()));
+        // the shared dictionary pays off against compressing every file on its own
+        assertTrue(out.size() + " vs " + separatelyDeflated, out.size() < separatelyDeflated * 3 / 4);
+    }
+
+    @Test
+    public void testEntries() throws IOException {
+        SpellArchive archive = build(Arrays.asList(
+                "<html>\n<b>Range:</b> 60 feet\n</html>\n",
+                null,
+                "<html>\n<b>Range:</b> Self\n</html>\n",
+                ""));
+
+        assertEquals(4, archive.size());
+        assertEquals("<html>\n<b>Range:</b> Self\n</html>\n", archive.read(2));
+        assertEquals("", archive.read(3));
+        assertTrue(archive.contains(0));
+        assertFalse(archive.contains(1));
+        assertNull(archive.read(1));
+        assertNull(archive.getCompressed(4));
+        assertNull(archive.getCompressed(-1));
+        assertTrue(archive.getCompressed(0).isReadOnly());
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedArchiveIsRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SpellArchive.write(Arrays.asList("<html></html>", "<html></html>"), out);
+        SpellArchive.open(ByteBuffer.wrap(Arrays.copyOf(out.toByteArray(), out.size() - 3)));
+    }
+}
@@ -0,0 +1,85 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.CastingTime;
+import org.dnd5spellbook.domain.RangeKind;
+import org.dnd5spellbook.domain.School;
+import org.dnd5spellbook.domain.Spell;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpellAttributesTest {
+
+    private static final List<SpellHeader> HEADERS = Arrays.asList(
+            new SpellHeader(School.EVOCATION, 3, false, CastingTime.ACTION, 6, RangeKind.DISTANCE, 150,
+                    SpellHeader.VERBAL | SpellHeader.SOMATIC | SpellHeader.MATERIAL, false, 0),
+            new SpellHeader(School.DIVINATION, 1, true, CastingTime.TIME, 60, RangeKind.TOUCH, 0,
+                    SpellHeader.VERBAL, true, 3600),
+            new SpellHeader(null, SpellHeader.UNKNOWN, false, null, SpellHeader.UNKNOWN, null,
+                    SpellHeader.UNKNOWN, 0, false, SpellHeader.UNKNOWN),
+            new SpellHeader(School.CONJURATION, 0, false, CastingTime.ACTION, 6, RangeKind.DISTANCE, 30,
+                    SpellHeader.SOMATIC, false, SpellHeader.UNTIL_DISPELLED));
+
+    private static SpellAttributes roundTrip(SpellAttributes attributes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        attributes.write(out);
+        return SpellAttributes.open(out.toByteArray());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        SpellAttributes attributes = roundTrip(SpellAttributes.of(HEADERS));
+
+        assertEquals(HEADERS.size(), attributes.size());
+        for (int i = 0; i < HEADERS.size(); i++)
+            assertEquals(HEADERS.get(i).toString(), attributes.getHeader(i).toString());
+        assertTrue(attributes.isRitual(1));
+        assertTrue(attributes.isConcentration(1));
+        assertFalse(attributes.isRitual(0));
+        assertNull(attributes.getSchool(2));
+        assertNull(attributes.getRangeKind(2));
+        assertEquals(SpellHeader.UNKNOWN, attributes.getLevel(2));
+    }
+
+    @Test
+    public void testColumnScan() throws IOException {
+        SpellAttributes attributes = roundTrip(SpellAttributes.of(HEADERS));
+
+        int matches = 0;
+        for (int i = 0; i < attributes.size(); i++)
+            if (attributes.getCastingTime(i) == CastingTime.ACTION
+                    && attributes.getRangeFeet(i) >= 0 && attributes.getRangeFeet(i) <= 30)
+                matches++;
+        assertEquals(1, matches);
+    }
+
+    @Test
+    public void testShippedBundle() throws IOException {
+        SpellLoader loader = TestBundles.dndBundleLoader();
+        List<Spell> spells = loader.readSpellListFromMetadata();
+        SpellHeader[] headers = new SpellHeader[spells.size()];
+        for (int i = 0; i < headers.length; i++)
+            headers[i] = SpellHeader.parse(SpellHtml.read(
+                    TestBundles.applicationAssets(), TestBundles.DND_BUNDLE, spells.get(i).getName()));
+        SpellAttributes attributes = roundTrip(SpellAttributes.of(Arrays.asList(headers)));
+
+        assertEquals(spells.size(), attributes.size());
+        for (int i = 0; i < headers.length; i++)
+            assertEquals(spells.get(i).getName(), headers[i].toString(), attributes.getHeader(i).toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedAttributesAreRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SpellAttributes.of(HEADERS).write(out);
+        SpellAttributes.open(Arrays.copyOf(out.toByteArray(), out.size() - 1));
+    }
+}
@@ -0,0 +1,141 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.CastingTime;
+import org.dnd5spellbook.domain.ClassLevelConstraint;
+import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.RangeKind;
+import org.dnd5spellbook.domain.School;
+import org.dnd5spellbook.domain.Spell;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpellFacetsTest {
+
+    private static Spell spell(String name, ClassName className, int level) {
+        return new Spell(name, Arrays.asList(new ClassLevelConstraint(className, level)));
+    }
+
+    private static SpellHeader header(School school, int level, boolean ritual, int components, boolean concentration) {
+        return new SpellHeader(school, level, ritual, CastingTime.ACTION, SpellHeader.ROUND_SECONDS,
+                RangeKind.DISTANCE, 60, components, concentration, 60);
+    }
+
+    private static List<String> names(List<Spell> spells) {
+        List<String> result = new ArrayList<>();
+        for (Spell spell : spells)
+            result.add(spell.getName());
+        return result;
+    }
+
+    private final List<Spell> spells = Arrays.asList(
+            spell("Alarm", ClassName.WIZARD, 1),
+            spell("Detect Magic", ClassName.CLERIC, 1),
+            spell("Fire Bolt", ClassName.SORCERER, 0),
+            spell("Fireball", ClassName.WIZARD, 3),
+            spell("Hold Person", ClassName.CLERIC, 2));
+
+    private final SpellAttributes attributes = SpellAttributes.of(Arrays.asList(
+            header(School.ABJURATION, 1, true, SpellHeader.VERBAL | SpellHeader.SOMATIC | SpellHeader.MATERIAL, false),
+            header(School.DIVINATION, 1, true, SpellHeader.VERBAL | SpellHeader.SOMATIC, true),
+            header(School.EVOCATION, 0, false, SpellHeader.VERBAL | SpellHeader.SOMATIC, false),
+            header(School.EVOCATION, 3, false, SpellHeader.VERBAL | SpellHeader.SOMATIC | SpellHeader.MATERIAL, false),
+            header(School.ENCHANTMENT, 2, false, SpellHeader.VERBAL | SpellHeader.SOMATIC | SpellHeader.MATERIAL, true)));
+
+    private List<Spell> search(FacetFilter facetFilter, String query) {
+        SpellSearch search = new SpellSearch(spells);
+        search.setAttributes(attributes);
+        search.setFacetFilter(facetFilter);
+        return search.search(query);
+    }
+
+    @Test
+    public void testNoRestrictionHasNoCandidates() {
+        SpellFacets facets = new SpellFacets(spells, attributes);
+        assertNull(facets.candidates(FilterSpec.DEFAULT));
+        assertTrue(SpellFacets.contains(null, 3));
+    }
+
+    @Test
+    public void testLevelBitsets() {
+        SpellFacets facets = new SpellFacets(spells, null);
+        long[] candidates = facets.candidates(FilterSpec.DEFAULT.withLevels(new HashSet<>(Arrays.asList(0, 3))));
+        assertFalse(SpellFacets.contains(candidates, 0));
+        assertTrue(SpellFacets.contains(candidates, 2));
+        assertTrue(SpellFacets.contains(candidates, 3));
+        assertFalse(SpellFacets.contains(candidates, 4));
+    }
+
+    @Test
+    public void testFacetsCombine() {
+        FacetFilter evocation = FacetFilter.ANY.withSchools(EnumSet.of(School.EVOCATION));
+        assertEquals(Arrays.asList("Fire Bolt", "Fireball"), names(search(evocation, "")));
+        assertEquals(Arrays.asList("Fire Bolt"), names(search(evocation.withComponents(
+                SpellHeader.VERBAL | SpellHeader.SOMATIC), "")));
+        assertEquals(Arrays.asList("Alarm", "Detect Magic"), names(search(FacetFilter.ANY.withRitualOnly(true), "")));
+        assertEquals(Arrays.asList("Alarm"), names(search(FacetFilter.ANY.withRitualOnly(true)
+                .withoutConcentration(true), "")));
+        assertEquals(Collections.<String>emptyList(), names(search(FacetFilter.ANY.withComponents(0), "")));
+    }
+
+    @Test
+    public void testFacetsApplyBeforeNameMatch() {
+        FacetFilter evocation = FacetFilter.ANY.withSchools(EnumSet.of(School.EVOCATION));
+        assertEquals(Arrays.asList("Fire Bolt"), names(search(evocation.withComponents(
+                SpellHeader.VERBAL | SpellHeader.SOMATIC), "fire")));
+        assertEquals(Arrays.asList("Hold Person"), names(search(FacetFilter.ANY.withSchools(
+                EnumSet.of(School.ENCHANTMENT)), "o")));
+    }
+
+    @Test
+    public void testFacetsIgnoredWithoutAttributes() {
+        SpellSearch search = new SpellSearch(spells);
+        search.setFacetFilter(FacetFilter.ANY.withRitualOnly(true));
+        assertEquals(spells.size(), search.search("").size());
+        search.setAttributes(attributes);
+        assertEquals(2, search.search("").size());
+    }
+
+    @Test
+    public void testShippedBundle() throws IOException {
+        List<Spell> bundle = TestBundles.dndBundleLoader().readSpellListFromMetadata();
+        List<SpellHeader> headers = new ArrayList<>();
+        for (Spell spell : bundle)
+            headers.add(SpellHeader.parse(SpellHtml.read(
+                    TestBundles.applicationAssets(), TestBundles.DND_BUNDLE, spell.getName())));
+        SpellAttributes bundleAttributes = SpellAttributes.of(headers);
+        SpellSearch search = new SpellSearch(bundle);
+        search.setFuzzySearch(false);
+        search.setAttributes(bundleAttributes);
+        search.setLevelFilter(new HashSet<>(Arrays.asList(1, 2, 3)));
+        search.setFacetFilter(FacetFilter.ANY.withSchools(EnumSet.of(School.EVOCATION, School.CONJURATION))
+                .withoutConcentration(true).withComponents(SpellHeader.VERBAL | SpellHeader.SOMATIC));
+
+        for (String query : new String[]{"", "a", "or", "ward"}) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < bundle.size(); i++) {
+                School school = bundleAttributes.getSchool(i);
+                int level = bundleAttributes.getLevel(i);
+                if ((school == School.EVOCATION || school == School.CONJURATION)
+                        && level >= 1 && level <= 3 && !bundleAttributes.isConcentration(i)
+                        && (bundleAttributes.getComponents(i) & SpellHeader.MATERIAL) == 0
+                        && bundle.get(i).getNormalizedName().contains(query))
+                    expected.add(bundle.get(i).getName());
+            }
+            List<String> actual = names(search.search(query));
+            Collections.sort(actual);
+            assertEquals(query, expected, actual);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.CastingTime;
+import org.dnd5spellbook.domain.RangeKind;
+import org.dnd5spellbook.domain.School;
+import org.dnd5spellbook.domain.Spell;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpellHeaderTest {
+
+    private static String html(String summary, String... properties) {
+        StringBuilder html = new StringBuilder("<html><body><header>\n<i>" + summary + "</i><br/>\n");
+        for (int i = 0; i < properties.length; i += 2)
+            html.append("<b>").append(properties[i]).append("</b> ").append(properties[i + 1]).append("<br/>\n");
+        return html.append("</header><article></article></body></html>").toString();
+    }
+
+    @Test
+    public void testFireball() throws IOException {
+        SpellHeader header = SpellHeader.parse(SpellHtml.read(
+                TestBundles.applicationAssets(), TestBundles.DND_BUNDLE, "Fireball"));
+
+        assertEquals(School.EVOCATION, header.getSchool());
+        assertEquals(3, header.getLevel());
+        assertFalse(header.isRitual());
+        assertEquals(CastingTime.ACTION, header.getCastingTime());
+        assertEquals(SpellHeader.ROUND_SECONDS, header.getCastingTimeSeconds());
+        assertEquals(RangeKind.DISTANCE, header.getRangeKind());
+        assertEquals(150, header.getRangeFeet());
+        assertEquals(SpellHeader.VERBAL | SpellHeader.SOMATIC | SpellHeader.MATERIAL, header.getComponents());
+        assertFalse(header.isConcentration());
+        assertEquals(0, header.getDurationSeconds());
+    }
+
+    @Test
+    public void testScannedText() {
+        SpellHeader header = SpellHeader.parse(html("6 th-level Divination (ritual)",
+                "Casting Time:", "10 minutes",
+                "Range:", "Sel f (30-foot radius)",
+                "Component:", "V, S, M (a diamond worth 1,000 gp, which the spell consumes)",
+                "Duration:", "Concentration, up to 1 hour"));
+
+        assertEquals(School.DIVINATION, header.getSchool());
+        assertEquals(6, header.getLevel());
+        assertTrue(header.isRitual());
+        assertEquals(CastingTime.TIME, header.getCastingTime());
+        assertEquals(600, header.getCastingTimeSeconds());
+        assertEquals(RangeKind.SELF, header.getRangeKind());
+        assertEquals(0, header.getRangeFeet());
+        assertEquals(SpellHeader.VERBAL | SpellHeader.SOMATIC | SpellHeader.MATERIAL
+                | SpellHeader.MATERIAL_COST | SpellHeader.MATERIAL_CONSUMED, header.getComponents());
+        assertTrue(header.isConcentration());
+        assertEquals(3600, header.getDurationSeconds());
+    }
+
+    @Test
+    public void testUnknownProperties() {
+        SpellHeader header = SpellHeader.parse(html("Evocation cantrip",
+                "Range:", "500 miles",
+                "Duration:", "Special"));
+
+        assertEquals(School.EVOCATION, header.getSchool());
+        assertEquals(0, header.getLevel());
+        assertNull(header.getCastingTime());
+        assertEquals(SpellHeader.UNKNOWN, header.getCastingTimeSeconds());
+        assertEquals(500 * 5280, header.getRangeFeet());
+        assertEquals(0, header.getComponents());
+        assertEquals(SpellHeader.UNKNOWN, header.getDurationSeconds());
+    }
+
+    @Test
+    public void testShippedBundle() throws IOException {
+        for (Spell spell : TestBundles.dndBundleLoader().readSpellListFromMetadata()) {
+            SpellHeader header = SpellHeader.parse(SpellHtml.read(
+                    TestBundles.applicationAssets(), TestBundles.DND_BUNDLE, spell.getName()));
+            assertNotNull(spell.getName(), header.getSchool());
+            assertNotEquals(spell.getName(), SpellHeader.UNKNOWN, header.getLevel());
+            assertNotNull(spell.getName(), header.getCastingTime());
+            assertNotNull(spell.getName(), header.getRangeKind());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SpellIdRegistryTest {
+
+    private static SpellIdRegistry roundTrip(SpellIdRegistry registry) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        registry.write(out);
+        return SpellIdRegistry.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    public void testIdsAreKeptWhenSpellsAreAdded() throws IOException {
+        SpellIdRegistry registry = roundTrip(SpellIdRegistry.empty().withNames(Arrays.asList("Fireball", "Aid")));
+        assertEquals(0, registry.getId("Aid"));
+        assertEquals(1, registry.getId("Fireball"));
+        assertEquals(Spell.NO_ID, registry.getId("Wish"));
+
+        SpellIdRegistry updated = roundTrip(registry.withNames(Arrays.asList("Wish", "Aid", "Bless")));
+        assertEquals(0, updated.getId("Aid"));
+        assertEquals(1, updated.getId("Fireball"));
+        assertEquals(2, updated.getId("Bless"));
+        assertEquals(3, updated.getId("Wish"));
+        assertSame(updated, updated.withNames(Arrays.asList("Aid", "Wish")));
+    }
+
+    @Test
+    public void testShippedBundleSpellsHaveUniqueIds() {
+        List<Spell> spells = TestBundles.dndBundleLoader().readSpellListFromMetadata();
+        Set<Integer> ids = new HashSet<>();
+        List<String> failures = new ArrayList<>();
+        for (Spell spell : spells)
+            if (spell.getId() == Spell.NO_ID || !ids.add(spell.getId()))
+                failures.add(spell.getName());
+        assertTrue("Spells without unique ids: " + failures, failures.isEmpty());
+    }
+}
@@ -0,0 +1,144 @@
+package org.dnd5spellbook.core;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimap;
+
+import org.dnd5spellbook.domain.ClassLevelConstraint;
+import org.dnd5spellbook.domain.Spell;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SpellLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMoreThanZeroSpellsAvailable() throws Exception {
+        List<Spell> spells = TestBundles.dndBundleLoader().readSpellListFromMetadata();
+        assertTrue(spells.size() > 0);
+    }
+
+    @Test
+    public void testConstraintsReferenceExistingSpellsOnly() throws Exception {
+        SpellLoader spellLoader = TestBundles.dndBundleLoader();
+        List<Spell> spells = spellLoader.readSpellListFromMetadata();
+        Multimap<String, ClassLevelConstraint> constraints = spellLoader.readSpellClassLevelConstraints();
+
+        List<String> failures = new ArrayList<>();
+        for (final String name : constraints.keys()) {
+            if (!Iterables.any(spells, new Predicate<Spell>() {
+                @Override
+                public boolean apply(Spell input) {
+                    return input.getName().equals(name);
+                }
+            }))
+                failures.add(name);
+        }
+        assertTrue("Constraints exist for unknown spells: " + failures.toString(), failures.size() == 0);
+    }
+
+    @Test
+    public void testEverySpellHasConstraints() {
+        List<Spell> spells = TestBundles.dndBundleLoader().readSpellListFromMetadata();
+        List<String> failures = new ArrayList<>();
+        for (Spell spell : spells)
+            if (spell.getClassLevelConstraints().size() == 0)
+                failures.add(spell.getName());
+        assertTrue("Spells with no constraints: " + failures.toString(), failures.size() == 0);
+    }
+
+    @Test
+    public void testPortionsDouble() {
+        final List<Integer> sizes = new ArrayList<>();
+        List<Spell> spells = TestBundles.dndBundleLoader().readSpellList(1, new SpellLoader.Callback() {
+            @Override
+            public void onSpellsRead(List<Spell> spells) {
+                sizes.add(spells.size());
+            }
+        });
+
+        int read = 0;
+        for (int i = 0; i < sizes.size(); i++) {
+            if (i < sizes.size() - 1)
+                assertEquals(1 << i, (int) sizes.get(i));
+            read += sizes.get(i);
+        }
+        assertEquals(spells.size(), read);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsEmptyFirstPortion() {
+        TestBundles.dndBundleLoader().readSpellList(0, new SpellLoader.Callback() {
+            @Override
+            public void onSpellsRead(List<Spell> spells) {
+            }
+        });
+    }
+
+    @Test
+    public void testIndexMatchesMetadata() throws Exception {
+        List<Spell> parsed = TestBundles.dndBundleLoader().readSpellListFromMetadata();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SpellIndex.write(parsed, out);
+
+        SpellIndex index = SpellIndex.open(out.toByteArray());
+        List<Spell> indexed = index.readSpells(0, index.size());
+
+        assertEquals(parsed.size(), indexed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            assertEquals(parsed.get(i).getName(), indexed.get(i).getName());
+            assertEquals(parsed.get(i).getId(), indexed.get(i).getId());
+            assertEquals(new HashSet<>(parsed.get(i).getClassLevelConstraints()),
+                    new HashSet<>(indexed.get(i).getClassLevelConstraints()));
+        }
+    }
+
+    @Test
+    public void testPackedBundleListsArchivedSpells() throws Exception {
+        // as in the application package: the html is in the archive only
+        SpellLoader shipped = TestBundles.dndBundleLoader();
+        List<Spell> spells = shipped.readSpellListFromMetadata();
+        File bundle = folder.newFolder(TestBundles.DND_BUNDLE);
+        File shippedBundle = new File(TestBundles.applicationAssetsDirectory(), TestBundles.DND_BUNDLE);
+        for (String name : new String[]{SpellLoader.METADATA_FILE_NAME, SpellIdRegistry.FILE_NAME})
+            Files.copy(new File(shippedBundle, name).toPath(), new File(bundle, name).toPath());
+        List<String> entries = new ArrayList<>();
+        for (int i = 0; i < shipped.readSpellIdRegistry().size(); i++)
+            entries.add(null);
+        for (Spell spell : spells)
+            entries.set(spell.getId(), new String(Files.readAllBytes(
+                    new File(shippedBundle, spell.getName() + ".html").toPath()), StandardCharsets.UTF_8));
+        OutputStream out = new FileOutputStream(new File(bundle, SpellArchive.FILE_NAME));
+        try {
+            SpellArchive.write(entries, out);
+        } finally {
+            out.close();
+        }
+
+        List<Spell> packed = new SpellLoader(new FileAssetSource(folder.getRoot()), TestBundles.DND_BUNDLE)
+                .readSpellListFromMetadata();
+        assertEquals(spells.size(), packed.size());
+        for (int i = 0; i < spells.size(); i++) {
+            assertEquals(spells.get(i).getName(), packed.get(i).getName());
+            assertEquals(spells.get(i).getId(), packed.get(i).getId());
+            assertEquals(new HashSet<>(spells.get(i).getClassLevelConstraints()),
+                    new HashSet<>(packed.get(i).getClassLevelConstraints()));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.Spell;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SpellRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLoadsOnce() {
+        SpellRepository repository = new SpellRepository(TestBundles.dndBundleLoader());
+        assertFalse(repository.isLoaded());
+        assertNull(repository.getSpells());
+
+        final List<Spell> reported = new ArrayList<>();
+        SpellLoader.Callback callback = new SpellLoader.Callback() {
+            @Override
+            public void onSpellsRead(List<Spell> spells) {
+                reported.addAll(spells);
+            }
+        };
+        List<Spell> spells = repository.load(32, callback);
+        assertTrue(repository.isLoaded());
+        assertEquals(spells, reported);
+        assertSame(spells, repository.getSpells());
+        // generated bundle files are not in the source assets
+        assertNull(repository.getAttributes());
+
+        // loaded spells are returned without being reported again
+        assertSame(spells, repository.load(32, callback));
+        assertEquals(spells.size(), reported.size());
+    }
+
+    @Test
+    public void testConcurrentLoads() throws Exception {
+        final SpellRepository repository = new SpellRepository(TestBundles.dndBundleLoader());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Spell>>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                futures.add(executor.submit(new Callable<List<Spell>>() {
+                    @Override
+                    public List<Spell> call() {
+                        return repository.load();
+                    }
+                }));
+            List<Spell> spells = futures.get(0).get();
+            for (Future<List<Spell>> future : futures)
+                assertSame(spells, future.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testTrimKeepsCatalogue() {
+        SpellRepository repository = new SpellRepository(TestBundles.dndBundleLoader());
+        List<Spell> spells = repository.load();
+        NameIndex nameIndex = repository.getNameIndex();
+        SpellFacets facets = repository.getFacets();
+        assertSame(nameIndex, repository.getNameIndex());
+        assertSame(facets, repository.getFacets());
+
+        repository.trim();
+        assertSame(spells, repository.getSpells());
+        assertNotSame(nameIndex, repository.getNameIndex());
+        assertEquals(spells.size(), repository.getNameIndex().size());
+        assertNotSame(facets, repository.getFacets());
+    }
+
+    @Test
+    public void testSearchesShareIndexes() {
+        SpellRepository repository = new SpellRepository(TestBundles.dndBundleLoader());
+        List<Spell> spells = repository.load();
+        SpellSearch shared = new SpellSearch(new ArrayList<>(spells), repository);
+        shared.setAttributes(repository.getAttributes());
+        SpellSearch own = new SpellSearch(new ArrayList<>(spells));
+        own.setAttributes(repository.getAttributes());
+
+        assertEquals(own.search("fire"), shared.search("fire"));
+        assertEquals(own.search("fireball"), shared.search("fireball"));
+        // fuzzy matches of a misspelled name
+        assertEquals(own.search("firebal"), shared.search("firebal"));
+        assertEquals(own.search("firbal"), shared.search("firbal"));
+    }
+
+    @Test
+    public void testMergesPacks() throws IOException {
+        List<Spell> bundled = new SpellRepository(TestBundles.dndBundleLoader()).load();
+        File root = folder.getRoot();
+        PackDirectoryTest.writePack(root, "homebrew", "Fireball", "Zephyr Spark");
+        SpellRepository repository = new SpellRepository(TestBundles.dndBundleLoader(), new PackDirectory(root));
+
+        List<Spell> spells = repository.load();
+        assertEquals(bundled.size() + 1, spells.size());
+        assertEquals(1, repository.getCatalogue().getReplacedCount());
+        for (int i = 1; i < spells.size(); i++)
+            assertTrue(Spell.NAME_COMPARATOR.compare(spells.get(i - 1), spells.get(i)) < 0);
+
+        Spell fireball = new SpellSearch(spells, repository).search("fireball").get(0);
+        assertEquals("Fireball", fireball.getName());
+        assertEquals(1, SpellPack.packNumber(fireball.getId()));
+        assertEquals("homebrew", repository.getPack(fireball.getId()).getName());
+        assertTrue(repository.readSpellHtml(fireball.getId(), fireball.getName()).contains("homebrew pack"));
+        // homebrew spells have attributes while the bundle in source assets has none
+        SpellAttributes attributes = repository.getAttributes();
+        assertNotNull(attributes);
+        assertEquals(0, attributes.getLevel(spells.indexOf(fireball)));
+        assertEquals(SpellHeader.UNKNOWN, attributes.getLevel(0));
+
+        // the bundle in source assets has no full text index, the pack has one
+        SpellSearch fullText = new SpellSearch(spells, repository);
+        fullText.setFullTextIndex(repository.getFullTextIndex());
+        fullText.setFullTextSearch(true);
+        List<Spell> found = fullText.search("homebrew pack");
+        assertEquals(2, found.size());
+        assertEquals("Fireball", found.get(0).getName());
+        assertEquals("Zephyr Spark", found.get(1).getName());
+
+        Spell bundledSpell = spells.get(0);
+        assertEquals(SpellPack.BUNDLED_NUMBER, SpellPack.packNumber(bundledSpell.getId()));
+        assertTrue(repository.readSpellHtml(bundledSpell.getId(), bundledSpell.getName()).contains("<header>"));
+    }
+
+    @Test
+    public void testRefreshPicksUpPackChanges() throws IOException {
+        File root = folder.getRoot();
+        SpellRepository repository = new SpellRepository(TestBundles.dndBundleLoader(), new PackDirectory(root));
+        List<Spell> spells = repository.load();
+        int version = repository.getCatalogue().getVersion();
+        assertFalse(repository.refresh());
+        assertSame(spells, repository.getSpells());
+
+        SpellSearch search = new SpellSearch(new ArrayList<>(spells), repository);
+        List<Spell> found = search.search("fire");
+        PackDirectoryTest.writePack(root, "homebrew", "Fire Spark");
+        assertTrue(repository.refresh());
+        assertTrue(repository.getCatalogue().getVersion() > version);
+        assertEquals(spells.size() + 1, repository.getSpells().size());
+        assertFalse(repository.refresh());
+
+        // a search of the previous spells doesn't take indexes of the new catalogue
+        assertEquals(found, search.search("fire"));
+        SpellSearch refreshed = new SpellSearch(new ArrayList<>(repository.getSpells()), repository);
+        assertEquals(found.size() + 1, refreshed.search("fire").size());
+    }
+}
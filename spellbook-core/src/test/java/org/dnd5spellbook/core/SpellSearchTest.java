@@ -0,0 +1,161 @@
+package org.dnd5spellbook.core;
+
+import org.dnd5spellbook.domain.ClassLevelConstraint;
+import org.dnd5spellbook.domain.ClassName;
+import org.dnd5spellbook.domain.Spell;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class SpellSearchTest {
+
+    private static Spell spell(String name, ClassName className, int level) {
+        return new Spell(name, Arrays.asList(new ClassLevelConstraint(className, level)));
+    }
+
+    private static List<String> names(List<Spell> spells) {
+        List<String> result = new ArrayList<>();
+        for (Spell spell : spells)
+            result.add(spell.getName());
+        return result;
+    }
+
+    private final List<Spell> spells = Arrays.asList(
+            spell("Burning Hands", ClassName.WIZARD, 1),
+            spell("Cure Wounds", ClassName.CLERIC, 1),
+            spell("Delayed Blast Fireball", ClassName.WIZARD, 7),
+            spell("Fire Bolt", ClassName.SORCERER, 0),
+            spell("Fireball", ClassName.WIZARD, 3));
+
+    @Test
+    public void testPrefixMatchesGoFirst() {
+        SpellSearch search = new SpellSearch(spells);
+        assertEquals(Arrays.asList("Fire Bolt", "Fireball", "Delayed Blast Fireball"), names(search.search("FIRE")));
+    }
+
+    @Test
+    public void testRankingMatchesSortByPrefixAndName() {
+        List<Spell> bundle = TestBundles.dndBundleLoader().readSpellListFromMetadata();
+        SpellSearch search = new SpellSearch(bundle);
+        search.setFuzzySearch(false);
+        for (final String query : new String[]{"", "s", "fi", "ar", "of", "ward"}) {
+            List<Spell> expected = new ArrayList<>();
+            for (Spell spell : bundle)
+                if (spell.getName().toLowerCase().contains(query))
+                    expected.add(spell);
+            Collections.sort(expected, new Comparator<Spell>() {
+                @Override
+                public int compare(Spell lhs, Spell rhs) {
+                    int leftBestFit = lhs.getName().toLowerCase().startsWith(query) ? 0 : 1;
+                    int rightBestFit = rhs.getName().toLowerCase().startsWith(query) ? 0 : 1;
+                    if (leftBestFit != rightBestFit)
+                        return leftBestFit - rightBestFit;
+                    return lhs.getName().compareTo(rhs.getName());
+                }
+            });
+            assertEquals(query, names(expected), names(search.search(query)));
+        }
+    }
+
+    @Test
+    public void testEmptyQueryMatchesAll() {
+        SpellSearch search = new SpellSearch(spells);
+        assertEquals(spells.size(), search.search((CharSequence) null).size());
+        assertEquals(spells.size(), search.search("").size());
+    }
+
+    @Test
+    public void testClassNamesFilter() {
+        SpellSearch search = new SpellSearch(spells);
+        search.setClassNamesFilter(EnumSet.of(ClassName.SORCERER, ClassName.CLERIC));
+        assertEquals(Arrays.asList("Cure Wounds", "Fire Bolt"), names(search.search("")));
+    }
+
+    @Test
+    public void testFavOnlyFilter() {
+        SpellSearch search = new SpellSearch(spells);
+        spells.get(4).setFavorite(true);
+        search.setShowFavOnly(true);
+        assertEquals(Arrays.asList("Fireball"), names(search.search("fire")));
+    }
+
+    @Test
+    public void testSpecIsASnapshot() {
+        SpellSearch search = new SpellSearch(spells);
+        FilterSpec spec = FilterSpec.DEFAULT
+                .withQuery("FIRE")
+                .withShowFavOnly(true)
+                .withFavorites(FavoriteSet.EMPTY.with(3, true));
+        Set<ClassName> classNames = EnumSet.of(ClassName.SORCERER, ClassName.WIZARD);
+        FilterSpec sorcererSpec = spec.withClassNames(classNames);
+
+        // favorite marks of spells and later changes of the passed sets are not seen
+        spells.get(4).setFavorite(true);
+        classNames.remove(ClassName.SORCERER);
+        assertEquals(Arrays.asList("Fire Bolt"), names(search.search(spec)));
+        assertEquals(Arrays.asList("Fire Bolt"), names(search.search(sorcererSpec)));
+        assertEquals(Arrays.asList("Fire Bolt", "Fireball"), names(search.search(spec.withFavorites(spec.getFavorites().with(4, true)))));
+    }
+
+    @Test
+    public void testClassAndLevelMatchSameConstraint() {
+        Spell spell = new Spell("Multiclass Spell", Arrays.asList(
+                new ClassLevelConstraint(ClassName.WIZARD, 1),
+                new ClassLevelConstraint(ClassName.CLERIC, 3)));
+        SpellSearch search = new SpellSearch(Arrays.asList(spell));
+        search.setClassNamesFilter(EnumSet.of(ClassName.WIZARD));
+
+        search.setLevelFilter(new HashSet<>(Arrays.asList(3)));
+        assertEquals(0, search.search("").size());
+
+        search.setLevelFilter(new HashSet<>(Arrays.asList(1, 3)));
+        assertEquals(1, search.search("").size());
+    }
+
+    @Test
+    public void testMisspelledNamesMatchWhenFewExactMatches() {
+        List<Spell> bundle = TestBundles.dndBundleLoader().readSpellListFromMetadata();
+        SpellSearch search = new SpellSearch(bundle);
+        assertEquals("Melf's Acid Arrow", search.search("Melfs acid arow").get(0).getName());
+        assertEquals("Fireball", search.search("fierball").get(0).getName());
+
+        // exact matches go first and suppress fuzzy matches when there are enough of them
+        assertEquals(Arrays.asList("Fireball", "Delayed Blast Fireball"), names(new SpellSearch(spells).search("fireball")));
+        assertEquals(Arrays.asList("Fire Bolt", "Fireball", "Delayed Blast Fireball"), names(new SpellSearch(spells).search("fire")));
+        assertEquals(Arrays.asList("Fire Bolt", "Fireball"), names(new SpellSearch(spells).search("firebolt")));
+
+        search.setFuzzySearch(false);
+        assertEquals(0, search.search("Melfs acid arow").size());
+    }
+
+    @Test
+    public void testRefinedSearchMatchesFullSearch() {
+        List<Spell> bundle = TestBundles.dndBundleLoader().readSpellListFromMetadata();
+        SpellSearch typing = new SpellSearch(bundle);
+        String[] keystrokes = {"", "f", "fi", "fir", "fire", "fir", "ir", "ire", "ireb", "e", "es", "est", "r"};
+        for (int i = 0; i < keystrokes.length; i++) {
+            if (i == 6)
+                typing.setClassNamesFilter(EnumSet.of(ClassName.WIZARD));
+            if (i == 9) {
+                bundle.get(0).setFavorite(true);
+                typing.setShowFavOnly(true);
+            }
+            if (i == 11)
+                bundle.get(1).setFavorite(true);
+
+            SpellSearch fresh = new SpellSearch(bundle);
+            fresh.setClassNamesFilter(typing.getClassNamesFilter());
+            fresh.setShowFavOnly(typing.isShowFavOnly());
+            assertEquals(keystrokes[i], names(fresh.search(keystrokes[i])), names(typing.search(keystrokes[i])));
+        }
+    }
+}
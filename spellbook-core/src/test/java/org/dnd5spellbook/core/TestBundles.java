@@ -0,0 +1,35 @@
+package org.dnd5spellbook.core;
+
+import java.io.File;
+
+/**
+ * Access to the spell bundle shipped with the application for tests
+ */
+public class TestBundles {
+
+    /**
+     * Path of the shipped bundle within the application assets
+     */
+    public static final String DND_BUNDLE = "dndbundle";
+
+    /**
+     * @return directory of the application assets
+     */
+    public static File applicationAssetsDirectory() {
+        return new File(System.getProperty("spellbook.assets", "../app/src/main/assets"));
+    }
+
+    /**
+     * @return source of the application assets
+     */
+    public static AssetSource applicationAssets() {
+        return new FileAssetSource(applicationAssetsDirectory());
+    }
+
+    /**
+     * @return loader of the shipped spell bundle
+     */
+    public static SpellLoader dndBundleLoader() {
+        return new SpellLoader(applicationAssets(), DND_BUNDLE);
+    }
+}
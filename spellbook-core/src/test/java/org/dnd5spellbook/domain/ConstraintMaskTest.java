@@ -0,0 +1,35 @@
+package org.dnd5spellbook.domain;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConstraintMaskTest {
+
+    @Test
+    public void testEveryConstraintHasOwnBit() {
+        for (ClassName className : ClassName.values())
+            for (int level = 0; level < ConstraintMask.LEVEL_COUNT; level++) {
+                ConstraintMask mask = ConstraintMask.of(Arrays.asList(new ClassLevelConstraint(className, level)));
+                assertEquals(1, Long.bitCount(mask.getLow()) + Long.bitCount(mask.getHigh()));
+                assertTrue(mask.contains(className, level));
+            }
+    }
+
+    @Test
+    public void testHighWordIntersection() {
+        ConstraintMask spellMask = ConstraintMask.of(Arrays.asList(new ClassLevelConstraint(ClassName.WIZARD, 9)));
+        ConstraintMask wizards = ConstraintMask.of(EnumSet.of(ClassName.WIZARD), new HashSet<>(Arrays.asList(9)));
+        ConstraintMask warlocks = ConstraintMask.of(EnumSet.of(ClassName.WARLOCK), new HashSet<>(Arrays.asList(9)));
+
+        assertEquals(0, spellMask.getLow());
+        assertTrue(wizards.intersects(spellMask.getLow(), spellMask.getHigh()));
+        assertFalse(warlocks.intersects(spellMask.getLow(), spellMask.getHigh()));
+    }
+}
@@ -0,0 +1,83 @@
+package org.dnd5spellbook.domain;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+public class SpellTest {
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    public void testConstraintList() {
+        Spell spell = new Spell("Spell", Arrays.asList(
+                new ClassLevelConstraint(ClassName.WIZARD, 9),
+                ClassLevelConstraint.of(ClassName.BARD, 2),
+                ClassLevelConstraint.of(ClassName.BARD, 0),
+                ClassLevelConstraint.of(ClassName.BARD, 2)));
+
+        List<ClassLevelConstraint> constraints = spell.getClassLevelConstraints();
+        assertEquals(Arrays.asList(
+                ClassLevelConstraint.of(ClassName.BARD, 0),
+                ClassLevelConstraint.of(ClassName.BARD, 2),
+                ClassLevelConstraint.of(ClassName.WIZARD, 9)), constraints);
+        assertSame(ClassLevelConstraint.of(ClassName.WIZARD, 9), constraints.get(2));
+        assertTrue(new Spell("Spell", Arrays.<ClassLevelConstraint>asList()).getClassLevelConstraints().isEmpty());
+    }
+
+    @Test
+    public void testClassNameFromString() {
+        for (ClassName className : ClassName.values()) {
+            assertSame(className, ClassName.fromString(className.getUniqueName()));
+            assertSame(className, ClassName.fromString(className.getUniqueName().toUpperCase()));
+        }
+    }
+
+    /**
+     * A spell used to keep an unmodifiable list over an array list of its own constraint
+     * objects: about 200 bytes for a spell with three constraints. Now it keeps a mask.
+     * Names are mixed case, as real ones, so every spell keeps its own normalized name.
+     * The heap is measured in several runs and the median is checked, since a collection
+     * may be delayed by a run.
+     */
+    @Test
+    public void testHeapPerSpell() {
+        assumeFalse("Explicit collections are disabled",
+                ManagementFactory.getRuntimeMXBean().getInputArguments().contains("-XX:+DisableExplicitGC"));
+        String[] names = new String[1000];
+        for (int i = 0; i < names.length; i++)
+            names[i] = "Spell " + i;
+        int count = 100000;
+
+        long[] perSpell = new long[5];
+        for (int run = 0; run < perSpell.length; run++) {
+            Spell[] spells = new Spell[count];
+            long before = usedHeap();
+            for (int i = 0; i < count; i++)
+                spells[i] = new Spell(names[i % names.length], Arrays.asList(
+                        ClassLevelConstraint.of(ClassName.WIZARD, i % ConstraintMask.LEVEL_COUNT),
+                        ClassLevelConstraint.of(ClassName.CLERIC, 3),
+                        ClassLevelConstraint.of(ClassName.BARD, 1)));
+            perSpell[run] = (usedHeap() - before) / count;
+            assertNotNull(spells[count - 1]);
+        }
+        Arrays.sort(perSpell);
+
+        // a spell object and its normalized name, names themselves are shared in this test
+        long median = perSpell[perSpell.length / 2];
+        assertTrue("Heap per spell is " + median + " bytes", median <= 160);
+    }
+}